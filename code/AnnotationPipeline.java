@@ -0,0 +1,92 @@
+import java.io.*;
+import java.util.*;
+
+/*************************
+AnnotationPipeline
+	Runs ClassifyConsensusSequences, GetProteins, IdentifySSRs, GetConsensusProteins and
+	GenerateAnnotatedLibrary in one JVM. ConsensusSequences.fa is mapped and its lengths read once, and
+	the known families, CENSOR hits, proteins and SSRs are handed from stage to stage in memory rather
+	than through known.txt, notKnown.fa, protein.txt, notKnownNotProtein.fa and SSR.txt.
+	Date: October 17, 2026
+	Inputs: As for the individual stages. The outputs of the external searches (the CENSOR map and the
+		blastx/tblastx gff files) must already exist. The SSRs are found by IdentifySSRs' own scan of the
+		consensus sequences, or with -phobos read from notKnownNotProtein.phobos.
+	Outputs: Proteins.fa and the annotated library, as for GetConsensusProteins and GenerateAnnotatedLibrary
+		With -legacy, also the intermediate files of each stage (known.txt, partial.txt, check.txt,
+		notKnown.fa, notKnown.fa.gff, protein.txt, notKnownNotProtein.fa, SSR.txt,
+		notKnownNotProteinNotSSR.fa)
+		With -sweep, the libraries or coverageSweep.txt of GenerateAnnotatedLibrary's -sweep
+		With -metrics, a JSON summary of each stage's steps (see Metrics)
+		With -packed, the consensus sequences are packed into memory (see PackedSequences) once their file is
+		read, and each stage writes them from there rather than from the file
+	Usage: java AnnotationPipeline [-legacy] [-phobos] [-packed] [-threads n] [-sweep sine:rest,... [-summary]] 
+		[-metrics metrics.json] [sineMinCoverage]
+***************************/
+
+
+public class AnnotationPipeline {
+	private static String cFile = "./ConsensusSequences.fa";
+	private static boolean legacy = false;
+	private static boolean phobos = false;
+	private static boolean packed = false;
+
+	public static void main (String[] args) {
+		GenerateAnnotatedLibrary.setSineMinCoverage(getOptions(args));
+		try {
+			FastaReader consensus = new FastaReader(cFile);
+			if (packed) consensus = pack(consensus);
+			NameDictionary names = new NameDictionary();
+			NameDictionary targets = new NameDictionary();
+			IntList lengths = ClassifyConsensusSequences.getLengths(consensus, names);
+			HitTable irHits = new HitTable();
+			BitSet knowns = ClassifyConsensusSequences.classify(names, lengths, targets, irHits, legacy);
+			if (legacy) ClassifyConsensusSequences.printNotKnownSequences(consensus, names, knowns);
+			NameDictionary proteinNames = new NameDictionary();
+			IntMultiMap proteins = GetProteins.getProteins(names, proteinNames);
+			if (legacy) GetProteins.writeProteins(proteins, names, proteinNames, consensus, knowns);
+			NameDictionary units = new NameDictionary();
+			BitSet excluded = proteins.keySet();
+			excluded.or(knowns);
+			IntList ssrs = phobos?IdentifySSRs.getSSRs(names, units):
+				IdentifySSRs.findSSRs(consensus, names, units, excluded);
+			if (legacy && ssrs.keySet().cardinality() > 0) 
+				IdentifySSRs.writeSSRs(ssrs, names, units, consensus, excluded);
+			GetConsensusProteins.writeConsensus(consensus, names, proteins, proteinNames);
+			GenerateAnnotatedLibrary.writeLibrary(consensus, names, lengths, targets, ssrs.keySet(), 
+				proteins.keySet(), knowns, irHits);
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		Metrics.write();
+		}
+
+
+	private static String[] getOptions (String[] args) {
+		List<String> rest = new ArrayList<String>();
+		for (int i=0; i<args.length; i++)
+			if (args[i].equals("-legacy")) legacy = true;
+			else if (args[i].equals("-phobos")) phobos = true;
+			else if (args[i].equals("-packed")) packed = true;
+			else if (args[i].equals("-threads") && i + 1 < args.length)
+				try {
+					int threads = Integer.parseInt(args[++i]);
+					ClassifyConsensusSequences.setThreads(threads);
+					IdentifySSRs.setThreads(threads);
+					GenerateAnnotatedLibrary.setThreads(threads);
+					InputFile.setThreads(threads);
+					}
+				catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[i]);}
+			else if (args[i].equals("-sweep") && i + 1 < args.length) GenerateAnnotatedLibrary.setSweep(args[++i]);
+			else if (args[i].equals("-summary")) GenerateAnnotatedLibrary.setSweepSummary(true);
+			else if (args[i].equals("-metrics") && i + 1 < args.length) Metrics.setFile(args[++i]);
+			else rest.add(args[i]);
+		return rest.toArray(new String[rest.size()]);
+		}
+
+	private static FastaReader pack (FastaReader consensus) {
+		Metrics.Step step = Metrics.start("AnnotationPipeline", "packing");
+		PackedSequences packed = new PackedSequences(consensus);
+		step.end(packed.size(), consensus.getSize(), 0);
+		System.out.println("Packed " + packed.getResidues() + " residues into " + packed.getPackedSize() + " bytes");
+		return packed;
+		}
+	}
@@ -0,0 +1,252 @@
+import java.io.*;
+import java.util.*;
+
+/*************************
+BlastPrefilter
+	Splits notKnown.fa, before the blastx/tblastx runs of reportsJ.sh, into the sequences that could hit each
+	database and those that have no chance of hitting any. Each database is indexed as protein k-mers in the
+	reduced (Murphy 10 letter) alphabet, nucleotide databases after translation in six frames. A consensus
+	sequence is a candidate for a database when one of its six frames has -hits k-mers of the database
+	within -window residues, like BLAST's two hit seeding. K-mers longer than the -bits table are hashed into
+	it. Larger -k or -hits, or a smaller -window, drop more sequences at the cost of recall. The exact
+	seeding finds fewer hits than BLAST's neighbourhood words, so measure recall before searching only the
+	candidates: give each database, with -reference, the gff or .ncbi of a full BLAST run of the same query
+	kept apart from the files the searches write (reportsJ.sh overwrites notKnown.fa.<tag>wb.gff). The share
+	of the table a database fills is printed, as a nearly full table makes every sequence a candidate.
+	Date: October 17, 2026
+	Inputs: notKnown.fa (the not known consensus sequences)
+		The databases, each given with the tag of its reportsJ.sh output (sp, te, erv)
+		-reference tag file (optional, the gff or .ncbi of a full BLAST run for the database, to measure recall)
+	Outputs: notKnown.<tag>.fa (The candidates for each database, to be searched instead of notKnown.fa)
+		notKnown.noChance.fa (The sequences that are not a candidate for any database)
+	Usage: java BlastPrefilter [-k 8] [-hits 2] [-window 40] [-bits 28] [-query notKnown.fa] 
+		-p sp uniprot_sprot.fasta -p te GB_TE.21032016.fa -n erv all_retrovirus.fasta 
+		[-reference sp full/notKnown.fa.spwb.gff ...] (-p for protein, -n for nucleotide databases)
+***************************/
+
+
+public class BlastPrefilter {
+	private static class KmerIndex {// the reduced alphabet k-mers of one database
+		private String tag;
+		private String file;
+		private String reference;//the hits of a full BLAST run, or null
+		private boolean nucleotide;
+		private BitSet kmers = new BitSet();
+		private BitSet candidates = new BitSet();//query IDs
+
+		public KmerIndex (String tag, String file, boolean nucleotide) {
+			this.tag = tag;
+			this.file = file;
+			this.nucleotide = nucleotide;
+			}
+		}
+
+	private static final String codons = "KNKNTTTTRSRSIIMIQHQHPPPPRRRRLLLLEDEDAAAAGGGGVVVV*Y*YSSSS*CWCLFLF";
+	private static final String[] groups = {"LVIM", "C", "A", "G", "ST", "P", "FYW", "EDNQ", "KR", "H"};
+	private static byte[] bases = new byte[256];
+	private static byte[] reduced = new byte[256];
+	private static int k = 8;
+	private static int minHits = 2;
+	private static int window = 40;
+	private static int bits = 28;
+	private static long kmerCount = 1;
+	private static String query = "notKnown.fa";
+	private static List<KmerIndex> indices = new ArrayList<KmerIndex>();
+	private static Map<String, String> references = new HashMap<String, String>();
+
+	static {
+		Arrays.fill(bases, (byte) 4);
+		String acgt = "ACGT";
+		for (int b=0; b<4; b++) {
+			bases[acgt.charAt(b)] = (byte) b;
+			bases[Character.toLowerCase(acgt.charAt(b))] = (byte) b;
+			}
+		bases['U'] = bases['u'] = 3;
+		Arrays.fill(reduced, (byte) -1);
+		for (int g=0; g<groups.length; g++)
+			for (int i=0; i<groups[g].length(); i++) {
+				reduced[groups[g].charAt(i)] = (byte) g;
+				reduced[Character.toLowerCase(groups[g].charAt(i))] = (byte) g;
+				}
+		}
+
+	public static void main (String[] args) {
+		if (!getOptions(args)) {
+			System.out.println("Usage: java BlastPrefilter [-k 8] [-hits 2] [-window 40] [-bits 28] " + 
+				"[-query notKnown.fa] -p|-n tag db ... [-reference tag hits ...]");
+			return;
+			}
+		try {
+			for (KmerIndex index : indices) addDatabase(index);
+			NameDictionary names = new NameDictionary();
+			int dropped = split(names);
+			System.out.println(dropped + " of " + names.size() + " sequences have no chance of a hit");
+			for (KmerIndex index : indices) {
+				System.out.println(index.tag + ": " + index.candidates.cardinality() + " candidates");
+				printRecall(index, names);
+				}
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		}
+
+
+	private static void addDatabase (KmerIndex index) throws IOException {
+		FastaReader in = new FastaReader(index.file);
+		byte[] protein = new byte[0];
+		while (in.nextRecord()) {
+			byte[] residues = in.getSequence();
+			if (!index.nucleotide) addKmers(index.kmers, residues, residues.length);
+			else {
+				if (protein.length < residues.length / 3 + 1) protein = new byte[residues.length / 3 + 1];
+				for (int frame=0; frame<6; frame++) 
+					addKmers(index.kmers, protein, translate(residues, frame, protein));
+				}
+			}
+		System.out.println(index.tag + ": " + index.kmers.cardinality() + " of " + 
+			Math.min(kmerCount, 1L << bits) + " k-mer slots filled from " + index.file);
+		}
+
+	private static void addKmers (BitSet kmers, byte[] protein, int length) {
+		long code = 0;
+		int valid = 0;
+		for (int i=0; i<length; i++) {
+			byte r = reduced[protein[i] & 0xff];
+			if (r < 0) valid = 0;
+			else {
+				code = (code * 10 + r) % kmerCount;
+				if (++valid >= k) kmers.set(getSlot(code));
+				}
+			}
+		}
+
+	private static boolean getOptions (String[] args) {
+		try {
+			for (int i=0; i<args.length; i++)
+				if (args[i].equals("-k")) k = Math.max(1, Math.min(12, Integer.parseInt(args[++i])));
+				else if (args[i].equals("-hits")) minHits = Math.max(1, Integer.parseInt(args[++i]));
+				else if (args[i].equals("-window")) window = Math.max(1, Integer.parseInt(args[++i]));
+				else if (args[i].equals("-bits")) bits = Math.max(10, Math.min(31, Integer.parseInt(args[++i])));
+				else if (args[i].equals("-query")) query = args[++i];
+				else if (args[i].equals("-p") || args[i].equals("-n")) {
+					indices.add(new KmerIndex(args[i + 1], args[i + 2], args[i].equals("-n")));
+					i += 2;
+					}
+				else if (args[i].equals("-reference")) {
+					references.put(args[i + 1], args[i + 2]);
+					i += 2;
+					}
+				else return false;
+			}
+		catch (NumberFormatException ne) {return false;}
+		catch (ArrayIndexOutOfBoundsException ae) {return false;}
+		for (KmerIndex index : indices) index.reference = references.remove(index.tag);
+		if (!references.isEmpty()) return false;//a reference of no database
+		for (int i=0; i<k; i++) kmerCount *= 10;
+		return !indices.isEmpty();
+		}
+
+	private static int getSlot (long code) {// the code itself when the table is large enough
+		if (kmerCount <= 1L << bits) return (int) code;
+		return (int) ((code * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+		}
+
+	private static boolean isCandidate (BitSet kmers, byte[] protein, int length, int[] last) {
+		long code = 0;
+		int valid = 0;
+		int hits = 0;
+		for (int i=0; i<length; i++) {
+			byte r = reduced[protein[i] & 0xff];
+			if (r < 0) valid = 0;
+			else {
+				code = (code * 10 + r) % kmerCount;
+				if (++valid >= k && kmers.get(getSlot(code))) {
+					last[hits++ % minHits] = i;//after which the oldest of the last minHits hits is next
+					if (hits >= minHits && i - last[hits % minHits] < window) return true;
+					}
+				}
+			}
+		return false;
+		}
+
+	private static void printRecall (KmerIndex index, NameDictionary names) throws IOException {
+		String gff = index.reference;
+		if (gff == null) {
+			System.out.println(index.tag + ": recall not measured, give a full BLAST run with -reference");
+			return;
+			}
+		if (!InputFile.exists(gff)) {
+			System.out.println("The file " + gff + " does not exist.");
+			return;
+			}
+		BitSet hits = new BitSet();
+		BufferedReader in = InputFile.getReader(gff);
+		String line = null;
+		while ((line = in.readLine()) != null) {
+			int tab = line.indexOf("\t");
+			int id = names.get(tab<0?line:line.substring(0, tab));
+			if (id >= 0) hits.set(id);
+			}
+		in.close();
+		BitSet kept = (BitSet) hits.clone();
+		kept.and(index.candidates);
+		System.out.println(index.tag + ": recall " + kept.cardinality() + " of " + hits.cardinality() +
+			" sequences with hits in " + gff);
+		}
+
+	//Writes the candidates of each database and the sequences that are no database's candidate, returning how
+	//many of those there were
+	private static int split (NameDictionary names) throws IOException {
+		String prefix = query.endsWith(".fa")?query.substring(0, query.length() - 3):query;
+		BufferedWriter[] outs = new BufferedWriter[indices.size()];
+		for (int i=0; i<outs.length; i++)
+			outs[i] = new BufferedWriter(new FileWriter(prefix + "." + indices.get(i).tag + ".fa"));
+		BufferedWriter noChance = new BufferedWriter(new FileWriter(prefix + ".noChance.fa"));
+		FastaReader in = new FastaReader(query);
+		byte[] protein = new byte[0];
+		int[] last = new int[minHits];
+		int dropped = 0;
+		while (in.nextRecord()) {
+			int id = names.add(in.getId());
+			byte[] residues = in.getSequence();
+			if (protein.length < residues.length / 3 + 1) protein = new byte[residues.length / 3 + 1];
+			boolean candidate = false;
+			for (int frame=0; frame<6; frame++) {
+				int length = translate(residues, frame, protein);
+				for (int i=0; i<outs.length; i++)
+					if (!indices.get(i).candidates.get(id) && isCandidate(indices.get(i).kmers, protein, length, last)) {
+						indices.get(i).candidates.set(id);
+						in.writeRecord(outs[i]);
+						candidate = true;
+						}
+				}
+			if (!candidate) {
+				in.writeRecord(noChance);
+				dropped++;
+				}
+			}
+		for (int i=0; i<outs.length; i++) outs[i].close();
+		noChance.close();
+		return dropped;
+		}
+
+	//Frames 0-2 are read forward from offsets 0-2, 3-5 on the reverse complement. Codons with other than
+	//ACGT translate as X, so no k-mer spans them.
+	private static int translate (byte[] residues, int frame, byte[] protein) {
+		int n = 0;
+		boolean reverse = frame >= 3;
+		int offset = frame % 3;
+		for (int i=offset; i+2<residues.length; i+=3) {
+			int codon = 0;
+			for (int j=0; j<3; j++) {
+				int b = reverse?bases[residues[residues.length - 1 - i - j] & 0xff]:bases[residues[i + j] & 0xff];
+				if (b > 3) {
+					codon = -1;
+					break;
+					}
+				codon = codon * 4 + (reverse?3 - b:b);
+				}
+			protein[n++] = codon<0?(byte) 'X':(byte) codons.charAt(codon);
+			}
+		return n;
+		}
+	}
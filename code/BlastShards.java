@@ -0,0 +1,171 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/*************************
+BlastShards
+	Runs one of the reportsJ.sh searches as -shards smaller searches of -jobs at a time, rather than as one
+	blastx -cpus=32 over the whole query. The query is split, in order, into shards of roughly equal residue
+	counts, and the command is run by sh on each with {in} replaced by the shard's fasta file and {out} by
+	the file it is to write. The shard outputs (gff or -outfmt 6) are joined, in shard order, into the output
+	file, which is then in the order of the query's sequences, as for a single search. Each shard that
+	succeeds leaves a .done file holding the CRC32 of its fasta file, and is not run again on a restart
+	while its fasta file is the same. Nothing is joined while any shard has failed.
+	Date: October 17, 2026
+	Inputs: The query (notKnown.fa, or notKnown.sp.fa, notKnown.te.fa or notKnown.erv.fa from BlastPrefilter)
+	Outputs: The joined output (notKnown.fa.spwb.gff for example)
+		<dir>/<query>.<shard>.fa, <dir>/<output>.<shard>, its .done file and the command's .log of stderr
+	Usage: java BlastShards [-shards 32] [-jobs 8] [-dir ./shards/] query output "command {in} {out}"
+		e.g. "blastx ./report_run/sprot {in} -gspmax=1 -E 0.00001 -B 1 -V 1 -cpus=4 > {out}.wb &&
+		python ./report_run/wublastx2gff.py {out}.wb > {out}"
+***************************/
+
+
+public class BlastShards {
+	private static class Shard implements Callable<Integer> {
+		private String in;
+		private String out;
+		private CRC32 checksum = new CRC32();//of the shard's fasta file, as it is written
+
+		public Shard (String in, String out) {
+			this.in = in;
+			this.out = out;
+			}
+
+		public Integer call() throws Exception {
+			if (isDone()) return 0;
+			String run = command.replace("{in}", in).replace("{out}", out);
+			ProcessBuilder builder = new ProcessBuilder("sh", "-c", run);
+			builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+			builder.redirectError(new File(out + ".log"));
+			int exit = builder.start().waitFor();
+			if (exit == 0) {
+				BufferedWriter done = new BufferedWriter(new FileWriter(out + ".done"));
+				done.write(getChecksum() + "\n");
+				done.close();
+				}
+			else System.out.println("Shard " + in + " failed with exit code " + exit + ", see " + out + ".log");
+			return exit;
+			}
+
+		private String getChecksum() {return String.format("crc32 %08x", checksum.getValue());}
+
+		private boolean isDone() {// done by an earlier run with the same shard
+			try {
+				if (!new File(out).exists() || !new File(out + ".done").exists()) return false;
+				BufferedReader done = new BufferedReader(new FileReader(out + ".done"));
+				String line = done.readLine();
+				done.close();
+				return getChecksum().equals(line);
+				}
+			catch (IOException ie) {return false;}
+			}
+		}
+
+
+	private static int shards = 32;
+	private static int jobs = 8;
+	private static String dir = "./shards/";
+	private static String query = null;
+	private static String output = null;
+	private static String command = null;
+
+	public static void main (String[] args) {
+		if (!getOptions(args)) {
+			System.out.println("Usage: java BlastShards [-shards 32] [-jobs 8] [-dir ./shards/] query output " +
+				"\"command {in} {out}\"");
+			return;
+			}
+		try {
+			List<Shard> split = split();
+			int skipped = 0;
+			for (Shard shard : split) if (shard.isDone()) skipped++;
+			System.out.println(split.size() + " shards of " + query + ", " + skipped + " already done");
+			if (run(split) == 0) {
+				join(split);
+				System.out.println("Joined the shard outputs into " + output);
+				}
+			else System.exit(1);
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		}
+
+
+	private static boolean getOptions (String[] args) {
+		List<String> rest = new ArrayList<String>();
+		try {
+			for (int i=0; i<args.length; i++)
+				if (args[i].equals("-shards")) shards = Math.max(1, Integer.parseInt(args[++i]));
+				else if (args[i].equals("-jobs")) jobs = Math.max(1, Integer.parseInt(args[++i]));
+				else if (args[i].equals("-dir")) dir = args[++i].endsWith("/")?args[i]:args[i] + "/";
+				else rest.add(args[i]);
+			}
+		catch (NumberFormatException ne) {return false;}
+		catch (ArrayIndexOutOfBoundsException ae) {return false;}
+		if (rest.size() != 3) return false;
+		query = rest.get(0);
+		output = rest.get(1);
+		command = rest.get(2);
+		return true;
+		}
+
+	private static void join (List<Shard> split) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(output));
+		byte[] buffer = new byte[1 << 16];
+		for (Shard shard : split) {
+			InputStream in = new FileInputStream(shard.out);
+			for (int n; (n = in.read(buffer)) > 0;) out.write(buffer, 0, n);
+			in.close();
+			}
+		out.close();
+		}
+
+	private static int run (List<Shard> split) {// returns the number of shards that failed
+		ExecutorService pool = Executors.newFixedThreadPool(jobs);
+		List<Future<Integer>> exits = new ArrayList<Future<Integer>>();
+		for (Shard shard : split) exits.add(pool.submit(shard));
+		int failed = 0;
+		for (int i=0; i<exits.size(); i++)
+			try {if (exits.get(i).get() != 0) failed++;}
+			catch (InterruptedException ie) {failed++;}
+			catch (ExecutionException ee) {
+				System.out.println("Shard " + split.get(i).in + " could not be run: " + ee.getCause());
+				failed++;
+				}
+		pool.shutdown();
+		return failed;
+		}
+
+	//Each record goes to the shard its middle residue falls in, so the shards keep the query's order. Shards
+	//left empty by long records are dropped. The shard files are rewritten on every run, the same for the
+	//same query.
+	private static List<Shard> split() throws IOException {
+		new File(dir).mkdirs();
+		FastaReader in = new FastaReader(query);
+		long total = 0;
+		while (in.nextRecord()) total += in.getLength();
+		String qName = new File(query).getName();
+		String oName = new File(output).getName();
+		List<Shard> split = new ArrayList<Shard>();
+		BufferedWriter out = null;
+		int current = -1;
+		long residues = 0;
+		in.reset();
+		while (in.nextRecord()) {
+			int shard = total == 0?0:(int) Math.min(shards - 1, (residues + in.getLength() / 2) * shards / total);
+			if (shard != current) {
+				if (out != null) out.close();
+				Shard next = new Shard(dir + qName + "." + shard + ".fa", dir + oName + "." + shard);
+				split.add(next);
+				out = new BufferedWriter(new OutputStreamWriter(new CheckedOutputStream(new FileOutputStream(next.in), 
+					next.checksum), java.nio.charset.StandardCharsets.ISO_8859_1));
+				current = shard;
+				}
+			in.writeRecord(out);
+			residues += in.getLength();
+			}
+		if (out != null) out.close();
+		return split;
+		}
+	}
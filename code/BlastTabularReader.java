@@ -0,0 +1,114 @@
+import java.io.*;
+
+/*************************
+BlastTabularReader
+	Steps through the hits of a BLAST -outfmt 6 file (qseqid sseqid pident length mismatch gapopen qstart
+	qend sstart send evalue bitscore) that has been memory-mapped, parsing the fields in place. A compressed
+	file is streamed through InputFile a line at a time instead, as it cannot be mapped. Query
+	coordinates are given start <= end, as the awk rewrite to wublastx2gff's layout did, and subjects are
+	named "sp|" + sseqid, as in the Target of that gff.
+	Date: October 17, 2026
+	Inputs: notKnown.fa.spwb.ncbi, notKnown.fa.tewb.ncbi, notKnown.fa.ervwb.ncbi (from reportsJ_NCBI.sh)
+	Usage: BlastTabularReader reader = new BlastTabularReader(file);
+		while (reader.nextHit()) {reader.getQuery(); reader.getSubject(); reader.getQueryStart();}
+***************************/
+
+
+public class BlastTabularReader {
+	private static final int FIELDS = 12;
+	private MappedFile file;
+	private BufferedReader reader;//a compressed file, in place of file
+	private String line;//the line read from reader
+	private long position = 0;
+	private long[] fields = new long[FIELDS + 1];//the start of each field, and the end of the line
+	private int queryStart;
+	private int queryEnd;
+
+	public BlastTabularReader (String file) throws IOException {
+		if (InputFile.isGzip(file)) reader = InputFile.getReader(file);
+		else this.file = new MappedFile(file);
+		}
+
+	public void close() throws IOException {if (reader != null) reader.close();}
+
+	//The gff file, or the -outfmt 6 file that reportsJ_NCBI.sh writes in its place (.ncbi for .gff)
+	public static String getHitFile (String gffFile) {
+		if (InputFile.exists(gffFile) || !gffFile.endsWith(".gff")) return gffFile;
+		String ncbiFile = gffFile.substring(0, gffFile.length() - 4) + ".ncbi";
+		return InputFile.exists(ncbiFile)?ncbiFile:gffFile;
+		}
+
+	public String getQuery() {return getField(0);}
+
+	public int getQueryEnd() {return queryEnd;}
+
+	public int getQueryStart() {return queryStart;}
+
+	public String getSubject() {return "sp|" + getField(1);}
+
+	public static boolean isTabular (String file) {// a first line of 12 tab separated fields, unlike a gff's 9
+		try {
+			BufferedReader in = InputFile.getReader(file);
+			String line = in.readLine();
+			in.close();
+			return line != null && line.split("\t").length == FIELDS;
+			}
+		catch (IOException ie) {return false;}
+		}
+
+	public boolean nextHit() {// skips blank, comment and unparsable lines, and those with too few fields
+		while (nextLine()) {
+			long lineStart = position;
+			long end = reader != null?line.length():file.lineEnd(position, file.nextLine(position));
+			if (reader == null) position = file.nextLine(position);
+			int n = 0;
+			fields[n++] = lineStart;
+			for (long pos=lineStart; pos<end && n<=FIELDS; pos++) 
+				if (byteAt(pos) == '\t') fields[n++] = pos + 1;
+			if (n >= FIELDS && byteAt(lineStart) != '#') {
+				if (n == FIELDS) fields[n] = end + 1;
+				try {
+					int start = getInt(6);
+					int stop = getInt(7);
+					queryStart = Math.min(start, stop);
+					queryEnd = Math.max(start, stop);
+					return true;
+					}
+				catch (NumberFormatException ne) {System.out.println("Could not parse: " + getString(lineStart, end));}
+				}
+			}
+		return false;
+		}
+
+	private byte byteAt (long pos) {return reader != null?(byte) line.charAt((int) pos):file.byteAt(pos);}
+
+	private String getField (int field) {return getString(fields[field], fields[field + 1] - 1);}
+
+	private int getInt (int field) {
+		if (fields[field + 1] - 1 <= fields[field]) throw new NumberFormatException("Empty field " + field);
+		int value = 0;
+		for (long pos=fields[field]; pos<fields[field + 1] - 1; pos++) {
+			byte b = byteAt(pos);
+			if (b < '0' || b > '9') throw new NumberFormatException(getField(field));
+			value = value * 10 + (b - '0');
+			}
+		return value;
+		}
+
+	private String getString (long start, long end) {
+		return reader != null?line.substring((int) start, (int) end):file.getString(start, end);
+		}
+
+	private boolean nextLine() {// false at the end of the file; a mapped file's line starts at position
+		if (reader == null) return position < file.getSize();
+		try {
+			line = reader.readLine();
+			position = 0;
+			return line != null;
+			}
+		catch (IOException ie) {
+			ie.printStackTrace();
+			return false;
+			}
+		}
+	}
@@ -0,0 +1,217 @@
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*************************
+ClassificationService
+	Keeps the libraries of the classification stages loaded in one long running JVM, and answers batched
+	requests from this machine over HTTP, so that a curator reworking a few families does not pay for JVM
+	startup and a cold load of the libraries on each run. Loaded once: the RepBase index (see RBClassifier),
+	the lengths of the Vertebrate_use.fa and our_known_reps libraries (as ClassifyConsensusSequences) and the
+	retro annotation indexes (see RetroAnnotations). Each request is a POST of lines and is answered by lines
+	in the same order, with the decisions the stages themselves would make. The service listens on the
+	loopback address only, and serves requests on the given number of threads.
+	Date: October 17, 2026
+	Inputs: As ClassifyConsensusSequences and GenerateAnnotatedLibrary, in the working directory
+	Requests: POST /classify, target names one per line: name TAB RepBase classification
+		POST /map, a ">family length" line for each family, then CENSOR map lines (RepeatMasker .out lines
+			with ?rm=true): the check.txt line of each mapping TAB known or partial
+		POST /annotate?sine=0.9&rest=0.9, a ">family length [known]" line for each family (known when it is
+			in known.txt), each followed by its hits as "target start end" lines: the family's library header
+		GET /status: the library sequences loaded and the requests served
+		POST /stop: stops the service
+	Usage: java ClassificationService [-port 8642] [threads]
+	Example: curl --data-binary @families.txt 'http://localhost:8642/annotate?sine=0.8'
+***************************/
+
+
+public class ClassificationService {
+	private abstract static class Handler implements HttpHandler {// answers the lines of a request
+		public void handle (HttpExchange exchange) throws IOException {
+			long start = System.nanoTime();
+			int status = 200;
+			String answer;
+			try {
+				BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(),
+					StandardCharsets.ISO_8859_1));
+				answer = answer(in, getParameters(exchange.getRequestURI()));
+				in.close();
+				}
+			catch (RuntimeException re) {
+				status = 400;
+				answer = "Could not answer: " + re + "\n";
+				}
+			byte[] bytes = answer.getBytes(StandardCharsets.ISO_8859_1);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=ISO-8859-1");
+			exchange.sendResponseHeaders(status, bytes.length == 0?-1:bytes.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(bytes);
+			out.close();
+			requests.incrementAndGet();
+			System.out.println(exchange.getRequestURI() + " answered " + status + " in " +
+				(System.nanoTime() - start) / 1000000 + " ms");
+			}
+
+		protected abstract String answer (BufferedReader in, Map<String, String> parameters) throws IOException;
+		}
+
+
+	private static int port = 8642;
+	private static int threads = 4;
+	private static RBClassifier classifier;
+	private static NameDictionary libNames = new NameDictionary();
+	private static IntList libLengths;
+	private static RetroAnnotations retroAnno;
+	private static double minCoverage = .9;//the default sine and rest coverage limits
+	private static AtomicLong requests = new AtomicLong();
+
+	public static void main (String[] args) {
+		setOptions(args);
+		load();
+		Metrics.write();
+		try {
+			final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+			final ExecutorService pool = Executors.newFixedThreadPool(threads);
+			server.setExecutor(pool);
+			server.createContext("/classify", new Handler() {
+				protected String answer (BufferedReader in, Map<String, String> parameters) throws IOException {
+					return classify(in);
+					}
+				});
+			server.createContext("/map", new Handler() {
+				protected String answer (BufferedReader in, Map<String, String> parameters) throws IOException {
+					return map(in, "true".equals(parameters.get("rm")));
+					}
+				});
+			server.createContext("/annotate", new Handler() {
+				protected String answer (BufferedReader in, Map<String, String> parameters) throws IOException {
+					return annotate(in, getCoverage(parameters, "sine"), getCoverage(parameters, "rest"));
+					}
+				});
+			server.createContext("/status", new Handler() {
+				protected String answer (BufferedReader in, Map<String, String> parameters) {
+					return libLengths.keySet().cardinality() + " library sequence lengths, " + retroAnno.size() +
+						" retro accessions, " + requests.get() + " requests served\n";
+					}
+				});
+			server.createContext("/stop", new Handler() {
+				protected String answer (BufferedReader in, Map<String, String> parameters) {
+					new Thread() {
+						public void run() {
+							server.stop(1);
+							pool.shutdown();
+							}
+						}.start();
+					return "Stopping\n";
+					}
+				});
+			server.start();
+			System.out.println("Listening on http://" + server.getAddress().getHostString() + ":" +
+				server.getAddress().getPort() + "/ with " + threads + " threads");
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		}
+
+
+	//Each family annotated and classified as by GenerateAnnotatedLibrary, from the hits given for it
+	static String annotate (BufferedReader in, double sineMinCoverage, double restMinCoverage) throws IOException {
+		NameDictionary names = new NameDictionary();
+		NameDictionary targets = new NameDictionary();
+		BitSet irs = new BitSet();
+		List<GenerateAnnotatedLibrary.CS> families = new ArrayList<GenerateAnnotatedLibrary.CS>();
+		StringBuilder out = new StringBuilder();
+		GenerateAnnotatedLibrary.CS cs = null;
+		String line = null;
+		while ((line = in.readLine()) != null) {
+			String[] fields = line.trim().split("\\s+");
+			try {
+				if (line.startsWith(">") && fields.length >= 2) {
+					String name = fields[0].substring(1);
+					int id = names.add(name);
+					families.add(cs = new GenerateAnnotatedLibrary.CS(id, name, Integer.parseInt(fields[1])));
+					if (fields.length > 2 && fields[2].equals("known")) irs.set(id);
+					}
+				else if (cs != null && fields.length == 3)
+					cs.addHit(targets.add(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+				else if (line.trim().length() > 0) out.append("Could not parse: " + line + "\n");
+				}
+			catch (NumberFormatException ne) {out.append("Could not parse: " + line + "\n");}
+			}
+		RBClassifier requestClassifier = new RBClassifier(classifier, targets);
+		for (GenerateAnnotatedLibrary.CS family : families) {
+			family.annotateAndClassify(targets, retroAnno, irs, requestClassifier);
+			out.append(family.getFastaHeader(sineMinCoverage, restMinCoverage));
+			}
+		return out.toString();
+		}
+
+	static String classify (BufferedReader in) throws IOException {
+		StringBuilder out = new StringBuilder();
+		String line = null;
+		while ((line = in.readLine()) != null) {
+			String name = line.trim();
+			if (name.length() > 0) out.append(name + "\t" + classifier.classify(name) + "\n");
+			}
+		return out.toString();
+		}
+
+	static void load() {// the libraries, from the directories the stages are given
+		classifier = new RBClassifier(new NameDictionary());
+		libNames = new NameDictionary();
+		libLengths = ClassifyConsensusSequences.getLibraryLengths(libNames);
+		retroAnno = GenerateAnnotatedLibrary.loadRetroAnnotations();
+		}
+
+	//Each mapping's line of check.txt and whether it makes its family known, as ClassifyConsensusSequences
+	static String map (BufferedReader in, boolean repeatMasker) throws IOException {
+		NameDictionary names = new NameDictionary();
+		IntList lengths = new IntList(-1);
+		StringBuilder out = new StringBuilder();
+		String line = null;
+		while ((line = in.readLine()) != null)
+			if (line.startsWith(">")) {
+				String[] fields = line.substring(1).trim().split("\\s+");
+				try {lengths.set(names.add(fields[0]), Integer.parseInt(fields[1]));}
+				catch (RuntimeException re) {out.append("Could not parse: " + line + "\n");}
+				}
+			else {
+				StringBuilder check = new StringBuilder();
+				StringBuilder log = new StringBuilder();
+				ClassifyConsensusSequences.Mapping mapping = ClassifyConsensusSequences.processMapping(names, lengths,
+					libNames, libLengths, line, repeatMasker, check, null, log);
+				if (mapping != null && mapping.hasLengths())
+					out.append(check.toString().trim() + "\t" + (mapping.isKnown()?"known":"partial") + "\n");
+				else out.append(log);
+				}
+		return out.toString();
+		}
+
+
+	private static double getCoverage (Map<String, String> parameters, String name) {
+		String value = parameters.get(name);
+		return value == null?minCoverage:Double.parseDouble(value);
+		}
+
+	private static Map<String, String> getParameters (URI uri) {
+		Map<String, String> parameters = new HashMap<String, String>();
+		if (uri.getQuery() != null)
+			for (String parameter : uri.getQuery().split("&")) {
+				int equals = parameter.indexOf("=");
+				if (equals > 0) parameters.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+				}
+		return parameters;
+		}
+
+	private static void setOptions (String[] args) {
+		for (int i=0; i<args.length; i++)
+			try {
+				if (args[i].equals("-port") && i + 1 < args.length) port = Integer.parseInt(args[++i]);
+				else threads = Math.max(1, Integer.parseInt(args[i]));
+				}
+			catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[i]);}
+		}
+	}
@@ -1,5 +1,6 @@
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /*************************
 ClassifyConsensusSequences 
@@ -8,19 +9,89 @@ ClassifyConsensusSequences
 	Data: September 4, 2014
 	Updated: September 5, 2014 To include our_known_reps_20130520.fasta library
 	Updated:September 9, 2014 To print the notKnown.fa.gff file
+	Updated: October 17, 2026 To read the fasta files through FastaReader
+	Updated: October 17, 2026 To classify the map file in parallel chunks when given a number of threads
+	Updated: October 17, 2026 To key lengths and mappings on NameDictionary IDs rather than names
+	Updated: October 17, 2026 To read a RepeatMasker .out file when there is no CENSOR map file
+	Updated: October 17, 2026 To time each step through Metrics
+	Updated: October 17, 2026 To add -external, which sorts the partial mappings by family into spill files
+		of -runSize mappings rather than holding them all, and writes partial.txt as they are merged
+	Updated: October 17, 2026 To read ConsensusSequences.fa.map.hits (see HitStore) in place of the map file
+	Updated: October 17, 2026 To share the library lengths and mapping decisions with ClassificationService
 	Inputs: The consensus sequences (fasta format)
 		The repbase mam library (fasta format)
 		The our_known_reps library (fasta format)
-		The map file from the censor run
+		The map file from the censor run, or ConsensusSequences.fa.out from a RepeatMasker run
+		(or its HitStore, ConsensusSequences.fa.map.hits, when that is as new)
 	Outputs: check.txt (for checking individual sequence mappings)
 		known.txt (list of "identified" sequences with name of the library sequence they match)
 		partial.txt (list of partially matched sequences with a name list of the library sequences they match)
 		notKnown.fa (fasta file of the not known sequences, including seqs with hits to CENSOR or not) 
 		notKnown.fa.gff (only include family names have hit(s) with CENSOR) 		
+	Usage: java ClassifyConsensusSequences [-external [-runSize 4194304]] [-chunkSize 4194304] [threads]
+		(-chunkSize is the bytes of the map file each thread classifies at a time)
 ***************************/
 
 
 public class ClassifyConsensusSequences {
+	static class Mapping {
+		private int bt;
+		private String lib;
+		private int start;
+		private int end;
+		private boolean hasLengths = false;
+		private boolean known = false;
+
+		boolean hasLengths() {return hasLengths;}
+
+		boolean isKnown() {return known;}
+		}
+
+
+	private static class MapChunk extends RecursiveAction {// a line aligned part of the map file
+		private static final long serialVersionUID = 1L;
+		private MappedFile in;
+		private long start;
+		private long end;
+		private NameDictionary names;
+		private IntList btL;
+		private NameDictionary libNames;
+		private IntList libL;
+		private StringBuilder check;
+		private StringBuilder gff;
+		private boolean repeatMasker;
+		private StringBuilder log = new StringBuilder();
+		private List<Mapping> mappings = new ArrayList<Mapping>();
+
+		public MapChunk (MappedFile in, long start, long end, NameDictionary names, IntList btL, 
+			NameDictionary libNames, IntList libL, boolean repeatMasker, boolean check, boolean gff) {
+			this.in = in;
+			this.start = start;
+			this.end = end;
+			this.names = names;
+			this.btL = btL;
+			this.libNames = libNames;
+			this.libL = libL;
+			this.repeatMasker = repeatMasker;
+			this.check = check?new StringBuilder():null;
+			this.gff = gff?new StringBuilder():null;
+			}
+
+		protected void compute() {
+			for (long pos=start; pos<end;) {
+				long next = in.nextLine(pos);
+				mappings.add(processMapping(names, btL, libNames, libL, in.getString(pos, in.lineEnd(pos, next)), 
+					repeatMasker, check, gff, log));
+				pos = next;
+				}
+			}
+		}
+
+
+	private static int chunkSize = 1 << 22;//bytes of the map file per chunk on threads
+	private static int threads = 1;
+	private static boolean external = false;
+	private static int runSize = 1 << 22;//partial mappings per spill file with -external
 	private static String lFile = "./Vertebrate_use.fa";
 	private static String bDir = "./";
 	private static String dDir = bDir + "results_classify/";
@@ -34,148 +105,351 @@ public class ClassifyConsensusSequences {
 	private static String gff = dDir + "notKnown.fa.gff";
 
 	public static void main (String[] args) {
-		Hashtable<String, Integer> cLengths = getLengths(cFile);
-		String[] libs = {lFile, olFile};
-		Hashtable<String, Integer> libLengths = getLibraryLengths(libs);
-		Set<String> knowns = classify (map, cLengths, libLengths, known, partial, check, gff);
-		printNotKnownSequences (cFile, knowns, notKnown);
+		setThreads(getOptions(args));
+		try {
+			FastaReader consensus = new FastaReader(cFile);
+			NameDictionary names = new NameDictionary();
+			BitSet knowns = classify (names, getLengths(consensus, names), null, null, true);
+			printNotKnownSequences (consensus, names, knowns);
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		Metrics.write();
+		}
+
+
+	//Used by AnnotationPipeline, hits collects the CENSOR hits of every family for GenerateAnnotatedLibrary
+	//with their targets in the targets dictionary. Returns the IDs of the known families.
+	static BitSet classify (NameDictionary names, IntList cLengths, NameDictionary targets, HitTable hits,
+		boolean writeFiles) {
+		NameDictionary libNames = new NameDictionary();
+		IntList libLengths = getLibraryLengths(libNames);
+		IntList kMaps = null;
+		if (writeFiles) 
+			kMaps = classify (map, names, cLengths, libNames, libLengths, targets, hits, known, partial, check, gff);
+		else kMaps = classify (map, names, cLengths, libNames, libLengths, targets, hits, null, null, null, null);
+		return kMaps.keySet();
+		}
+
+	static IntList getLibraryLengths (NameDictionary libNames) {// of the mam and our_known_reps libraries
+		return getLibraryLengths(new String[] {lFile, olFile}, libNames);
 		}
 
+	static IntList getLengths (FastaReader in, NameDictionary names) {
+		Metrics.Step step = Metrics.start("ClassifyConsensusSequences", "length loading");
+		IntList lengths = new IntList(-1);
+		int n = 0;
+		in.reset();
+		while (in.nextRecord()) {
+			lengths.set(names.add(in.getId()), in.getLength());
+			if (in.getLength() > 0) n++;
+			}
+		System.out.println("There are " + n + " sequence lengths");
+		step.end(n, in.getSize(), 0);
+		return lengths;
+		}
 
-	private static Set<String> classify (String mapFile, Hashtable<String, Integer> btL, 
-		Hashtable<String, Integer> libL, String kOutFile, String pOutFile, String cOutFile, String gffFile) {
-		Hashtable<String, String> kMaps = new Hashtable<String, String>();
-		Hashtable<String, String> pMaps = new Hashtable<String, String>();
+	static void printNotKnownSequences(FastaReader in, NameDictionary names, BitSet knowns) {
+		Metrics.Step step = Metrics.start("ClassifyConsensusSequences", "writing notKnown.fa");
+		int n = 0;
+		try {
+			BufferedWriter out = new BufferedWriter(new FileWriter(notKnown));
+			in.reset();
+			while (in.nextRecord()) 
+				if (!knowns.get(names.get(in.getId()))) {
+					in.writeRecord(out);
+					n++;
+					}
+			out.close();
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		step.end(n, in.getSize(), Metrics.getSize(notKnown));
+		}
+
+	//Reads and writes the files in dir rather than the working directory, as for the benchmarks and tests
+	static void setDirectory (String dir) {
+		lFile = dir + "Vertebrate_use.fa";
+		olFile = dir + "our_known_reps_20130520.fasta";
+		bDir = dir;
+		dDir = bDir + "results_classify/";
+		cFile = bDir + "ConsensusSequences.fa";
+		map = bDir + "ConsensusSequences.fa.map";
+		known = dDir + "known.txt";
+		partial = dDir + "partial.txt";
+		check = dDir + "check.txt";
+		notKnown = dDir + "notKnown.fa";
+		gff = dDir + "notKnown.fa.gff";
+		}
+
+	static void setChunkSize (int bytes) {chunkSize = Math.max(1, bytes);}
+
+	static void setThreads (int n) {threads = Math.max(1, n);}
+
+	//Only called from one thread; the chunks only read names and libNames, and never see targets
+	private static void addMapping (IntList kMaps, IntMultiMap pMaps, NameDictionary libNames, 
+		NameDictionary targets, HitTable hits, Mapping mapping) {
+		if (mapping == null) return;
+		if (hits != null && mapping.bt >= 0) hits.add(mapping.bt, targets.add(mapping.lib), mapping.start, 
+			mapping.end);
+		if (!mapping.hasLengths) return;
+		if (mapping.known) kMaps.set(mapping.bt, libNames.get(mapping.lib)); 
+		else pMaps.add(mapping.bt, libNames.get(mapping.lib));
+		}
+
+	private static IntList classify (String mapFile, NameDictionary names, IntList btL, NameDictionary libNames,
+		IntList libL, NameDictionary targets, HitTable hits, String kOutFile, String pOutFile, String cOutFile, 
+		String gffFile) {
+		IntList kMaps = new IntList(-1);
+		HitSorter sorted = external?new HitSorter(runSize, null):null;
+		IntMultiMap pMaps = sorted != null?sorted:new IntMultiMap();
 		String line = null;
+		mapFile = RepeatMaskerOut.getMapFile(mapFile);
+		boolean repeatMasker = RepeatMaskerOut.isRepeatMasker(mapFile);
+		String storeFile = HitStore.getStoreFile(mapFile);
+		Metrics.Step step = Metrics.start("ClassifyConsensusSequences", storeFile == null?"map parsing":"map store");
+		long lines = 0;
 		try {
-			BufferedWriter cOut = new BufferedWriter(new FileWriter(cOutFile));
-			BufferedWriter gOut = new BufferedWriter(new FileWriter(gffFile));
-			BufferedReader in = new BufferedReader(new FileReader(map));
-			while ((line = in.readLine()) != null) processMapping(btL, libL, kMaps, pMaps, line, cOut, gOut);
-			in.close();
-			cOut.close();
-			gOut.close();
+			BufferedWriter cOut = cOutFile == null?null:new BufferedWriter(new FileWriter(cOutFile));
+			BufferedWriter gOut = gffFile == null?null:new BufferedWriter(new FileWriter(gffFile));
+			if (storeFile != null) 
+				lines = classify(new HitStore(storeFile), names, btL, libNames, libL, kMaps, pMaps, targets, hits, 
+					cOut, gOut);
+			else if (threads > 1 && !InputFile.isGzip(mapFile))//a compressed map cannot be mapped, so is streamed
+				lines = classifyChunks(mapFile, repeatMasker, names, btL, libNames, libL, kMaps, pMaps, targets, hits, 
+					cOut, gOut);
+			else {
+				BufferedReader in = InputFile.getReader(mapFile);
+				while ((line = in.readLine()) != null) {
+					addMapping(kMaps, pMaps, libNames, targets, hits, processMapping(names, btL, libNames, libL, line, 
+						repeatMasker, cOut, gOut, System.out));
+					lines++;
+					}
+				in.close();
+				}
+			if (cOut != null) cOut.close();
+			if (gOut != null) gOut.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
-		System.out.println("" + kMaps.size() + " consensus families have known mapping");
-		printMappings(kMaps, kOutFile);
+		step.end(lines, Metrics.getSize(storeFile == null?mapFile:storeFile), (cOutFile == null?0:Metrics.getSize(cOutFile)) + 
+			(gffFile == null?0:Metrics.getSize(gffFile)));
+		System.out.println("" + kMaps.keySet().cardinality() + " consensus families have known mapping");
+		if (kOutFile != null) printMappings(kMaps, names, libNames, kOutFile);
 		System.out.println("" + pMaps.size() + " consensus families have partial mappings");
-		printMappings(pMaps, pOutFile);
-		return kMaps.keySet();
+		if (sorted != null) {
+			if (pOutFile != null) printMappings(sorted, names, libNames, pOutFile);
+			sorted.close();
+			}
+		else if (pOutFile != null) printMappings(pMaps, names, libNames, pOutFile);
+		return kMaps;
 		}
 
-	private static Hashtable<String, Integer> getLengths (String file) {
-		Hashtable<String, Integer> lengths = new Hashtable<String, Integer>();
-		try {
-			BufferedReader in = new BufferedReader(new FileReader(file));
-			int count = 0;
-			String line = null;
-			String id = null;
-			StringTokenizer st = null;
-			while ((line = in.readLine()) != null) 
-				if (line.length() > 0)
-					if (line.charAt(0) == '>') {
-						if (count > 0) {
-							lengths.put(id, new Integer(count));
-							count = 0;
-							}
-						st = new StringTokenizer(line);
-						id = st.nextToken().substring(1);
-						}
-					else count += line.length();
-			lengths.put(id, new Integer(count));
-			in.close();
+	//The rows of the store are in the order of the map file's lines, and need no parsing
+	private static long classify (HitStore store, NameDictionary names, IntList btL, NameDictionary libNames, 
+		IntList libL, IntList kMaps, IntMultiMap pMaps, NameDictionary targets, HitTable hits, BufferedWriter cOut, 
+		BufferedWriter gOut) {
+		int[] bts = new int[store.getQueries()];
+		for (int q=0; q<bts.length; q++) bts[q] = names.get(store.getQueryName(q));
+		for (int row=0; row<store.getRows(); row++) {
+			int q = store.getQuery(row);
+			addMapping(kMaps, pMaps, libNames, targets, hits, processMapping(bts[q], store.getQueryName(q), 
+				store.getStart(row), store.getEnd(row), store.getTargetName(store.getTarget(row)), 
+				store.getLibStart(row), store.getLibEnd(row), store.getStrand(row), store.getScore(row), null, btL, 
+				libNames, libL, cOut, gOut, System.out));
 			}
+		return store.getRows();
+		}
+
+	private static long classifyChunks (String mapFile, boolean repeatMasker, NameDictionary names, 
+		IntList btL, NameDictionary libNames, IntList libL, IntList kMaps, IntMultiMap pMaps, NameDictionary targets, 
+		HitTable hits, BufferedWriter cOut, BufferedWriter gOut) throws IOException {
+		MappedFile in = new MappedFile(mapFile);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		LinkedList<MapChunk> chunks = new LinkedList<MapChunk>();
+		long start = 0;
+		long lines = 0;
+		while (start < in.getSize() || chunks.size() > 0) {
+			while (start < in.getSize() && chunks.size() < threads * 4) {
+				long end = start + chunkSize < in.getSize()?in.nextLine(start + chunkSize):in.getSize();
+				MapChunk chunk = new MapChunk(in, start, end, names, btL, libNames, libL, repeatMasker, cOut != null, 
+					gOut != null);
+				pool.execute(chunk);
+				chunks.add(chunk);
+				start = end;
+				}
+			//merge in file order, so the outputs are those of a sequential run
+			MapChunk chunk = chunks.removeFirst();
+			chunk.join();
+			if (cOut != null) cOut.append(chunk.check);
+			if (gOut != null) gOut.append(chunk.gff);
+			System.out.print(chunk.log);
+			lines += chunk.mappings.size();
+			for (Iterator<Mapping> iter=chunk.mappings.iterator(); iter.hasNext();) 
+				addMapping(kMaps, pMaps, libNames, targets, hits, iter.next());
+			}
+		pool.shutdown();
+		return lines;
+		}
+
+	private static String[] getOptions (String[] args) {
+		List<String> rest = new ArrayList<String>();
+		for (int i=0; i<args.length; i++)
+			if (args[i].equals("-external")) external = true;
+			else if (args[i].equals("-runSize") && i + 1 < args.length) 
+				try {runSize = Integer.parseInt(args[++i]);}
+				catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[i]);}
+			else if (args[i].equals("-chunkSize") && i + 1 < args.length) 
+				try {setChunkSize(Integer.parseInt(args[++i]));}
+				catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[i]);}
+			else rest.add(args[i]);
+		return rest.toArray(new String[rest.size()]);
+		}
+
+	private static IntList getLengths (String file, NameDictionary names) {
+		try {return getLengths(new FastaReader(file), names);}
 		catch (IOException ie) {ie.printStackTrace();}
-		System.out.println("There are " + lengths.size() + " sequence lengths");
-		return lengths;
+		return new IntList(-1);
 		}
 
-	private static Hashtable<String, Integer> getLibraryLengths (String[] libs) {
-		Hashtable<String, Integer> lengths = new Hashtable<String, Integer>();
+	private static IntList getLibraryLengths (String[] libs, NameDictionary libNames) {
+		Metrics.Step step = Metrics.start("ClassifyConsensusSequences", "library length loading");
+		IntList lengths = new IntList(-1);
 		for (int i=0; i<libs.length; i++) {
-			Hashtable<String, Integer> fileLengths = getLengths(libs[i]);
-			for (Enumeration<String> keys=fileLengths.keys(); keys.hasMoreElements();) {
-				String key = keys.nextElement();
-				lengths.put(key, fileLengths.get(key));
-				}
+			IntList fileLengths = getLengths(libs[i], libNames);
+			for (int id=0; id<fileLengths.size(); id++) 
+				if (fileLengths.get(id) > 0) lengths.set(id, fileLengths.get(id));
 			}
-		System.out.println("There are " + lengths.size() + " library sequence lengths");
+		System.out.println("There are " + lengths.keySet().cardinality() + " library sequence lengths");
+		step.end(lengths.keySet().cardinality(), Metrics.getSize(libs[0]) + Metrics.getSize(libs[1]), 0);
 		return lengths;
 		}
 		
-	private static void printMappings (Hashtable<String, String> map, String outFile) {
+	//The fields of a map line in the CENSOR order, or null for the header and blank lines of a .out file
+	static String[] getMapFields (String line, boolean repeatMasker) {
+		if (repeatMasker) return RepeatMaskerOut.getMapFields(line);
+		StringTokenizer st = new StringTokenizer(line);
+		String[] fields = new String[st.countTokens()];
+		for (int i=0; i<fields.length; i++) fields[i] = st.nextToken();
+		return fields;
+		}
+
+	private static void printMappings (IntList map, NameDictionary names, NameDictionary libNames, 
+		String outFile) {
+		Metrics.Step step = Metrics.start("ClassifyConsensusSequences", "writing " + new File(outFile).getName());
 		try {
 			BufferedWriter out = new BufferedWriter(new FileWriter(outFile));
 			out.write("Sequence MappedTo\n");
-			String key = null;
-			for (Enumeration<String> e= map.keys(); e.hasMoreElements();) {
-				key = e.nextElement();
-				out.write(key + " " + map.get(key) + "\n");
-				}
+			for (int id=0; id<map.size(); id++) 
+				if (map.get(id) >= 0) out.write(names.getName(id) + " " + libNames.getName(map.get(id)) + "\n");
 			out.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
+		step.end(map.keySet().cardinality(), 0, Metrics.getSize(outFile));
 		}
 
+	private static void printMappings (IntMultiMap map, NameDictionary names, NameDictionary libNames, 
+		String outFile) {
+		Metrics.Step step = Metrics.start("ClassifyConsensusSequences", "writing " + new File(outFile).getName());
+		try {
+			BufferedWriter out = new BufferedWriter(new FileWriter(outFile));
+			out.write("Sequence MappedTo\n");
+			for (int id=0; id<=map.maxKey(); id++) 
+				if (map.containsKey(id)) out.write(names.getName(id) + " " + map.join(id, libNames, ":") + "\n");
+			out.close();
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		step.end(map.size(), 0, Metrics.getSize(outFile));
+		}
 
-	private static void printNotKnownSequences(String seqFile, Set<String> notWanted, String outFile) {
+	private static void printMappings (HitSorter map, NameDictionary names, NameDictionary libNames, 
+		String outFile) {// as they are merged from the spill files, in family order
+		Metrics.Step step = Metrics.start("ClassifyConsensusSequences", "writing " + new File(outFile).getName());
 		try {
 			BufferedWriter out = new BufferedWriter(new FileWriter(outFile));
-			BufferedReader in = new BufferedReader(new FileReader(seqFile));
-			boolean wanted = false;
-			String line = null;
-			while ((line = in.readLine()) != null) {
-				if (line.charAt(0) == '>') wanted = !notWanted.contains(line.substring(1).split(" ")[0]);
-				if (wanted) out.write(line + "\n");
+			out.write("Sequence MappedTo\n");
+			int family = -1;
+			while (map.next()) {
+				if (map.getQuery() != family) {
+					if (family >= 0) out.write("\n");
+					family = map.getQuery();
+					out.write(names.getName(family) + " " + libNames.getName(map.getTarget()));
+					}
+				else out.write(":" + libNames.getName(map.getTarget()));
 				}
-			in.close();
+			if (family >= 0) out.write("\n");
 			out.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
+		step.end(map.size(), 0, Metrics.getSize(outFile));
 		}
 						
-	private static void processMapping (Hashtable<String, Integer> btL, Hashtable<String, Integer> libL,
-		Hashtable<String, String> kMaps, Hashtable<String, String> pMaps, String line, BufferedWriter cOut,
-		BufferedWriter gOut) {
-		StringTokenizer st = new StringTokenizer(line);
-		String bt = st.nextToken();
+	static Mapping processMapping (NameDictionary names, IntList btL, NameDictionary libNames, 
+		IntList libL, String line, Appendable cOut, Appendable gOut, Appendable log) {
+		return processMapping(names, btL, libNames, libL, line, false, cOut, gOut, log);
+		}
+
+	//The line is of a RepeatMasker .out file rather than a CENSOR map file when repeatMasker is set
+	static Mapping processMapping (NameDictionary names, IntList btL, NameDictionary libNames, 
+		IntList libL, String line, boolean repeatMasker, Appendable cOut, Appendable gOut, Appendable log) {
+		String[] fields = getMapFields(line, repeatMasker);
+		if (fields == null) return null;
 		try {
-			int bStart = Integer.parseInt(st.nextToken());
-			int bEnd = Integer.parseInt(st.nextToken());
-			String lib = st.nextToken();
-			int lStart = Integer.parseInt(st.nextToken());
-			int lEnd = Integer.parseInt(st.nextToken());
-			int bl = 0;
-			if (btL.containsKey(bt)) bl = btL.get(bt).intValue();
-			else System.out.println("Length of " + bt + " could not be found");
-			int ll = 0;
-			if (libL.containsKey(lib)) ll = libL.get(lib).intValue();
-			else System.out.println("Length of " + lib + " could not be found");
+			String bt = fields[0];
+			return processMapping(names.get(bt), bt, Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), 
+				fields[3], Integer.parseInt(fields[4]), Integer.parseInt(fields[5]), 
+				fields.length > 9?fields[6].charAt(0):0, fields.length > 9?fields[9]:null, line, btL, libNames, libL, 
+				cOut, gOut, log);
+			}
+		catch (NumberFormatException ne) {
+			try {log.append("Could not parse: " + line + "\n");}
+			catch (IOException ie) {ie.printStackTrace();}
+			} 
+		catch (ArrayIndexOutOfBoundsException ae) {
+			try {log.append("Could not parse: " + line + "\n");}
+			catch (IOException ie) {ie.printStackTrace();}
+			} 
+		return null;
+		}
+
+	//A parsed map line, from the text or a HitStore. Without a score the line could not be written to the gff.
+	private static Mapping processMapping (int btId, String bt, int bStart, int bEnd, String lib, int lStart, 
+		int lEnd, char strandCode, String score, String line, IntList btL, NameDictionary libNames, IntList libL, 
+		Appendable cOut, Appendable gOut, Appendable log) {
+		Mapping mapping = new Mapping();
+		mapping.bt = btId;
+		mapping.start = bStart;
+		mapping.end = bEnd;
+		mapping.lib = lib;
+		try {
+			int bl = btL.get(mapping.bt);
+			if (bl <= 0) log.append("Length of " + bt + " could not be found\n");
+			int ll = libL.get(libNames.get(lib));
+			if (ll <= 0) log.append("Length of " + lib + " could not be found\n");
 			if (bl > 0 && ll > 0) {
 				int bpc = Math.round (100f * (bEnd - bStart + 1) / bl);
 				int lspc = Math.round (100f * lStart / ll);
 				int lepc = Math.round (100f * lEnd / ll);
-				cOut.write(bt + " " + bStart + " " + bEnd + " (" + bpc + ") " + lib + " "  + lStart + " " + lEnd +
-					" (" + lspc + "," + lepc + ")\n");
-				if (bpc >= 85 && lspc <= 5 && lepc >= 95) kMaps.put(bt, lib); 
-				else {
-					if (!pMaps.containsKey(bt)) pMaps.put(bt, lib);
-					else {
-						//System.out.println("bt: " + bt);
-						String name = pMaps.get(bt);
-						name += ":" + lib;
-						pMaps.put(bt, name);		
-						}	
-					String strand = st.nextToken().charAt(0) == 'c'?"-":"+";
-					for (int i=1; i<3; i++) st.nextToken();
-					gOut.write(bt + "\tcensor\trepeat\t" + bStart + "\t" + bEnd + "\t" + st.nextToken() + "\t" + 
+				if (cOut != null) cOut.append(bt + " " + bStart + " " + bEnd + " (" + bpc + ") " + lib + " "  + 
+					lStart + " " + lEnd + " (" + lspc + "," + lepc + ")\n");
+				mapping.hasLengths = true;
+				mapping.known = bpc >= 85 && lspc <= 5 && lepc >= 95;
+				if (!mapping.known && gOut != null) {
+					if (score == null) {
+						log.append("Could not parse: " + line + "\n");
+						return null;
+						}
+					String strand = strandCode == 'c'?"-":"+";
+					gOut.append(bt + "\tcensor\trepeat\t" + bStart + "\t" + bEnd + "\t" + score + "\t" + 
 						strand + "\t.\tRepeat " + lib + " . " + lStart + " " + lEnd + " " + (ll - lEnd) + "\n");
 					}		 
 				} 
+			return mapping;
 			}
-		catch (NumberFormatException ne) {System.out.println("Could not parse: " + line);} 
 		catch (IOException ie) {ie.printStackTrace();}
+		return null;
 		}
 
+	private static void setThreads (String[] args) {
+		if (args != null && args.length > 0)
+			try {setThreads(Integer.parseInt(args[0]));}
+			catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[0]);} 
+		}
 	}
@@ -0,0 +1,365 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*************************
+CollapseConsensusSequences
+	Collapses the near-identical consensus sequences seqer makes for one family, so that only one of each
+	cluster goes through CENSOR, the BLAST searches and the Java stages. Each record is sketched as the
+	smallest -sketch hashes of its canonical (either strand) k-mers, and the Jaccard similarity of two
+	records is estimated from the smallest hashes of their sketches' union. Clusters are made greedily from
+	the longest record down: a record joins the longest representative it is at least -jaccard similar to,
+	or becomes a representative. Candidates are the records sharing one of each other's smallest few hashes,
+	which near-identical records almost always do, so only those are compared. Sketching and comparing run
+	on the given number of threads, and the clusters are the same for any number.
+	Search the representatives in place of ConsensusSequences.fa (moving the original to, say,
+	ConsensusSequences.all.fa, and the representatives to ConsensusSequences.fa). GenerateAnnotatedLibrary
+	reads the clusters and members files when they are there, and writes each member to the library after
+	its representative, with the representative's classification.
+	Date: October 17, 2026
+	Inputs: ConsensusSequences.fa (The consensus sequences from seqer)
+	Outputs (in the working directory): ConsensusSequences.representatives.fa (one record of each cluster, in file order)
+		ConsensusSequences.members.fa (the records collapsed into a representative, in file order)
+		ConsensusSequences.clusters.txt (each member and its representative)
+	Usage: java CollapseConsensusSequences [-jaccard 0.9] [-k 16] [-sketch 128] [consensus file [threads]]
+***************************/
+
+
+public class CollapseConsensusSequences {
+	private static class SketchChunk extends RecursiveAction {// the records whose headers start in a part of the file
+		private static final long serialVersionUID = 1L;
+		private FastaReader in;
+		private List<String> ids = new ArrayList<String>();
+		private IntList lengths = new IntList();
+		private List<long[]> sketches = new ArrayList<long[]>();
+
+		public SketchChunk (FastaReader in) {this.in = in;}
+
+		protected void compute() {
+			while (in.nextRecord()) {
+				ids.add(in.getId());
+				lengths.add(in.getLength());
+				sketches.add(sketch(in.getSequence()));
+				}
+			}
+		}
+
+
+	private static class CompareTask extends RecursiveAction {// finds the longer records similar to a range of ranks
+		private static final long serialVersionUID = 1L;
+		private static final int minRange = 64;
+		private int start;
+		private int end;
+
+		public CompareTask (int start, int end) {
+			this.start = start;
+			this.end = end;
+			}
+
+		protected void compute() {
+			if (end - start <= minRange) findSimilar(start, end);
+			else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new CompareTask(start, middle), new CompareTask(middle, end));
+				}
+			}
+		}
+
+
+	//The members of each representative, read back for GenerateAnnotatedLibrary
+	static class Members {
+		private FastaReader members;
+		private List<String> names = new ArrayList<String>();
+		private long[] offsets;//of each member's header in the members file
+		private NameDictionary representatives = new NameDictionary();
+		private IntMultiMap clusters = new IntMultiMap();//representative -> its members, in file order
+
+		public Members (String clusterFile, String memberFile) throws IOException {
+			members = new FastaReader(memberFile);
+			Map<String, Long> records = new HashMap<String, Long>();
+			while (members.nextRecord()) records.put(members.getId(), members.getHeaderOffset());
+			offsets = new long[records.size()];
+			BufferedReader in = InputFile.getReader(clusterFile);
+			String line = in.readLine();//the column names
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.trim().split("\\s+");
+				Long offset = fields.length == 2?records.get(fields[0]):null;
+				if (offset == null || names.size() == offsets.length) System.out.println("Could not parse: " + line);
+				else {
+					offsets[names.size()] = offset;
+					names.add(fields[0]);
+					clusters.add(representatives.add(fields[1]), names.size() - 1);//each entry is its member
+					}
+				}
+			in.close();
+			}
+
+		public static Members read (String clusterFile, String memberFile) {// null without clusters
+			if (!new File(InputFile.resolve(clusterFile)).exists()) return null;
+			try {return new Members(clusterFile, memberFile);}
+			catch (IOException ie) {ie.printStackTrace();}
+			return null;
+			}
+
+		public int count (String representative) {
+			int n = 0;
+			for (int m=first(representative); m>=0; m=next(m)) n++;
+			return n;
+			}
+
+		public int first (String representative) {// the representative's first member, or -1
+			int id = representatives.get(representative);
+			return id < 0?-1:clusters.first(id);
+			}
+
+		public String getName (int member) {return names.get(member);}
+
+		public FastaReader getRecord (int member) {// a reader at the member's record
+			FastaReader record = members.getChunk(offsets[member], offsets[member] + 1);
+			record.nextRecord();
+			return record;
+			}
+
+		public int next (int member) {return clusters.next(member);}
+
+		public int size () {return names.size();}
+		}
+
+
+	private static int chunkSize = 1 << 22;
+	private static int threads = 1;
+	private static int k = 16;
+	private static int sketchSize = 128;
+	private static int indexed = 8;//the smallest hashes of each sketch that candidates are found by
+	private static double minJaccard = 0.9;
+	private static String inFile = "./ConsensusSequences.fa";
+	private static String representativeFile = "./ConsensusSequences.representatives.fa";
+	private static String memberFile = "./ConsensusSequences.members.fa";
+	private static String clusterFile = "./ConsensusSequences.clusters.txt";
+	//the records in file order, and by rank (longest first, then in file order)
+	private static List<String> ids = new ArrayList<String>();
+	private static IntList lengths = new IntList();
+	private static List<long[]> sketches = new ArrayList<long[]>();
+	private static int[] byRank;
+	private static Map<Long, IntList> index = new HashMap<Long, IntList>();//hash -> the ranks of its records
+	private static int[][] similar;//by rank, the ranks of the longer records similar to it, in rank order
+
+	public static void main (String[] args) {
+		setOptions(args);
+		try {
+			FastaReader in = new FastaReader(inFile);
+			Metrics.Step step = Metrics.start("CollapseConsensusSequences", "sketching");
+			sketchAll(in);
+			step.end(ids.size(), in.getSize(), 0);
+			step = Metrics.start("CollapseConsensusSequences", "clustering");
+			int[] representatives = cluster();
+			step.end(ids.size(), 0, 0);
+			step = Metrics.start("CollapseConsensusSequences", "writing");
+			int collapsed = write(in, representatives);
+			step.end(ids.size(), in.getSize(), Metrics.getSize(representativeFile) + Metrics.getSize(memberFile) + 
+				Metrics.getSize(clusterFile));
+			System.out.println(collapsed + " of " + ids.size() + " consensus sequences were collapsed into " +
+				(ids.size() - collapsed) + " representatives");
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		Metrics.write();
+		}
+
+
+	//Each record, in rank order, joins the first similar record that is a representative, returning the
+	//representative of each record by file order
+	private static int[] cluster() {
+		byRank = new int[ids.size()];
+		index.clear();
+		Integer[] order = new Integer[ids.size()];
+		for (int i=0; i<order.length; i++) order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare (Integer a, Integer b) {
+				if (lengths.get(a) != lengths.get(b)) return lengths.get(a) > lengths.get(b)?-1:1;
+				return Integer.compare(a, b);
+				}
+			});
+		for (int r=0; r<order.length; r++) {
+			byRank[r] = order[r];
+			long[] sketch = sketches.get(order[r]);
+			for (int h=0; h<indexed && h<sketch.length; h++) {
+				IntList records = index.get(sketch[h]);
+				if (records == null) index.put(sketch[h], records = new IntList());
+				records.add(r);
+				}
+			}
+		similar = new int[order.length][];
+		if (threads > 1) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			pool.invoke(new CompareTask(0, order.length));
+			pool.shutdown();
+			}
+		else findSimilar(0, order.length);
+		int[] representatives = new int[order.length];//by rank
+		for (int r=0; r<order.length; r++) {
+			representatives[r] = r;
+			for (int s=0; s<similar[r].length && representatives[r] == r; s++)
+				if (representatives[similar[r][s]] == similar[r][s]) representatives[r] = similar[r][s];
+			}
+		int[] byFile = new int[order.length];
+		for (int r=0; r<order.length; r++) byFile[byRank[r]] = byRank[representatives[r]];
+		return byFile;
+		}
+
+	private static void findSimilar (int start, int end) {
+		for (int r=start; r<end; r++) {
+			long[] sketch = sketches.get(byRank[r]);
+			IntList candidates = new IntList();
+			for (int h=0; h<indexed && h<sketch.length; h++) {
+				IntList records = index.get(sketch[h]);
+				for (int i=0; i<records.size() && records.get(i) < r; i++) candidates.add(records.get(i));
+				}
+			int[] ranked = new int[candidates.size()];
+			for (int i=0; i<ranked.length; i++) ranked[i] = candidates.get(i);
+			Arrays.sort(ranked);
+			int n = 0;
+			for (int i=0; i<ranked.length; i++)
+				if ((i == 0 || ranked[i] != ranked[i - 1]) &&
+					getJaccard(sketch, sketches.get(byRank[ranked[i]])) >= minJaccard) ranked[n++] = ranked[i];
+			similar[r] = Arrays.copyOf(ranked, n);
+			}
+		}
+
+	private static int getCode (byte base) {// 2 bits, or -1 for anything but ACGT
+		switch (base) {
+			case 'A': case 'a': return 0;
+			case 'C': case 'c': return 1;
+			case 'G': case 'g': return 2;
+			case 'T': case 't': return 3;
+			default: return -1;
+			}
+		}
+
+	//Of the smallest sketchSize hashes of the union of the two sketches, the fraction in both
+	private static double getJaccard (long[] a, long[] b) {
+		int i = 0;
+		int j = 0;
+		int shared = 0;
+		int union = 0;
+		for (; union<sketchSize && i<a.length && j<b.length; union++)
+			if (a[i] == b[j]) {
+				shared++;
+				i++;
+				j++;
+				}
+			else if (a[i] < b[j]) i++;
+			else j++;
+		union += Math.min(sketchSize - union, a.length - i + b.length - j);
+		return union == 0?0.0:shared / (double) union;
+		}
+
+	private static long mix (long key) {// MurmurHash3's 64 bit finalizer
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+		}
+
+	static void setChunkSize (int bytes) {chunkSize = Math.max(1, bytes);}
+
+	//Reads and writes the files in dir rather than the working directory, as for the benchmarks and tests
+	static void setDirectory (String dir) {
+		inFile = dir + "ConsensusSequences.fa";
+		representativeFile = dir + "ConsensusSequences.representatives.fa";
+		memberFile = dir + "ConsensusSequences.members.fa";
+		clusterFile = dir + "ConsensusSequences.clusters.txt";
+		}
+
+	private static void setOptions (String[] args) {
+		int positional = 0;
+		for (int i=0; i<args.length; i++)
+			try {
+				if (args[i].equals("-jaccard") && i + 1 < args.length) minJaccard = Double.parseDouble(args[++i]);
+				else if (args[i].equals("-k") && i + 1 < args.length) k = Math.max(1, Math.min(31, Integer.parseInt(args[++i])));
+				else if (args[i].equals("-sketch") && i + 1 < args.length) sketchSize = Math.max(1, Integer.parseInt(args[++i]));
+				else if (positional++ == 0) inFile = args[i];
+				else {
+					threads = Math.max(1, Integer.parseInt(args[i]));
+					InputFile.setThreads(threads);
+					}
+				}
+			catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[i]);}
+		}
+
+	//The smallest sketchSize distinct hashes of the record's canonical k-mers, in order. K-mers with any base
+	//but ACGT are skipped.
+	private static long[] sketch (byte[] residues) {
+		long[] hashes = new long[Math.max(0, residues.length - k + 1)];
+		long mask = k == 32?-1L:(1L << 2 * k) - 1;
+		int shift = 2 * (k - 1);
+		long forward = 0;
+		long reverse = 0;
+		int valid = 0;
+		int n = 0;
+		for (byte base : residues) {
+			int code = getCode(base);
+			if (code < 0) {
+				valid = 0;
+				continue;
+				}
+			forward = (forward << 2 | code) & mask;
+			reverse = reverse >>> 2 | (long) (3 - code) << shift;
+			if (++valid >= k) hashes[n++] = mix(Math.min(forward, reverse));
+			}
+		Arrays.sort(hashes, 0, n);
+		int distinct = 0;
+		for (int i=0; i<n && distinct<sketchSize; i++)
+			if (i == 0 || hashes[i] != hashes[i - 1]) hashes[distinct++] = hashes[i];
+		return Arrays.copyOf(hashes, distinct);
+		}
+
+	private static void sketchAll (FastaReader in) {// in file order
+		List<SketchChunk> chunks = new ArrayList<SketchChunk>();
+		ids.clear();
+		lengths = new IntList();
+		sketches.clear();
+		if (threads > 1 && !in.isStreamed()) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			for (long start=0; start<in.getSize(); start+=chunkSize) {
+				SketchChunk chunk = new SketchChunk(in.getChunk(start, start + chunkSize));
+				pool.execute(chunk);
+				chunks.add(chunk);
+				}
+			for (SketchChunk chunk : chunks) chunk.join();
+			pool.shutdown();
+			}
+		else {
+			in.reset();
+			chunks.add(new SketchChunk(in));
+			chunks.get(0).compute();
+			}
+		for (SketchChunk chunk : chunks) {
+			ids.addAll(chunk.ids);
+			for (int i=0; i<chunk.lengths.size(); i++) lengths.add(chunk.lengths.get(i));
+			sketches.addAll(chunk.sketches);
+			}
+		}
+
+	//Returns the number of records collapsed into another
+	private static int write (FastaReader in, int[] representatives) throws IOException {
+		BufferedWriter reps = new BufferedWriter(new FileWriter(representativeFile));
+		BufferedWriter members = new BufferedWriter(new FileWriter(memberFile));
+		BufferedWriter clusters = new BufferedWriter(new FileWriter(clusterFile));
+		clusters.write("Sequence Representative\n");
+		int collapsed = 0;
+		in.reset();
+		for (int i=0; in.nextRecord(); i++)
+			if (representatives[i] == i) in.writeRecord(reps);
+			else {
+				in.writeRecord(members);
+				clusters.write(ids.get(i) + " " + ids.get(representatives[i]) + "\n");
+				collapsed++;
+				}
+		reps.close();
+		members.close();
+		clusters.close();
+		return collapsed;
+		}
+	}
@@ -0,0 +1,215 @@
+import java.io.*;
+import java.util.Arrays;
+
+/*************************
+FastaReader
+	Steps through the records of a fasta file that has been memory-mapped, treating headers and residue
+	lines as byte ranges so that no String is built per line. Shared by all the annotation stages.
+	Date: October 17, 2026
+	Updated: October 17, 2026 to let PackedSequences stand in for a reader, serving the records from memory
+	Updated: October 17, 2026 to stream a gzip or BGZF file through InputFile rather than map it, holding
+		only the record being read, at its offsets in the decompressed file. A streamed file is read from
+		the start (again on reset), and cannot be split into chunks (see isStreamed).
+	Inputs: A fasta file (may be larger than 2GB, or gzip or BGZF compressed)
+	Usage: FastaReader reader = new FastaReader(file);
+		while (reader.nextRecord()) {reader.getId(); reader.getLength(); reader.writeBody(out);}
+***************************/
+
+
+public class FastaReader {
+	//The bytes of a compressed file, streamed through InputFile, from the reader's position through its next
+	//record and the first byte after that, at their offsets in the decompressed file. The size is not known
+	//(Long.MAX_VALUE) until the end of the file is read.
+	private static class StreamedFile extends MappedFile {
+		private String file;
+		private InputStream in = null;
+		private byte[] bytes = new byte[1 << 16];
+		private long base;//the offset of bytes[0]
+		private int n;
+
+		public StreamedFile (String file) {
+			this.file = file;
+			restart();
+			}
+
+		public byte byteAt(long pos) {return bytes[(int) (pos - base)];}
+
+		//Holds the bytes from start, a line start, through the next record's lines and the first byte of the
+		//line after them, returning the size
+		public long read (long start) {
+			int done = (int) Math.min(start - base, n);//the bytes before start are not read again
+			System.arraycopy(bytes, done, bytes, 0, n - done);
+			n -= done;
+			base += done;
+			boolean header = false;
+			for (long line=start; fill(line); line++) {
+				if (byteAt(line) == '>') {
+					if (header) break;
+					header = true;
+					}
+				while (fill(line) && byteAt(line) != '\n') line++;
+				}
+			return size;
+			}
+
+		public long restart () {// to the start of the file, returning the size
+			try {
+				if (in != null) in.close();
+				in = InputFile.open(file);
+				size = Long.MAX_VALUE;
+				}
+			catch (IOException ie) {
+				ie.printStackTrace();
+				size = 0;
+				}
+			base = 0;
+			n = 0;
+			return size;
+			}
+
+		private boolean fill (long pos) {// whether the byte at pos is held, reading until it is or the file ends
+			while (pos >= base + n && size == Long.MAX_VALUE) {
+				if (n == bytes.length) bytes = Arrays.copyOf(bytes, n * 2);
+				int read = -1;
+				try {read = in.read(bytes, n, bytes.length - n);}
+				catch (IOException ie) {ie.printStackTrace();}
+				if (read >= 0) n += read;
+				else {
+					size = base + n;
+					try {in.close();}
+					catch (IOException ie) {ie.printStackTrace();}
+					in = null;
+					}
+				}
+			return pos < base + n;
+			}
+		}
+
+
+	private MappedFile file;
+	private StreamedFile stream = null;//when the file is compressed
+	private long size;
+	private long start = 0;
+	private long end;//records start before end, but may run past it
+	private long position = 0;
+	private long headerStart = -1;
+	private long headerEnd = -1;
+	private long bodyStart = -1;
+	private long bodyEnd = -1;
+	private int length = 0;
+	private char[] chars = new char[8192];
+
+	public FastaReader (String file) throws IOException {
+		if (InputFile.isGzip(file)) this.file = stream = new StreamedFile(file);
+		else this.file = new MappedFile(file);
+		size = end = this.file.getSize();
+		}
+
+	protected FastaReader (long size) {// for readers that do not read a mapped file, see PackedSequences
+		this.size = end = size;
+		}
+
+	private FastaReader (MappedFile file, long start, long end) {
+		this.file = file;
+		size = file.getSize();
+		this.start = position = start;
+		this.end = end;
+		}
+
+	public long getBodyEnd() {return bodyEnd;}
+
+	public long getBodyOffset() {return bodyStart;}
+
+	//A reader of the records whose headers start from start up to end, sharing this reader's mapping. The
+	//chunks of a file can be read on separate threads. A streamed file has no chunks.
+	public FastaReader getChunk(long start, long end) {
+		if (stream != null) throw new UnsupportedOperationException("A compressed file is streamed, not read in chunks");
+		if (start > 0 && file.byteAt(start - 1) != '\n') start = file.nextLine(start);
+		return new FastaReader(file, start, Math.min(end, size));
+		}
+
+	public String getHeader() {return file.getString(headerStart + 1, headerEnd);}
+
+	public long getHeaderOffset() {return headerStart;}
+
+	public String getId() {
+		long end = headerStart + 1;
+		while (end < headerEnd && !isWhitespace(file.byteAt(end))) end++;
+		return file.getString(headerStart + 1, end);
+		}
+
+	public int getLength() {return length;}
+
+	public byte[] getSequence() {// the residues, without line ends
+		byte[] residues = new byte[length];
+		int n = 0;
+		for (long pos=bodyStart; pos<bodyEnd; pos++) {
+			byte b = file.byteAt(pos);
+			if (b != '\n' && b != '\r') residues[n++] = b;
+			}
+		return residues;
+		}
+
+	//The length of each line of the record's body, without its line end
+	IntList getLineLengths() {
+		IntList lengths = new IntList();
+		for (long line=bodyStart; line<bodyEnd; ) {
+			long next = file.nextLine(line);
+			lengths.add((int) (file.lineEnd(line, next) - line));
+			line = next;
+			}
+		return lengths;
+		}
+
+	public long getSize() {return size;}// of a streamed file, once it has been read to the end
+
+	public boolean isStreamed() {return stream != null;}
+
+	public boolean nextRecord() {
+		if (stream != null) size = end = stream.read(position);
+		while (position < end && file.byteAt(position) != '>') position = file.nextLine(position);
+		if (position >= end) return false;
+		headerStart = position;
+		bodyStart = file.nextLine(headerStart);
+		headerEnd = file.lineEnd(headerStart, bodyStart);
+		length = 0;
+		long line = bodyStart;
+		while (line < size && file.byteAt(line) != '>') {
+			long next = file.nextLine(line);
+			length += (int) (file.lineEnd(line, next) - line);
+			line = next;
+			}
+		bodyEnd = line;
+		position = line;
+		return true;
+		}
+
+	public void reset() {
+		if (stream != null) size = end = stream.restart();
+		position = start;
+		headerStart = headerEnd = bodyStart = bodyEnd = -1;
+		length = 0;
+		}
+
+	public void writeBody(Writer out) throws IOException {write(out, bodyStart, bodyEnd);}
+
+	public void writeRecord(Writer out) throws IOException {write(out, headerStart, bodyEnd);}
+
+	private boolean isWhitespace(byte b) {return b == ' ' || b == '\t';}
+
+	private void write(Writer out, long start, long end) throws IOException {// lines are always \n terminated
+		int n = 0;
+		byte b = '\n';
+		for (long pos=start; pos<end; pos++) {
+			b = file.byteAt(pos);
+			if (b == '\r') continue;
+			if (n == chars.length) {
+				out.write(chars, 0, n);
+				n = 0;
+				}
+			chars[n++] = (char) (b & 0xff);
+			}
+		out.write(chars, 0, n);
+		if (end > start && b != '\n') out.write('\n');
+		}
+	}
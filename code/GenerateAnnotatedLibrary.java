@@ -1,5 +1,6 @@
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /*************************
 GenerateAnnotatedLibrary
@@ -10,117 +11,150 @@ GenerateAnnotatedLibrary
 	Updated: March 3, 2016 to strip member size and length information from consensus sequence names
 	   when reading their fasta file. 
 	Updated: July 12, 2016 to allow differential coverage limits for SINE elements. 
+	Updated: October 17, 2026 to read the fasta files through FastaReader. 
+	Updated: October 17, 2026 to key lengths, families and hits on NameDictionary IDs rather than names. 
+	Updated: October 17, 2026 to keep each consensus sequence's hits as primitive columns. 
+	Updated: October 17, 2026 to annotate and classify the consensus sequences on a fork join pool when 
+		given a number of threads. The library is written in the same order either way. 
+	Updated: October 17, 2026 to move RBClassifier to its own class, which maps a compiled RepBase index. 
+	Updated: October 17, 2026 to apply the coverage limits when writing, so that -sweep can write a library 
+		(or with -summary, a line of class counts) for each sine:rest pair from one load of the hits. 
+	Updated: October 17, 2026 to read the BLAST -outfmt 6 files of reportsJ_NCBI.sh in place of the gffs. 
+	Updated: October 17, 2026 to read the IR hits from a RepeatMasker .out file when there is no map file. 
+	Updated: October 17, 2026 to time each step through Metrics, and to trace when run with -Dcarp.debug=true. 
+	Updated: October 17, 2026 to add -external, which sorts the hits by sequence into spill files of -runSize 
+		hits and classifies the sequences one at a time as they are merged, rather than holding every hit. 
+	Updated: October 17, 2026 to read the map file and gffs from their HitStore (.hits) files when those are 
+		as new, the IR hits of only the wanted sequences through the map store's per-query index. 
+	Updated: October 17, 2026 to look up the retrovirus annotations through RetroAnnotations' accession 
+		indexes, reading only the descriptions of the #Retrovirus_like sequences' targets. 
+	Updated: October 17, 2026 to remove sub hits, and measure coverage, against all of a sequence's hits through 
+		HitIntervals rather than only the hit before, and to classify a sequence as #Chimeric only when more 
+		than one target covers enough of it. A target's coverage counts the bp its hits share once. 
+	Updated: October 17, 2026 to read the inputs concurrently on loading threads when given threads, adding 
+		their names to the dictionaries in the same order as before. 
+	Updated: October 17, 2026 to write the members CollapseConsensusSequences collapsed into each wanted 
+		sequence after it, with its classification, when its clusters file is there. 
+	Updated: October 17, 2026 to key the consensus sequences by their IDs (up to a space or tab), as
+		ClassifyConsensusSequences does, so that AnnotationPipeline and this stage find the same families. 
 	Inputs: ConsensusSequences.fa (The consensus sequences (fasta format))
-		ConsensusSequences.fa.map (The map file from the censor run)
+		ConsensusSequences.fa.map (The map file from the censor run, or RepeatMasker's ConsensusSequences.fa.out)
 		known.txt (list of censor IR "identified" sequences with name of the library sequence they match)
-		notKnown.fa.tewb.gff (gff file of the GB_TE matched sequences)
-		GB_TE.01092014.fa (The GB_TE library)
-		notKnown.fa.ervwb.gff (gff file of the all_retrovirus matched sequences)
-		all_retrovirus.fasta (The all_retrovirus library)
+		notKnown.fa.tewb.gff (gff file of the GB_TE matched sequences, or -outfmt 6 notKnown.fa.tewb.ncbi)
+		GB_TE.01092014.fa (The GB_TE library, through its GB_TE.01092014.fa.acc index, see RetroAnnotations)
+		notKnown.fa.ervwb.gff (gff file of the all_retrovirus matched sequences, or notKnown.fa.ervwb.ncbi)
+		all_retrovirus.fasta (The all_retrovirus library, through all_retrovirus.fasta.acc)
+		ConsensusSequences.clusters.txt and ConsensusSequences.members.fa (optional, from CollapseConsensusSequences)
 		SSR.txt (list of sequences identified as SSRs, and the SSR they matched)
 		protein.txt (list of the sequences identified as proteins and the protein they matched)
 		//LA4v2-satellite.fa (a satellite sequence for which no consensus sequence was found)
 		/home/a1635743/RepBase20.04.fasta/*rep.ref (RepBase libraries to base 
-			classification on)
+			classification on, through the RepBase20.04.index compiled by RBClassifier)
 	Outputs: wantedCSHeaders.txt (for checking individual sequence headers)
 		R4_Library.fasta (The annotated library)
+	Outputs (-sweep): Denovo_TE_Library.<sine>_<rest>.fasta for each pair, or coverageSweep.txt with -summary
+	Usage: java GenerateAnnotatedLibrary [-sweep sine:rest,sine:rest... [-summary]] [-external [-runSize 4194304]] 
+		[sineMinCoverage [threads]] (spill files are written to java.io.tmpdir)
 ***************************/
 
 
 public class GenerateAnnotatedLibrary {
-	private static class Hit {
-		private String target;
+	private static class AnnotateTask extends RecursiveAction {// a range of the wanted consensus sequences
+		private static final long serialVersionUID = 1L;
+		private static final int minRange = 64;
+		private CS[] wantedCS;
 		private int start;
 		private int end;
-		
-		public Hit (String target, int start, int end) {
-			this.target = target;
+		private NameDictionary targets;
+		private RetroAnnotations retroAnno;
+		private BitSet irs;
+		private RBClassifier classifier;
+
+		public AnnotateTask (CS[] wantedCS, int start, int end, NameDictionary targets, 
+			RetroAnnotations retroAnno, BitSet irs, RBClassifier classifier) {
+			this.wantedCS = wantedCS;
 			this.start = start;
 			this.end = end;
+			this.targets = targets;
+			this.retroAnno = retroAnno;
+			this.irs = irs;
+			this.classifier = classifier;
 			}
 
-		public int getEnd () {return end;}
-
-		public int getLength() {return end - start + 1;}
-		
-		public int getStart() {return start;}
-		
-		public String getTarget() {return target;}
-		}
-
-		
-	private static class HitComparator implements Comparator {
-		public int compare (Object o1, Object o2) throws ClassCastException {
-			try {
-				Hit h1 = (Hit) o1;
-				Hit h2 = (Hit) o2;
-				int result = h1.getStart() - h2.getStart();
-				if (result == 0) result = h2.getEnd() - h1.getEnd();
-				return result;
-				}
-			catch (ClassCastException ce) {
-				throw new ClassCastException("Only Hits can be compared in HitComparator");
+		protected void compute() {
+			if (end - start <= minRange) 
+				annotateAndClassify(wantedCS, start, end, targets, retroAnno, irs, classifier);
+			else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new AnnotateTask(wantedCS, start, middle, targets, retroAnno, irs, classifier), 
+					new AnnotateTask(wantedCS, middle, end, targets, retroAnno, irs, classifier));
 				}
 			}
-				
-		public boolean equals (Object o) {return o instanceof HitComparator;}
 		}
-			
 
-	private static class CS {
-		private static HitComparator hitComparator = new HitComparator();
+	static class CS {
 		private static double maxOverlap = 0.8;
 		private static double minCoverageBP = 0.05;
+		private int id;
 		private String name;
 		private String classification;
 		private String annotation;
+		private String retroAnnotation = "";
+		private double coverage = Double.POSITIVE_INFINITY;//the fraction covered, never partial if unclassified
+		private boolean allSINETargets = false;
 		private int length;
-		private List<Hit> hits = new ArrayList<Hit>();
+		//the hits as columns, order is the order the hit was added in, or -1 once it is a sub hit
+		private int nHits = 0;
+		private int[] starts = new int[4];
+		private int[] ends = new int[4];
+		private int[] targets = new int[4];
+		private int[] order = new int[4];
+		private long[] targetKeys = null;
 		
-		public CS (String name, Integer len) {
+		public CS (int id, String name, int length) {
+			this.id = id;
 			this.name = name;
-			length = len.intValue();
+			this.length = length;
 			}
 
-		public void addHit (Hit hit) {hits.add(hit);}
+		public void addHit (int target, int start, int end) {
+			if (nHits == starts.length) {
+				starts = Arrays.copyOf(starts, nHits * 2);
+				ends = Arrays.copyOf(ends, nHits * 2);
+				targets = Arrays.copyOf(targets, nHits * 2);
+				order = Arrays.copyOf(order, nHits * 2);
+				}
+			starts[nHits] = start;
+			ends[nHits] = end;
+			targets[nHits] = target;
+			order[nHits] = nHits;
+			nHits++;
+			}
 
-		public void addHits (List<Hit> hits) {this.hits.addAll(hits);}
+		public void addHits (HitTable table, int query) {
+			for (int h=table.first(query); h>=0; h=table.next(h)) 
+				addHit(table.getTarget(h), table.getStart(h), table.getEnd(h));
+			}
 		
-		public void annotateAndClassify(Hashtable<String, String> retroAnnots, Set<String> irs, 
-			RBClassifier classifier, double sineMinCoverage, double restMinCoverage) {
-			if (hits.size() == 0) classifyAndAnnotateNone();
+		//Leaves classification as it would be with enough coverage, as the limits are applied by getClassification
+		public void annotateAndClassify(NameDictionary targetNames, RetroAnnotations retroAnnots, 
+			BitSet irs, RBClassifier classifier) {
+			if (nHits == 0) classifyAndAnnotateNone();
 			else {
 				removeSubHits();
-				Hashtable<String, Integer> typeCoverage = new Hashtable<String, Integer>();
-				for (Iterator<Hit> iter=hits.iterator(); iter.hasNext();) {
-					Hit hit = iter.next();
-					String target = hit.getTarget();
-					int length = hit.getLength();
-					if (typeCoverage.containsKey(target)) length += typeCoverage.get(target).intValue();
-					typeCoverage.put(target, new Integer(length));
-					}
-				double minCoverage = minCoverageBP * length;
-				Set<String> tooLittleCoverage = new HashSet<String>();
-				for (Enumeration<String> e=typeCoverage.keys(); e.hasMoreElements();) {
-					String target = e.nextElement();
-					if (typeCoverage.get(target).intValue() < minCoverage) tooLittleCoverage.add(target);
-					}
-				for (Iterator<String> iter=tooLittleCoverage.iterator(); iter.hasNext();) 
-					typeCoverage.remove(iter.next());
-				int nTargets = typeCoverage.size();
+				int nTargets = getTargetCoverage();
 				if (nTargets == 0) classifyAndAnnotateNone();
 				else {
-					annotation = getTargetAnnotation(typeCoverage);
-					int coverage = getCoverage();
-					if (((double) coverage)/length < (allSINE(classifier)?sineMinCoverage:restMinCoverage)) 
-						classification = "#PartialAnnotation";
-					else if (hits.size() > 1 && !irs.contains(name) && !isSatellite()) 
+					annotation = getTargetAnnotation(targetNames, nTargets);
+					coverage = ((double) getCoverage())/length;
+					allSINETargets = allSINE(classifier);
+					if (nTargets > 1 && !irs.get(id)) 
 						classification = "#Chimeric";
 					else {
 						String target = annotation.substring(0, annotation.indexOf(" "));
 						if (target.indexOf("|") > 0) {
 							classification = "#Retrovirus_like";
-							annotation += " " + retroAnnots.get(target);
+							retroAnnotation = " " + retroAnnots.get(target);
 							}
 						else classification = ":" + target;
 						}						
@@ -128,12 +162,25 @@ public class GenerateAnnotatedLibrary {
 				}
 			}
 
-		public String getFastaHeader() {return ">" + name + classification + " " + annotation + "\n";}
+		public String getClassification (double sineMinCoverage, double restMinCoverage) {
+			return isPartial(sineMinCoverage, restMinCoverage)?"#PartialAnnotation":classification;
+			}
+
+		public String getFastaHeader (double sineMinCoverage, double restMinCoverage) {
+			return getFastaHeader(name, sineMinCoverage, restMinCoverage);
+			}
+
+		//The header of this sequence, or of a member collapsed into it, which shares its classification
+		public String getFastaHeader (String name, double sineMinCoverage, double restMinCoverage) {
+			if (isPartial(sineMinCoverage, restMinCoverage)) 
+				return ">" + name + "#PartialAnnotation " + annotation + "\n";
+			return ">" + name + classification + " " + annotation + retroAnnotation + "\n";
+			}
 
 		private boolean allSINE(RBClassifier classifier) {// check if all targets are SINEs
 			boolean allSINE = true;
-			for (Iterator<Hit> iter=hits.iterator(); allSINE && iter.hasNext();)
-				allSINE = classifier.classify(iter.next().getTarget()).startsWith("SINE");
+			for (int i=0; allSINE && i<nHits; i++)
+				allSINE = classifier.classify(targets[i]).startsWith("SINE");
 			return allSINE;
 			}
 						
@@ -142,74 +189,131 @@ public class GenerateAnnotatedLibrary {
 			annotation = "Matches no similar sequence";
 			}
 
-		private int getCoverage() {
-			int coverage = 0;
-			Hit lastHit = null;
-			for (Iterator<Hit> iter=hits.iterator(); iter.hasNext();) {
-				Hit hit = iter.next();
-				if (lastHit == null) coverage = hit.getLength();
-				else {
-					if (hit.getStart() > lastHit.getEnd()) coverage += hit.getLength();
-					else coverage += hit.getEnd() - lastHit.getEnd();
-					}
-				lastHit = hit;
-				}
-			return coverage;
+		private int compareHits (int i, int j) {// by start, then longest first, then the order added
+			if (starts[i] != starts[j]) return starts[i] < starts[j]?-1:1;
+			if (ends[i] != ends[j]) return ends[i] > ends[j]?-1:1;
+			return order[i] < order[j]?-1:(order[i] == order[j]?0:1);
 			}
+
+		int getCoverage() {return (int) HitIntervals.getUnion(starts, ends, nHits);}
+
+		private int getLength (int hit) {return ends[hit] - starts[hit] + 1;}
 			
-		private String getTargetAnnotation (Hashtable<String, Integer> typeCoverage) {
-			int n = typeCoverage.size();
-			String[] targets = new String[n];
-			double[] coveragePC = new double[n];
+		private String getTargetAnnotation (NameDictionary targetNames, int nTargets) {
 			double pcDivisor = length / 100.;
-			for (Enumeration<String> e=typeCoverage.keys(); e.hasMoreElements();) {
-				String target = e.nextElement();
-				double pcCoverage = typeCoverage.get(target).intValue() / pcDivisor;
-				boolean inserted = false;
-				for (int i=0; !inserted && i<n; i++)	
-					if (pcCoverage > coveragePC[i]) {
-						for (int j=n-2; j>=i; j--) {
-							coveragePC[j+1] =coveragePC[j];
-							targets[j+1] = targets[j];
-							}
-						coveragePC[i] = pcCoverage;
-						targets[i] = target;
-						inserted = true;
-						}	
+			StringBuilder anno = new StringBuilder();
+			for (int i=0; i<nTargets; i++) {
+				int first = (int) targetKeys[i];
+				double pcCoverage = (Integer.MAX_VALUE - (int) (targetKeys[i] >>> 32)) / pcDivisor;
+				anno.append(i>0?"; ":"").append(targetAnnotation(targetNames.getName(targets[first]), pcCoverage));
 				}
-			String anno = "";
-			for (int i=0; i<n; i++) anno += (i>0?"; ":"") + targetAnnotation (targets[i], coveragePC[i]);
-			return anno;
-			}
-
-		private boolean isSatellite () {
-			String[] fields = annotation.split(" ");
-			return fields.length == 2 && fields[0].indexOf("SAT") >= 0;
-			}
-																
-		private void removeSubHits() {
-			Collections.sort(hits, hitComparator);
-			List<Hit> subHits = new ArrayList<Hit>();
-			Hit lastHit = null;
-			for (Iterator<Hit> iter=hits.iterator(); iter.hasNext();) {
-				Hit hit = iter.next();
-				if (lastHit == null) lastHit = hit;
-				else 
-					if (hit.getEnd() < lastHit.getEnd()) subHits.add(hit);
-					else if (hit.getStart() > lastHit.getEnd()) lastHit = hit;
-					else {
-						double minLengthLimit = (lastHit.getEnd() - hit.getStart() + 1)/maxOverlap;
-						int lastLength = lastHit.getLength();
-						int hitLength = hit.getLength();
-						if (lastLength < hitLength) {
-							if (lastLength < minLengthLimit) subHits.add(lastHit);
-							lastHit = hit;
-							}
-						else if (hitLength < minLengthLimit) subHits.add(hit);	
-						else lastHit = hit;						
-						}					
+			return anno.toString();
+			}
+
+		//Sums the bp covered by the hits to each target, leaving the targets with enough coverage in targetKeys,
+		//by coverage then first hit. Each key is (MAX_VALUE - bp) << 32 | the first hit to the target.
+		private int getTargetCoverage () {
+			if (targetKeys == null || targetKeys.length < nHits) targetKeys = new long[starts.length];
+			for (int i=0; i<nHits; i++) targetKeys[i] = ((long) targets[i] << 32) | i;
+			heapSort(targetKeys, nHits);
+			double minCoverage = minCoverageBP * length;
+			int nTargets = 0;
+			for (int i=0; i<nHits;) {
+				int first = (int) targetKeys[i];
+				int bp = 0;
+				int j = i;
+				for (int reach=Integer.MIN_VALUE; j<nHits && targets[(int) targetKeys[j]] == targets[first]; j++) {
+					int hit = (int) targetKeys[j];//in start order, so the union is summed as it goes
+					bp += Math.max(0, ends[hit] - Math.max(starts[hit] - 1, reach));
+					reach = Math.max(reach, ends[hit]);
+					}
+				if (bp >= minCoverage) targetKeys[nTargets++] = ((long) (Integer.MAX_VALUE - bp) << 32) | first;
+				i = j;
+				}
+			heapSort(targetKeys, nTargets);
+			return nTargets;
+			}
+
+		private static void heapSort (long[] keys, int n) {// in place, so no allocation per sequence
+			for (int i=n/2-1; i>=0; i--) siftDown(keys, i, n);
+			for (int end=n-1; end>0; end--) {
+				long key = keys[0];
+				keys[0] = keys[end];
+				keys[end] = key;
+				siftDown(keys, 0, end);
+				}
+			}
+
+		private boolean isPartial (double sineMinCoverage, double restMinCoverage) {
+			return coverage < (allSINETargets?sineMinCoverage:restMinCoverage);
+			}
+
+		//A hit is a sub hit when a kept hit at least as long overlaps more than maxOverlap of it (or contains
+		//it). The hits are kept longest first, then in start order, and each is compared with every kept hit.
+		void removeSubHits() {
+			sortHits();
+			HitIntervals kept = new HitIntervals(starts, ends, nHits);
+			if (targetKeys == null || targetKeys.length < nHits) targetKeys = new long[starts.length];
+			for (int hit=0; hit<nHits; hit++) 
+				targetKeys[hit] = ((long) (Integer.MAX_VALUE - getLength(hit)) << 32) | hit;
+			heapSort(targetKeys, nHits);
+			for (int i=0; i<nHits; i++) {
+				int hit = (int) targetKeys[i];
+				if (kept.getMaxOverlap(starts[hit], ends[hit]) > maxOverlap * getLength(hit)) order[hit] = -1;
+				else kept.add(hit);
+				}
+			int n = 0;
+			for (int hit=0; hit<nHits; hit++) 
+				if (order[hit] >= 0) {
+					starts[n] = starts[hit];
+					ends[n] = ends[hit];
+					targets[n] = targets[hit];
+					order[n++] = order[hit];
+					}
+			nHits = n;
+			}
+
+		private static void siftDown (long[] keys, int i, int n) {
+			long key = keys[i];
+			for (int child=2*i+1; child<n; child=2*i+1) {
+				if (child + 1 < n && keys[child + 1] > keys[child]) child++;
+				if (keys[child] <= key) break;
+				keys[i] = keys[child];
+				i = child;
+				}
+			keys[i] = key;
+			}
+
+		private void sortHits () {// heap sort of the columns, in place
+			for (int i=nHits/2-1; i>=0; i--) siftDownHit(i, nHits);
+			for (int end=nHits-1; end>0; end--) {
+				swapHits(0, end);
+				siftDownHit(0, end);
+				}
+			}
+
+		private void siftDownHit (int i, int n) {
+			for (int child=2*i+1; child<n; child=2*i+1) {
+				if (child + 1 < n && compareHits(child + 1, child) > 0) child++;
+				if (compareHits(child, i) <= 0) break;
+				swapHits(i, child);
+				i = child;
 				}
-			hits.removeAll(subHits);
+			}
+
+		private void swapHits (int i, int j) {
+			int start = starts[i];
+			int end = ends[i];
+			int target = targets[i];
+			int added = order[i];
+			starts[i] = starts[j];
+			ends[i] = ends[j];
+			targets[i] = targets[j];
+			order[i] = order[j];
+			starts[j] = start;
+			ends[j] = end;
+			targets[j] = target;
+			order[j] = added;
 			}
 			
 		private String targetAnnotation (String target, double pc) {
@@ -217,228 +321,45 @@ public class GenerateAnnotatedLibrary {
 			}
 		}
 
-	private static class RBClassifier {
-  	private String libDir = getLibraryDirectory();
-		private Hashtable<String, String> classification = getClassifications(libDir);
+	private static class HitColumns {// hits read on a loading thread, by query and target IDs of their own
+		private NameDictionary queries = new NameDictionary();
+		private NameDictionary targets = new NameDictionary();
+		private IntList query = new IntList();
+		private IntList target = new IntList();
+		private IntList start = new IntList();
+		private IntList end = new IntList();
 
-  
-		public String classify (String name) {
-			if (name.startsWith("AFROSINE")) return "SINE2/AFROSINE";
-			if (name.startsWith("BTLTR1")) return "LTR/BTLTR1";
-			if (name.startsWith("Bov-tA")) return "SINE2/BOV.tA";
-			if (name.startsWith("BovB")) return "LINE/RTE_BovB";
-			if (name.startsWith("ERE"))
-				switch (name.charAt(3)) { 
-					case '1': return "SINE2/ERE1";
-					case '2': return "SINE2/ERE2";
-					case '3': return "SINE2/ERE3";
-					case '4': return "SINE2/ERE4";
-					}
-			if (name.startsWith("MIR") && !name.startsWith("MIRAGE")) return "SINE2/MIR";
-			if (name.startsWith("SINEC")) return "SINE2/CanSINE";
-			if (name.startsWith("THER")) return "SINE2/MIR";
-			if (name.startsWith("ERV-1_PM")) return "ERV/ERV1";
-			if (name.startsWith("ERV-2_PM")) return "ERV";
-			if (name.startsWith("AluY")) return "SINE1/7SL";
-			if (name.startsWith("Dada")) return "DNA/Dada";
-			if (name.startsWith("DNA-TTAA0-")) return "DNA";		
-			if (name.startsWith("Kolobok")) return "DNA/Kolobok";
-			if (name.startsWith("Sola")) return "DNA/Sola";
-			String classif = classification.get(name);
-			if (classif == null) {if (name.startsWith("ERV")) return "ERV";}
-			else {
-				if (classif.equals("SINE")) return classif + "/Unclassified";
-				if (classif.indexOf("CR1") >= 0) {
-		  		if (name.indexOf("LINE") >= 0) classif = (name.indexOf("LINE2") >= 0)?classif + "_L2":"LINE";
-		  		else if (name.startsWith("L2") || name.startsWith("CR1-L2")) {
-		    		int nameLength = name.indexOf("L2") + 2;
-			  		if (name.length()==nameLength) classif += "_L2";
-			  		else switch (name.charAt(nameLength)) {
-							case ('0'):
-							case ('1'):
-							case ('2'):
-							case ('3'):
-							case ('4'):
-							case ('5'):
-							case ('6'):
-							case ('7'):
-							case ('8'):
-							case ('9'): break;
-							default: classif += "_L2";
-							}
-						}
-			  	}
-				}
-			return classif==null?"Unknown":classif;
-			}
-
-  	private void reClassify (Hashtable<String, String> classifications) {
-    	String[][] seqClass = {
-      	{"ERV/ERV3_MaLR", "MLT1J-int", "MLT1M", "MTE-int", "ORR1B1-int", "ORR1D-int", "ORR1E", 
-        	"MLT1G1", "MLT1H", "MLT1H1", "MLT1H2", "MLT1I", "MLT1J", "MLT1J1", "MLT1J2", "MLT1K", 
-        	"MTE", "ORR1A0", "ORR1B1", "ORR1B2", "ORR1C1", "ORR1C2", "MLT-int", "MLT1A0", "MLT1A1", 
-        	"MLT1C", "MLT1C1", "MLT1D", "MLT1E", "MLT1E1", "MLT1E1A", "MLT1E2", "MLT1F", "MLT1F_I", 
-        	"MLT1G", "MLT1G2", "MLT1G3", "MLT1L", "MLT1O", "MLT1_I", "MSTA", "MSTA1", "MSTA2", "MSTB1", 
-        	"MSTD", "MST_I", "MTAI", "ORR1AI", "ORR1BI", "THE1A", "THE1B", "THE1C", "THE1D", "MTA", 
-        	"MTB", "MTC", "MTD", "ORR1A", "ORR1B", "ORR1C", "ORR1D",  "MLT1B", "MLT1F1", "MLT1F2", 
-        	"MSTB", "MSTC"},
-      	{"DNA", "UCON71_Crp"},
-				{"LTR/ALTR2", "ALTR2"},
-				{"SINE/BOVA2", "BOVA2"},       
-      	{"SINE2/AFRO_LA", "AFRO_LA"}, 
-				{"SINE2/BOV.tA", "BOVTA", "Bovc-tA2"},
-				{"SINE2/CanSINE", "CAN"},
-				{"SINE2/MIR", "MAR1", "MAR1_MD", "MAR1c_Mdo", "MON1", "SINE-1_MD", "SINE-2_MD", "WSINE1"}
-				};
-    	for (int c=0; c<seqClass.length; c++) 
-      	for (int s=1; s<seqClass[c].length; s++) classifications.put(seqClass[c][s], seqClass[c][0]);
-    	}
-    
-  	private void addUnknownClassifications (Hashtable<String, String> classifications) {
-    	String[][] seqClass = {
-     		{"DNA", "DNA-1-1_DR", "DNA-1-2_DR", "DNA-1-4_DR", "DNA-1-9_DR", "DNA-2-3_DR", "DNA-2-9_DR",
-        	"DNA-2-12_DR", "DNA-2-31_DR", "DNA-2-33_DR", "DNA-4-2_DR", "DNA-8-2_DR", "DNA-8-5_DR",
-        	"DNA-8-6_DR", "DNA-8-15_DR", "DNA-8-20_DR", "DNA-8-25_DR", "DNA-8-32_DR", "DNA-8-33_DR",
-        	"DNA-8-34_DR", "DNA-8-36_DR", "DNA-TTAA-2_DR", "DNA2-5_DR", "DNA25TWA1_DR", "DNA5-10_CGi",
-        	"DNA8-1_DR", "DNA8-5_DR", "DNA8-41_AP", "DNA9-7_STu"},
-      	{"DNA/hAT", "hAT-N71_DR", "HATN9_DR"},
-      	{"DNA/Mariner/Tc1", "PARISa_DPo", "Sagan-1_PMa"},
-      	{"ERV", "LTR6_Ami"},
-     		{"ERV/ERV2", "IAPLTR1_Mm_LTR"},
-				{"LINE/CR1", "CR1-7_DR", "CR1-15_DR", "CR1-19_DR", "CR1-20_DR", "CR1-21_DR", "CR1-23_DR",
-			  	"CR1-26_DR", "CR1-28_DR", "CR1-27_DR", "CR1-29_DR", "CR1-30_DR", "CR1-31_DR", "CR1-38_DR",
-			  	"CR1-40_DR", "CR1-43_DR"},
-				{"LINE/I", "I-2_DR"},
-				{"LINE/Jockey", "TART"},
-				{"LTR", "LTR-1_Crp", "LTR-11_DR", "LTR-1302_Crp", "LTR-1B_Crp", "LTR-3_Crp", 
-			  	"LTR-775_Gav_odd", "LTR_PP", "LTR1_CR", "LTR3_CR", "PtPiedmont_I", "PtPiedmont_LTR"},
-				{"NonLTR", "SSSINESAT"},
-				{"SINE", "S1_BN", "SINE_LC", "SINE_SO"},
-				{"Transposable Element", "TE-447_AMi"},
-				{"Unknown", "DRP_EG", "NTLTR1", "SSNHEI", "Tc1N1_DR"},
-				{"Unknown/tandem repeat", "Mf3_MF"} 
-				};
-			for (int c=0; c<seqClass.length; c++) 
-		  	for (int s=1; s<seqClass[c].length; s++) 
-		    	if (!classifications.containsKey(seqClass[c][s]))
-		      	classifications.put(seqClass[c][s], seqClass[c][0]);
-    	}
-    
-		private Hashtable<String, String> getClassifications (String libDir) {
-			Hashtable<String, String> classifications = new Hashtable<String, String>();
-			Hashtable<String, String> families = getFamilyClassifications();
-			String line = null;
-			String[] fields = null;
-			String id = null;
-			BufferedReader in = null;
-			try {
-		  	File dir = new File(libDir);
-		  	if (dir.exists()) {
-		    	File[] libs = dir.listFiles();
-			  	for (int i=0; i<libs.length; i++) {
-			    	if (libs[i].getName().endsWith("rep.ref")) {
-				    	in = new BufferedReader(new FileReader(libs[i]));
-				   		while ((line = in.readLine()) != null) 
-					    	if (line.charAt(0) == '>') {
-						    	fields = line.split("\t");
-						    	id = fields[0].substring(1);
-						    	if (!classifications.containsKey(id)) 
-							    	if (fields.length < 2) 
-								    	classifications.put(id, fields[0].endsWith("(n)")?"Simple Repeat/" + 
-								      	id:"Unknown");
-							    	else if (families.containsKey(fields[1])) 
-							      	classifications.put(id, families.get(fields[1]));
-							    	else classifications.put(id, "Unknown/" + fields[1]);
-						    	}
-				    	in.close();
-				    	}
-				  	}
-					}
-				else System.out.println("The directory " + libDir + " does not exist.");
-				}
-			catch (IOException ie) {ie.printStackTrace();}
-			reClassify(classifications);
-			addUnknownClassifications(classifications);
-			//System.out.println("There are " + classifications.size() + " classifications");
-			return classifications;
-			}
-
-		private Hashtable<String, String> getFamilyClassifications() {
-			Hashtable<String, String> families = new Hashtable<String, String>();
-			String[][] classes = {
-		  	{"DNA", "Mariner/Tc1", "hAT", "Repetitive element", "Repeat DNA", "DNA transposon", "AMTAM2", 
-		    	"APO1_AP", "APO2_AP", "ARS_TA", "BHIKHARI_I", "BMRP1", "Ginger2/TDD", "Academ", "Zisupton", 
-		    	"BREP1", "BS1", "BstUI repeat", "CAM2_GG", "CEREP3", "CERP2", "CERP3", "CERP4", "CEU86951",
-		    	"Charlie-Galluhop", "CRTOC1", "CryptonS", "C_OC", "CHD", "Chapaev", "CSP2034", "DMRP1",
-		    	"MuDR", "EnSpm", "Eutr1", "Eutr10", "Eutr11", "Eutr12", "Eutr13", "Eutr14", "Eutr15",
-					"Eutr16", "Eutr17", "Eutr18", "Eutr2", "Eutr3", "Eutr4", "Eutr5", "Eutr6", "Eutr9", "DMRPR",
-					"EUTREP11", "EUTREP12", "EUTREP14", "EUTREP15", "EUTREP16", "EUTREP2", "EUTREP4", "DRB_RN",
-					"EUTREP5", "EUTREP6", "EUTREP7", "EUTREP8", "MARE10", "MARE11", "MARE4", "MARE8", "LVU1",
-					"MARE9", "BDDF1", "P", "Merlin", "Harbinger", "Transib", "Novosib", "Helitron", "Polinton", 
-					"Kolobok", "ISL2EU", "Crypton", "MER35", "OOREP1", "piggyBac", "Zator", "Ginger1", 
-					"IS3EU", "2109A repetitive sequence", "ALBAMH1", "ARS406", "AVIXHoI", "CERP1", "CMREP", 
-					"AY1 repetitive sequence", "CSP2090", "CSP2111", "CSP2112", "DDTDD", "DMFUSHI", "DMHMR2",
-					"DQ524338", "EcoR1 repeat region", "EHINV1", "EHINV2", "EnSpm/CACTA", "ERACSI34_EA", 
-					"ERASCI228", "FPREP1", "FR1", "FUGUREP4B", "GISH1_AC", "GPRP1", "GQRP1", "HHAI", "KER",
-					"HIND3_MS", "HTE1", "IKIRARA1", "Interspersed repeat", "Inverted repeat", "JH12_XL",
-					"Interspersed repetitive sequence", "KRISPIE", "LARP1", "LARP2", "LARRP1", "LDRP2", "LR9A",
-					"LGRP1", "LIRP1", "LMRP1", "MCMREP", "MER122", "MER22", "MICROPON-LIKE-1", "MITE", "OARP1",
-					"MICROPON-LIKE-2", "miniature inverted repeat", "Minicircle", "MINIME_DN", "MRE1_OL",
-					"MSRBMI", "DMHMR1", "NTS_DM", "OFU85403", "Origin of replication", "P-element", "PAT", 
-					"PEN1", "PEN2", "PEN4", "PFRP1", "PFRP5", "pSOS family", "R1A_SS", "R1B_DS", "R1B_SS",
-					"RC14", "RCS5", "REP-1_Croc", "REP-540_Croc", "Repeat region", "Repetitive element Vi",
-					"Repetitive sequence", "RMER1", "RMER1A", "RMER1B", "RP1_GL", "RP2_HV", "RP5S", "SCAI_EH",
-					"RS3 repeat region", "SIRE", "STREPB_FA", "STREPE_PF", "SZ23_TC", "Tcn760", 
-					"transposon", "TREP_CE", "VADER", "VEGE_DW", "XbaI", "Y\' element", "5S_DM", "ALAD", 
-					"AFRP1", "MU4_ZM"},
-				{"ERV", "ERV1", "ERV2", "ERV3", "Lentivirus", "ERV4"},
-				{"LINE", "R4", "L1", "RTE", "I", "Jockey", "CR1", "RTEX", "L2", "Vingi", "CRE", "NeSL", "R2", 
-			  	"Rex1", "RandI", "Tx1", "Crack", "Nimb", "Proto1", "Proto2", "RTETP", "Hero", "Tad1", 
-			  	"Loa", "Ingi", "Outcast", "R1", "Daphne", "Ambal", "Kiri", "L2A", "L2B"},
-				{"LTR", "Gypsy", "Copia", "BEL", "DIRS"},
-				{"Satellite", "SAT", "MSAT"},
-				{"Pseudogene", "rRNA", "tRNA", "snRNA"},
-				{"Integrated Virus", "DNA Virus", "Caulimoviridae"}};
-			String clas = null;
-			for (int c=0; c<classes.length; c++) {
-				clas = classes[c][0] + "/";
-				for (int f=1; f<classes[c].length; f++) families.put(classes[c][f], clas + classes[c][f]);
+		public void add (String queryName, String targetName, int hitStart, int hitEnd) {
+			query.add(queries.add(queryName));
+			target.add(targets.add(targetName));
+			start.add(hitStart);
+			end.add(hitEnd);
+			}
+
+		//Adds the hits in the order they were read, each query and target being added to the stage's names the
+		//first time it is seen, so they are given the IDs that reading the file into them would give
+		public void addTo (HitTable hits, NameDictionary names, NameDictionary targetNames) {
+			int[] seqs = new int[queries.size()];
+			int[] ids = new int[targets.size()];
+			Arrays.fill(seqs, -1);
+			Arrays.fill(ids, -1);
+			for (int row=0; row<query.size(); row++) {
+				int q = query.get(row);
+				int t = target.get(row);
+				if (seqs[q] < 0) seqs[q] = names.add(queries.getName(q));
+				if (ids[t] < 0) ids[t] = targetNames.add(targets.getName(t));
+				hits.add(seqs[q], ids[t], start.get(row), end.get(row));
 				}
-			String[][] fams = {
-		  	{"DNA/Male specific", "Male-specific DNA", "Y chromosome", },
-		  	{"ERV", "Endogenous Retrovirus"},
-		  	{"LTR", "LTR Retrotransposon", "Long terminal repeat", "LTR-775_Gav_odd"},
-		  	{"NonLTR", "Non-LTR Retrotransposon"},
-		  	{"Simple Repeat", "AT-rich DNA repeat", "(CA)n related"},
-		  	{"SINE", "short interspersed element"},
-		  	{"Unknown", "conserved", "Internal sequence of mouse VL30 retro-element", "Nonautonomous",
-		    	"TREP16", "TREP17"},
-		  	{"Unknown/centromere repeat", "CENSTRIG", "RCH2", "CEN1_SP"},
-		  	{"Unknown/centromere-associated repeat", "ATREPTSEQ"},
-		  	{"Unknown/direct repeat", "direct repeat", "ISFUN1"},
-		  	{"Unknown/dispersed repeat", "ATREP19", "Dispersed repeat", "CEREP4", "CEREP5", "SCAR_MA",
-		    	"SCAR_MI"},
-		  	{"Unknown/midrepetitive element", "SNAPBACK_TC", "TELREP_AG"},
-		  	{"Unknown/Pericentromeric repeat", "IID2-12_AT"},
-		  	{"Unknown/tandem repeat", "AlKe1_AL", "ATREP18", "BamHI repetitive sequence", "CARO_CA", 
-		    	"D1100 family", "DEC1_DS", "DMHETRP", "CPTAN", "EcoRI family", "ECORI_Hm", "HHA1_BT", 
-		    	"OVRP1", "PTR_XL", "SAL_CL", "SAU3A_TR", "STTREP_Mp", "tandem repeat", "TANDREP_TG"}
-		  	};
-			for (int c=0; c<fams.length; c++)
-		  	for (int f=1; f<fams[c].length; f++) families.put(fams[c][f], fams[c][0]);
-			//Classes that are subclasses
-			String[] fam = {"SINE", "Simple Repeat", "Satellite", "Transposable Element", 
-		  	"Integrated Virus", "Pseudogene", "SINE1/7SL", "SINE2/tRNA", "SINE3/5S", "SINE4", "Penelope"};
-			for (int f=0; f<fam.length; f++) families.put(fam[f], fam[f]);
-			//System.out.println("There are " + families.size() + " family classifications");
-			return families;
-			}
-
-		private String getLibraryDirectory () {
-			return "/home/a1635743/RepBase20.04.fasta";
 			}
 		}
 
+
+	private static class NamedValues {// names, with a value for each, read on a loading thread in file order
+		private List<String> names = new ArrayList<String>();
+		private IntList values = new IntList();
+		}
+
+
 	private static String iDir = "./";
 	private static String oDir = "library/";
 	private static String library = oDir + "Denovo_TE_Library.fasta";
@@ -453,12 +374,23 @@ public class GenerateAnnotatedLibrary {
 	private static String Proteins = iDir + "protein.txt";
 	private static String IRS = iDir + "ConsensusSequences.fa.map"; 
 	private static String IRM = iDir + "known.txt";
+	private static String clusterFile = iDir + "ConsensusSequences.clusters.txt";
+	private static String memberFile = iDir + "ConsensusSequences.members.fa";
 	private static double restMinCoverage = .9;
 	private static double sineMinCoverage = .9;
-	private static boolean debug = false;
+	private static int threads = 1;
+	private static double[][] sweep = null;//sine, rest pairs
+	private static boolean sweepSummary = false;
+	private static String sweepFile = oDir + "coverageSweep.txt";
+	private static String[] sweepClasses = {"#Unclassified", "#PartialAnnotation", "#Chimeric", "#Retrovirus_like"};
+	private static boolean external = false;
+	private static int runSize = 1 << 22;//hits per spill file with -external
+	private static boolean debug = Boolean.getBoolean("carp.debug");
 
 	public static void main (String[] args) {
+		args = getOptions(args);
 		setSineMinCoverage (args);
+		setThreads(args);
 		//debug = true;
 		boolean headersOnly = false;
 		try {
@@ -469,181 +401,568 @@ public class GenerateAnnotatedLibrary {
 			out.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
+		Metrics.write();
+		}
+
+
+	private static BitSet addFamilies (NamedValues read, NameDictionary names) {
+		BitSet families = new BitSet();
+		for (String name : read.names) families.set(names.add(name));
+		trace("There are " + families.cardinality() + " families");
+		return families;
+		}
+
+	private static IntList addLengths (NamedValues read, NameDictionary names) {
+		IntList lengths = new IntList(-1);
+		for (int i=0; i<read.names.size(); i++) lengths.set(names.add(read.names.get(i)), read.values.get(i));
+		trace("There are " + lengths.keySet().cardinality() + " consensus sequence lengths");
+		return lengths;
+		}
+
+	private static void addIRHits (CS[] wantedCS, HitTable irHits) {
+		for (int id=0; id<wantedCS.length; id++) if (wantedCS[id] != null) wantedCS[id].addHits(irHits, id);
 		}
 
+	static void addIRHits (CS[] wantedCS, NameDictionary names, NameDictionary targets) {
+		BitSet wanted = new BitSet();
+		for (int id=0; id<wantedCS.length; id++) if (wantedCS[id] != null) wanted.set(id);
+		HitTable irHits = new HitTable();
+		addIRHits(irHits, wanted, names, targets);
+		addIRHits(wantedCS, irHits);
+		}
 
-	private static void addIRHits (Hashtable<String, CS> wantedCS) {
+	private static void addIRHits (HitTable hits, BitSet wanted, NameDictionary names, NameDictionary targets) {
 		String line = null;
+		String irs = RepeatMaskerOut.getMapFile(IRS);
+		Metrics.Step step = Metrics.start("GenerateAnnotatedLibrary", "IR hit loading");
+		long lines = 0;
+		String storeFile = HitStore.getStoreFile(irs);
+		if (storeFile != null) {
+			try {
+				HitStore store = new HitStore(storeFile);
+				lines = addHits(hits, wanted, store, names, targets);
+				}
+			catch (IOException ie) {ie.printStackTrace();}
+			step.end(lines, Metrics.getSize(storeFile), 0);
+			return;
+			}
 		try {
-			StringTokenizer st = null;
-			BufferedReader in = new BufferedReader(new FileReader(IRS));
+			boolean repeatMasker = RepeatMaskerOut.isRepeatMasker(irs);
+			BufferedReader in = InputFile.getReader(irs);
 			while ((line = in.readLine()) != null) {
-				st = new StringTokenizer(line);
-				String seq = st.nextToken();
-				if (wantedCS.containsKey(seq)) {
-					int start = Integer.parseInt(st.nextToken());
-					int end = Integer.parseInt(st.nextToken());
-					wantedCS.get(seq).addHit(new Hit(st.nextToken(), start, end));
+				lines++;
+				String[] fields = ClassifyConsensusSequences.getMapFields(line, repeatMasker);
+				if (fields == null || fields.length < 4) continue;
+				int seq = names.get(fields[0]);
+				if (seq >= 0 && wanted.get(seq)) {
+					int start = Integer.parseInt(fields[1]);
+					int end = Integer.parseInt(fields[2]);
+					hits.add(seq, targets.add(fields[3]), start, end);
 					}
 				}
 				in.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
 		catch (NumberFormatException ne) {System.out.println("Could not parse: " + line);}
+		step.end(lines, Metrics.getSize(irs), 0);
 		}
 		
-	private static void addRetroHits(Hashtable<String, List<Hit>> hits, String gffFile) {
-		String line = null;
-		try {
-			BufferedReader in = new BufferedReader(new FileReader(gffFile));
-			String[] fields = null;
-			while ((line = in.readLine()) != null) {
-				fields = line.split("\t");
-				if (!hits.containsKey(fields[0])) {
-					hits.put(fields[0], new ArrayList<Hit>());
-					//trace("Adding Sequence: " + fields[0]);
-					}
-				int i1 = fields[8].indexOf(" ") + 1;
-				int i2 = fields[8].indexOf(" ", i1);
-				String target = fields[8].substring(i1, i2);
-				hits.get(fields[0]).add(new Hit(target, Integer.parseInt(fields[3]), 
-					Integer.parseInt(fields[4])));
+	//The rows of the wanted queries only, found through the store's per-query index so the other families'
+	//rows are not read. Each query's rows are in the order of its text file, and each target is looked up once.
+	private static long addHits (HitTable hits, BitSet wanted, HitStore store, NameDictionary names, 
+		NameDictionary targets) {
+		int[] ids = new int[store.getTargets()];
+		Arrays.fill(ids, -1);
+		long rows = 0;
+		for (int seq=wanted.nextSetBit(0); seq>=0; seq=wanted.nextSetBit(seq + 1)) {
+			int q = store.findQuery(names.getName(seq));
+			int entries = q < 0?0:store.getEntries(q);
+			for (int e=0; e<entries; e++) {
+				int row = store.getRow(q, e);
+				int t = store.getTarget(row);
+				if (ids[t] < 0) ids[t] = targets.add(store.getTargetName(t));
+				hits.add(seq, ids[t], store.getStart(row), store.getEnd(row));
 				}
-			in.close();
-			trace("There are " + hits.size() + " RetroHits after adding " + gffFile);
+			rows += entries;
 			}
-		catch (IOException ie) {ie.printStackTrace();}
-		catch (NumberFormatException ne) {System.out.println("Could not parse: " + line);}
+		return rows;
 		}
 
-	private static Hashtable<String, String> getAllRetroAnnotations() {
-		String[] files = {GBTE, ALLR};
-		Hashtable<String, String> annos = new Hashtable<String, String>();
-		String line = null;
-		BufferedReader in = null;
-		for (int i=0; i<files.length; i++) 
-			try {
-				in = new BufferedReader(new FileReader(files[i]));
-				while ((line = in.readLine()) != null) 
-					if (line.length() > 0 && line.charAt(0) == '>') {
-						int i1 = line.indexOf("|", 4) + 1;
-						int i2 = line.indexOf("|", line.indexOf("|", i1)+1);
-						annos.put(line.substring(i1, i2), line.substring(i2+2));
-						}
-				in.close();
-				trace("There are " + annos.size() + " uniquely identified sequences after " + files[i]); 
-				}
-			catch (IOException ie) {ie.printStackTrace();}
+	static void addRetroHits(HitTable hits, String gffFile, NameDictionary names, 
+		NameDictionary targets) {
+		readRetroHits(gffFile).addTo(hits, names, targets);
+		trace("There are " + hits.size() + " RetroHits after adding " + gffFile);
+		}
+
+	//Counts the sequence in its class under each of the sweep's coverage limits (the last class is classified)
+	private static void addSweepCounts (int[][] counts, CS cs, int copies) {
+		for (int i=0; i<sweep.length; i++) {
+			String classification = cs.getClassification(sweep[i][0], sweep[i][1]);
+			int c = 0;
+			while (c < sweepClasses.length && !sweepClasses[c].equals(classification)) c++;
+			counts[i][c] += copies;
+			}
+		}
+
+	//The sequences only share the targets, retro annotations, IR families and classifier, which are all read only
+	private static void annotateAndClassify (CS[] wantedCS, int start, int end, NameDictionary targets, 
+		RetroAnnotations retroAnno, BitSet irs, RBClassifier classifier) {
+		for (int id=start; id<end; id++) 
+			if (wantedCS[id] != null) 
+				wantedCS[id].annotateAndClassify(targets, retroAnno, irs, classifier);
+		}
+
+	//The sequence and the members collapsed into it that are not in ConsensusSequences.fa themselves
+	private static int countCopies (CS cs, NameDictionary names, IntList lengths, 
+		CollapseConsensusSequences.Members members) {
+		int copies = 1;
+		if (members != null)
+			for (int m=members.first(cs.name); m>=0; m=members.next(m)) 
+				if (!isConsensus(members.getName(m), names, lengths)) copies++;
+		return copies;
+		}
+
+	private static RetroAnnotations getAllRetroAnnotations() {
+		RetroAnnotations annos = new RetroAnnotations(GBTE, ALLR);
+		trace("There are " + annos.size() + " identified sequences in the indexes of " + GBTE + " and " + ALLR);
 		return annos;
 		}
 
-	private static Set<String> getFamilies(String inFile) {
-		Set<String> families = new HashSet<String>();
-		try {
-			BufferedReader in = new BufferedReader(new FileReader(inFile));
-			in.readLine();
-			String line = null;
-			while ((line = in.readLine()) != null) families.add(line.substring(0, line.indexOf(" ")));
-			in.close();
+	//Reads the input on a loading thread, or here when there are none
+	private static <T> Future<T> load (ExecutorService loaders, Callable<T> input) {
+		if (loaders != null) return loaders.submit(input);
+		FutureTask<T> task = new FutureTask<T>(input);
+		task.run();
+		return task;
+		}
+
+	private static Future<NamedValues> loadFamilies (ExecutorService loaders, final String inFile) {
+		return load(loaders, new Callable<NamedValues>() {
+			public NamedValues call() {return readFamilies(inFile);}
+			});
+		}
+
+	static RetroAnnotations loadRetroAnnotations() {// also used by ClassificationService
+		Metrics.Step step = Metrics.start("GenerateAnnotatedLibrary", "retro annotation loading");
+		RetroAnnotations retroAnno = getAllRetroAnnotations();
+		step.end(retroAnno.size(), retroAnno.getIndexSize(), 0);
+		return retroAnno;
+		}
+
+	private static Future<HitColumns> loadRetroHits (ExecutorService loaders, final String gffFile) {
+		return load(loaders, new Callable<HitColumns>() {
+			public HitColumns call() {return readRetroHits(gffFile);}
+			});
+		}
+
+	private static String[] getOptions (String[] args) {
+		List<String> rest = new ArrayList<String>();
+		for (int i=0; i<args.length; i++)
+			if (args[i].equals("-sweep") && i + 1 < args.length) setSweep(args[++i]);
+			else if (args[i].equals("-summary")) setSweepSummary(true);
+			else if (args[i].equals("-external")) external = true;
+			else if (args[i].equals("-runSize") && i + 1 < args.length) 
+				try {runSize = Integer.parseInt(args[++i]);}
+				catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[i]);}
+			else rest.add(args[i]);
+		return rest.toArray(new String[rest.size()]);
+		}
+
+	private static <T> T get (Future<T> input) {// the input loaded, rethrowing what stopped its loading
+		try {return input.get();}
+		catch (InterruptedException ie) {throw new IllegalStateException(ie);}
+		catch (ExecutionException ee) {
+			if (ee.getCause() instanceof Error) throw (Error) ee.getCause();
+			if (ee.getCause() instanceof RuntimeException) throw (RuntimeException) ee.getCause();
+			throw new IllegalStateException(ee.getCause());
 			}
-		catch (IOException ie) {ie.printStackTrace();}
-		trace("There are " + families.size() + " families");
+		}
+
+	private static BitSet getFamilies(String inFile, NameDictionary names) {
+		Metrics.Step step = Metrics.start("GenerateAnnotatedLibrary", "family loading");
+		BitSet families = addFamilies(readFamilies(inFile), names);
+		step.end(families.cardinality(), Metrics.getSize(inFile), 0);
 		return families;
 		}
 		
-	private static Hashtable<String, Integer> getLengths (String inFile) {
-		Hashtable<String, Integer> lengths = new Hashtable<String, Integer>();
-		try {
-			BufferedReader in = new BufferedReader(new FileReader(inFile));
-			int length = 0;
-			String id = null;
-			String line = null;
-			while ((line = in.readLine()) != null) 
-				if (line.charAt(0) == '>') {
-					if (id != null) lengths.put(id, new Integer(length));
-					int index = line.indexOf(" ");
-					id = index<0?line.substring(1):line.substring(1, index);
-					length = 0;
-					}
-				else length += line.length();
-			lengths.put(id, new Integer(length));
-			in.close();
-			}
-		catch (IOException ie) {ie.printStackTrace();}
-		trace("There are " + lengths.size() + " consensus sequence lengths");
+	private static IntList getLengths (FastaReader in, NameDictionary names) {
+		Metrics.Step step = Metrics.start("GenerateAnnotatedLibrary", "length loading");
+		IntList lengths = addLengths(readLengths(in), names);
+		step.end(lengths.keySet().cardinality(), in.getSize(), 0);
 		return lengths;
 		}
 
-	private static Hashtable<String, List<Hit>> getRetroHits() {
-		Hashtable<String, List<Hit>> retroHits = new Hashtable<String, List<Hit>>();
+	private static HitTable getRetroHits(HitTable retroHits, NameDictionary names, NameDictionary targets) {
+		Metrics.Step step = Metrics.start("GenerateAnnotatedLibrary", "hit loading");
 		String[] retroHitFiles = {TEgff, ERVgff};
-		for (int i=0; i<retroHitFiles.length; i++) addRetroHits(retroHits, retroHitFiles[i]);
+		long read = 0;
+		for (int i=0; i<retroHitFiles.length; i++) {
+			addRetroHits(retroHits, retroHitFiles[i], names, targets);
+			read += Metrics.getSize(BlastTabularReader.getHitFile(retroHitFiles[i]));
+			}
 		trace("There are " + retroHits.size() + " sequences with hits after TEs and all Retrovirus");
+		step.end(retroHits.size(), read, 0);
 		return retroHits;
 		}
+
+	private static double[][] getLimits() {// the library's coverage limits, then those of the sweep's libraries
+		int libraries = sweep == null || sweepSummary?1:sweep.length + 1;
+		double[][] limits = new double[libraries][];
+		limits[0] = new double[] {sineMinCoverage, restMinCoverage};
+		for (int i=1; i<libraries; i++) limits[i] = sweep[i - 1];
+		return limits;
+		}
+
+	private static String getSweepLibrary (double[] limits) {
+		return oDir + "Denovo_TE_Library." + limits[0] + "_" + limits[1] + ".fasta";
+		}
+
+	private static long getWrittenSize (double[][] limits) {// the library and those of the sweep
+		long size = Metrics.getSize(library);
+		for (int i=1; i<limits.length; i++) size += Metrics.getSize(getSweepLibrary(limits[i]));
+		if (sweep != null && sweepSummary) size += Metrics.getSize(sweepFile);
+		return size;
+		}
 		
-	private static Hashtable<String, CS> getWantedCSs (Hashtable<String, List<Hit>> retroHits) {
-		Hashtable<String, Integer> lengths = getLengths(CSFile);
-		trace("There are " + lengths.size() + " sequence lengths from " + CSFile);
-		removeFamilies(lengths, getFamilies(SSR));
-		trace("There are " + lengths.size() + " sequence lengths after removing " + SSR + " sequences");
-		Set<String> proteins = getFamilies(Proteins);
-		proteins.removeAll(retroHits.keySet());
-		removeFamilies(lengths, proteins);
-		Hashtable<String, CS> wantedCS = new Hashtable<String, CS>();
-		for (Enumeration<String> e=lengths.keys(); e.hasMoreElements();) {
-			String key = e.nextElement();
-			CS cs = new CS(key, lengths.get(key));
-			if (retroHits.containsKey(key)) cs.addHits(retroHits.get(key));
-			wantedCS.put(key, cs);
-			}
-		trace("There are " + wantedCS.size() + " wanted consensus sequences"); 
+	static CS[] getWantedCSs (NameDictionary names, HitTable retroHits, 
+		IntList lengths, BitSet ssrs, BitSet proteins) {
+		CS[] wantedCS = new CS[lengths.size()];
+		int nWanted = 0;
+		for (int id=0; id<lengths.size(); id++) 
+			if (isWanted(id, retroHits, lengths, ssrs, proteins)) {
+				wantedCS[id] = new CS(id, names.getName(id), lengths.get(id));
+				wantedCS[id].addHits(retroHits, id);
+				nWanted++;
+				}
+		trace("There are " + nWanted + " wanted consensus sequences"); 
 		return wantedCS;
 		}
 
 
-	private static void removeFamilies (Hashtable<String, Integer> lengths, Set<String> set) {
-		for (Iterator iter=set.iterator(); iter.hasNext();) lengths.remove(iter.next());
+	//Whether the name is of a sequence in ConsensusSequences.fa, which has a length, rather than only of hits
+	private static boolean isConsensus (String name, NameDictionary names, IntList lengths) {
+		return lengths.get(names.get(name)) >= 0;
+		}
+
+	private static boolean isWanted (int id, HitTable retroHits, IntList lengths, BitSet ssrs, BitSet proteins) {
+		return lengths.get(id) >= 0 && !ssrs.get(id) && (!proteins.get(id) || retroHits.containsKey(id));
+		}
+
+	private static BufferedWriter[] openLibraries (BufferedWriter out, double[][] limits) throws IOException {
+		BufferedWriter[] outs = new BufferedWriter[limits.length];
+		outs[0] = out;
+		for (int i=1; i<outs.length; i++) outs[i] = new BufferedWriter(new FileWriter(getSweepLibrary(limits[i])));
+		return outs;
+		}
+
+
+	private static NamedValues readFamilies (String inFile) {// the first word of each line after the header
+		NamedValues families = new NamedValues();
+		try {
+			BufferedReader in = InputFile.getReader(inFile);
+			in.readLine();
+			String line = null;
+			while ((line = in.readLine()) != null) families.names.add(line.substring(0, line.indexOf(" ")));
+			in.close();
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		return families;
+		}
+
+	private static NamedValues readLengths (FastaReader in) {
+		NamedValues lengths = new NamedValues();
+		in.reset();
+		while (in.nextRecord()) {
+			lengths.names.add(in.getId());
+			lengths.values.add(in.getLength());
+			}
+		return lengths;
+		}
+
+	//The hits of a gff, -outfmt 6 file or the HitStore of either, by names of their own
+	private static HitColumns readRetroHits (String gffFile) {
+		HitColumns hits = new HitColumns();
+		String line = null;
+		gffFile = BlastTabularReader.getHitFile(gffFile);
+		String storeFile = HitStore.getStoreFile(gffFile);
+		try {
+			if (storeFile != null) {
+				HitStore store = new HitStore(storeFile);
+				for (int row=0; row<store.getRows(); row++) 
+					hits.add(store.getQueryName(store.getQuery(row)), store.getTargetName(store.getTarget(row)), 
+						store.getStart(row), store.getEnd(row));
+				}
+			else if (BlastTabularReader.isTabular(gffFile)) {
+				BlastTabularReader in = new BlastTabularReader(gffFile);
+				while (in.nextHit()) hits.add(in.getQuery(), in.getSubject(), in.getQueryStart(), in.getQueryEnd());
+				in.close();
+				}
+			else {
+				BufferedReader in = InputFile.getReader(gffFile);
+				String[] fields = null;
+				while ((line = in.readLine()) != null) {
+					fields = line.split("\t");
+					int i1 = fields[8].indexOf(" ") + 1;
+					int i2 = fields[8].indexOf(" ", i1);
+					hits.add(fields[0], fields[8].substring(i1, i2), Integer.parseInt(fields[3]), 
+						Integer.parseInt(fields[4]));
+					}
+				in.close();
+				}
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		catch (NumberFormatException ne) {System.out.println("Could not parse: " + line);}
+		return hits;
+		}
+
+	//Reads and writes the files in dir rather than the working directory, as for the benchmarks and tests
+	static void setDirectory (String dir) {
+		iDir = dir;
+		oDir = dir + "library/";
+		library = oDir + "Denovo_TE_Library.fasta";
+		headers = oDir + "wantedCSHeaders.txt";
+		CSFile = iDir + "ConsensusSequences.fa";
+		TEgff = iDir + "notKnown.fa.tewb.gff";
+		GBTE = iDir + "GB_TE.21032016.fa";
+		ERVgff = iDir + "notKnown.fa.ervwb.gff";
+		ALLR = iDir + "all_retrovirus.fasta";
+		SSR = iDir + "SSR.txt";
+		Proteins = iDir + "protein.txt";
+		IRS = iDir + "ConsensusSequences.fa.map";
+		IRM = iDir + "known.txt";
+		clusterFile = iDir + "ConsensusSequences.clusters.txt";
+		memberFile = iDir + "ConsensusSequences.members.fa";
+		sweepFile = oDir + "coverageSweep.txt";
 		}
 
-	private static void setSineMinCoverage (String[] args) {
+	static void setExternal (boolean sorted) {external = sorted;}
+
+	static void setSineMinCoverage (String[] args) {
 		if (args != null && args.length > 0)
 			try {sineMinCoverage = Double.parseDouble(args[0]);}
 			catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[0]);} 
 		}
+
+	static void setSweep (String pairs) {
+		String[] fields = pairs.split(",");
+		sweep = new double[fields.length][];
+		try {
+			for (int i=0; i<fields.length; i++) {
+				int colon = fields[i].indexOf(":");
+				sweep[i] = new double[] {Double.parseDouble(fields[i].substring(0, colon)), 
+					Double.parseDouble(fields[i].substring(colon + 1))};
+				}
+			}
+		catch (RuntimeException re) {
+			System.out.println("Could not parse: " + pairs);
+			sweep = null;
+			}
+		}
+
+	static void setSweepSummary (boolean summary) {sweepSummary = summary;}
+
+	static void setThreads (int n) {threads = Math.max(1, n);}
+
+	private static void setThreads (String[] args) {
+		if (args != null && args.length > 1)
+			try {setThreads(Integer.parseInt(args[1]));}
+			catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[1]);} 
+		}
 		
 	private static void trace (String text) {if (debug) System.out.println(text);}
 								
+	//Used by AnnotationPipeline with the consensus set, families and CENSOR hits found by the earlier stages
+	static void writeLibrary (FastaReader consensus, NameDictionary names, IntList lengths, 
+		NameDictionary targets, BitSet ssrs, BitSet proteins, BitSet irs, HitTable irHits) {
+		try {
+			BufferedWriter out = new BufferedWriter(new FileWriter(library));
+			CS[] wantedCS = getWantedCSs(names, getRetroHits(new HitTable(), names, targets), lengths, ssrs, proteins);
+			addIRHits(wantedCS, irHits);
+			writeConsensusSequences(out, false, wantedCS, names, lengths, targets, irs, consensus, loadRetroAnnotations(), 
+				new RBClassifier(targets));
+			out.close();
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		}
+
+	//Given threads, the inputs are read at once on loading threads, each into names of its own, and added to
+	//the stage's names and targets here in the order they were read one after another, so the IDs (and so the
+	//library) are the same either way. The IR hits are read for the wanted sequences as soon as those are
+	//known, while the retro annotations, known.txt and the RepBase index may still be loading.
 	private static void writeConsensusSequences (BufferedWriter out, boolean headersOnly) {
-		//get wanted
-		Hashtable<String, CS> wantedCS = getWantedCSs(getRetroHits());
-		//get IR annots for wanted
-		addIRHits(wantedCS);
+		if (external && !headersOnly) {
+			writeExternalLibrary(out);
+			return;
+			}
+		String[] retroHitFiles = {TEgff, ERVgff};
+		ExecutorService loaders = threads > 1?Executors.newFixedThreadPool(Math.min(threads, 8)):null;
+		try {
+			final FastaReader consensus = new FastaReader(CSFile);
+			Metrics.Step step = Metrics.start("GenerateAnnotatedLibrary", "input loading");
+			Future<RetroAnnotations> retroAnno = load(loaders, new Callable<RetroAnnotations>() {
+				public RetroAnnotations call() {return getAllRetroAnnotations();}
+				});
+			Future<RBClassifier> classifier = load(loaders, new Callable<RBClassifier>() {
+				public RBClassifier call() {return new RBClassifier(new NameDictionary());}
+				});
+			Future<NamedValues> lengthsRead = load(loaders, new Callable<NamedValues>() {
+				public NamedValues call() {return readLengths(consensus);}
+				});
+			List<Future<HitColumns>> retroRead = new ArrayList<Future<HitColumns>>();
+			for (String retroHitFile : retroHitFiles) retroRead.add(loadRetroHits(loaders, retroHitFile));
+			Future<NamedValues> ssrRead = loadFamilies(loaders, SSR);
+			Future<NamedValues> proteinRead = loadFamilies(loaders, Proteins);
+			Future<NamedValues> irmRead = loadFamilies(loaders, IRM);
+			NameDictionary names = new NameDictionary();
+			NameDictionary targets = new NameDictionary();
+			IntList lengths = addLengths(get(lengthsRead), names);
+			HitTable retroHits = new HitTable();
+			long read = consensus.getSize() + Metrics.getSize(SSR) + Metrics.getSize(Proteins) + Metrics.getSize(IRM);
+			for (int i=0; i<retroHitFiles.length; i++) {
+				get(retroRead.get(i)).addTo(retroHits, names, targets);
+				trace("There are " + retroHits.size() + " RetroHits after adding " + retroHitFiles[i]);
+				read += Metrics.getSize(BlastTabularReader.getHitFile(retroHitFiles[i]));
+				}
+			CS[] wantedCS = getWantedCSs(names, retroHits, lengths, addFamilies(get(ssrRead), names), 
+				addFamilies(get(proteinRead), names));
+			addIRHits(wantedCS, names, targets);
+			BitSet irs = addFamilies(get(irmRead), names);
+			RBClassifier repBase = get(classifier);
+			repBase.setTargets(targets);
+			RetroAnnotations annotations = get(retroAnno);
+			step.end(lengths.keySet().cardinality(), read + annotations.getIndexSize(), 0);
+			writeConsensusSequences(out, headersOnly, wantedCS, names, lengths, targets, irs, consensus, annotations, repBase);
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		finally {if (loaders != null) loaders.shutdown();}
+		}
+
+	private static void writeConsensusSequences (BufferedWriter out, boolean headersOnly, CS[] wantedCS, 
+		NameDictionary names, IntList lengths, NameDictionary targets, BitSet irs, FastaReader consensus, RetroAnnotations retroAnno, 
+		RBClassifier classifier) {
 		//process wanted and output them to library
-		Hashtable<String, String> retroAnno = getAllRetroAnnotations();
-		Set<String> irs = getFamilies(IRM);
-		RBClassifier classifier = new RBClassifier();
-		for (Enumeration<CS> e=wantedCS.elements(); e.hasMoreElements();) 
-			e.nextElement().annotateAndClassify(retroAnno, irs, classifier, sineMinCoverage, 
-			restMinCoverage);
-		if (headersOnly) writeHeaders(out, wantedCS);
-		else writeWantedSequences(out, CSFile, wantedCS);
+		Metrics.Step step = Metrics.start("GenerateAnnotatedLibrary", "classification");
+		int wanted = 0;
+		for (int id=0; id<wantedCS.length; id++) if (wantedCS[id] != null) wanted++;
+		if (threads > 1) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			pool.invoke(new AnnotateTask(wantedCS, 0, wantedCS.length, targets, retroAnno, irs, classifier));
+			pool.shutdown();
+			}
+		else annotateAndClassify(wantedCS, 0, wantedCS.length, targets, retroAnno, irs, classifier);
+		step.end(wanted, 0, 0);
+		step = Metrics.start("GenerateAnnotatedLibrary", "writing");
+		double[][] limits = getLimits();
+		CollapseConsensusSequences.Members members = CollapseConsensusSequences.Members.read(clusterFile, memberFile);
+		if (headersOnly) writeHeaders(out, wantedCS, names, lengths, members);
+		else //write the sweep's libraries in the same pass as the library
+			try {
+				BufferedWriter[] outs = openLibraries(out, limits);
+				writeWantedSequences(outs, limits, consensus, names, lengths, wantedCS, members);
+				for (int i=1; i<outs.length; i++) outs[i].close();
+				out.flush();
+				}
+			catch (IOException ie) {ie.printStackTrace();}
+		if (sweep != null && sweepSummary) {
+			int[][] counts = new int[sweep.length][sweepClasses.length + 1];
+			for (int id=0; id<wantedCS.length; id++) 
+				if (wantedCS[id] != null) addSweepCounts(counts, wantedCS[id], countCopies(wantedCS[id], names, lengths, 
+					members));
+			writeSweepSummary(counts);
+			}
+		step.end(wanted * limits.length, consensus.getSize(), getWrittenSize(limits));
+		}
+
+	//With -external the retro and IR hits are sorted by query into spill files rather than held for every
+	//sequence, and each wanted sequence is annotated, classified and written in turn as the sorted hits are
+	//merged, so only one sequence's hits are in memory at a time. The sequence names must be unique, so that
+	//their IDs are in the order of ConsensusSequences.fa.
+	private static void writeExternalLibrary (BufferedWriter out) {
+		try {
+			FastaReader consensus = new FastaReader(CSFile);
+			NameDictionary names = new NameDictionary();
+			NameDictionary targets = new NameDictionary();
+			IntList lengths = getLengths(consensus, names);
+			HitSorter hits = new HitSorter(runSize, null);
+			getRetroHits(hits, names, targets);
+			BitSet ssrs = getFamilies(SSR, names);
+			BitSet proteins = getFamilies(Proteins, names);
+			BitSet wanted = new BitSet();
+			for (int id=0; id<lengths.size(); id++) if (isWanted(id, hits, lengths, ssrs, proteins)) wanted.set(id);
+			addIRHits(hits, wanted, names, targets);
+			BitSet irs = getFamilies(IRM, names);
+			RetroAnnotations retroAnno = loadRetroAnnotations();
+			Metrics.Step step = Metrics.start("GenerateAnnotatedLibrary", "merged classification and writing");
+			RBClassifier classifier = new RBClassifier(targets);
+			double[][] limits = getLimits();
+			CollapseConsensusSequences.Members members = CollapseConsensusSequences.Members.read(clusterFile, memberFile);
+			BufferedWriter[] outs = openLibraries(out, limits);
+			int[][] counts = sweep != null && sweepSummary?new int[sweep.length][sweepClasses.length + 1]:null;
+			boolean more = hits.next();
+			int n = 0;
+			consensus.reset();
+			while (consensus.nextRecord()) {
+				int id = names.get(consensus.getId());
+				if (id < 0 || !wanted.get(id)) continue;
+				while (more && hits.getQuery() < id) more = hits.next();
+				CS cs = new CS(id, names.getName(id), lengths.get(id));
+				for (; more && hits.getQuery() == id; more = hits.next()) 
+					cs.addHit(hits.getTarget(), hits.getStart(), hits.getEnd());
+				cs.annotateAndClassify(targets, retroAnno, irs, classifier);
+				if (counts != null) addSweepCounts(counts, cs, countCopies(cs, names, lengths, members));
+				for (int o=0; o<outs.length; o++) {
+					outs[o].write(cs.getFastaHeader(limits[o][0], limits[o][1]));
+					consensus.writeBody(outs[o]);
+					}
+				writeMembers(outs, limits, cs, names, lengths, members);
+				n++;
+				}
+			System.out.println(n + " consensus sequences classified from " + hits.getRuns() + " sorted runs of hits");
+			hits.close();
+			for (int i=1; i<outs.length; i++) outs[i].close();
+			out.flush();
+			if (counts != null) writeSweepSummary(counts);
+			step.end(n, consensus.getSize(), getWrittenSize(limits));
+			}
+		catch (IOException ie) {ie.printStackTrace();}
 		}
 
-	private static void writeHeaders(BufferedWriter out, Hashtable<String, CS> wantedCS) {
+	private static void writeHeaders(BufferedWriter out, CS[] wantedCS, NameDictionary names, IntList lengths, 
+		CollapseConsensusSequences.Members members) {
 		try {
-			for (Enumeration<CS> e=wantedCS.elements(); e.hasMoreElements();) 
-				out.write(e.nextElement().getFastaHeader());			
+			for (int id=0; id<wantedCS.length; id++) 
+				if (wantedCS[id] != null) {
+					out.write(wantedCS[id].getFastaHeader(sineMinCoverage, restMinCoverage));
+					if (members != null)
+						for (int m=members.first(wantedCS[id].name); m>=0; m=members.next(m))
+							if (!isConsensus(members.getName(m), names, lengths))
+								out.write(wantedCS[id].getFastaHeader(members.getName(m), sineMinCoverage, restMinCoverage));
+					}
 			}
 		catch (IOException ie) {ie.printStackTrace();}
 		}
+
+	//Writes the members collapsed into the sequence after it, with its classification. Members that are in
+	//ConsensusSequences.fa themselves (when it was not replaced by the representatives) are written as such.
+	private static void writeMembers (BufferedWriter[] outs, double[][] limits, CS cs, NameDictionary names, 
+		IntList lengths, CollapseConsensusSequences.Members members) throws IOException {
+		if (members == null) return;
+		for (int m=members.first(cs.name); m>=0; m=members.next(m)) 
+			if (!isConsensus(members.getName(m), names, lengths)) {
+				FastaReader record = members.getRecord(m);
+				for (int o=0; o<outs.length; o++) {
+					outs[o].write(cs.getFastaHeader(members.getName(m), limits[o][0], limits[o][1]));
+					record.writeBody(outs[o]);
+					}
+				}
+		}
 				
 	private static void writeSatellite(BufferedWriter out, String inFile, String id, boolean headersOnly) 
 		{
 		try {
 			out.write(">" + id + "\n");
 			if (!headersOnly) {
-				BufferedReader in = new BufferedReader(new FileReader(inFile));
+				BufferedReader in = InputFile.getReader(inFile);
 				in.readLine();
 				String line = null;
 				while ((line = in.readLine()) != null) out.write(line + "\n");
@@ -653,22 +972,37 @@ public class GenerateAnnotatedLibrary {
 		catch (IOException ie) {ie.printStackTrace();}
 		}
 		
-	private static void writeWantedSequences (BufferedWriter out, String seqFile, 
-						  Hashtable<String, CS> wantedCS) {
-	    try {
-		BufferedReader in = new BufferedReader(new FileReader(seqFile));
-			String line = null;
-			boolean wanted = false;
-			while ((line = in.readLine()) != null) 
-			    if (line.charAt(0) == '>') {
-				int index = line.indexOf(" ");
-				String name = index<0?line.substring(1):line.substring(1,index);
-				wanted = wantedCS.containsKey(name);
-				if (wanted) out.write(wantedCS.get(name).getFastaHeader());
-			    }
-			    else if (wanted) out.write(line + "\n");
+	private static void writeSweepSummary (int[][] counts) {
+		try {
+			BufferedWriter out = new BufferedWriter(new FileWriter(sweepFile));
+			out.write("sineMinCoverage\trestMinCoverage\tUnclassified\tPartialAnnotation\tChimeric\t" + 
+				"Retrovirus_like\tClassified\n");
+			for (int i=0; i<sweep.length; i++) {
+				out.write(sweep[i][0] + "\t" + sweep[i][1]);
+				for (int c=0; c<counts[i].length; c++) out.write("\t" + counts[i][c]);
+				out.write("\n");
+				}
+			out.close();
+			}
+		catch (IOException ie) {ie.printStackTrace();}
 		}
+
+	private static void writeWantedSequences (BufferedWriter[] outs, double[][] limits, FastaReader in, 
+		NameDictionary names, IntList lengths, CS[] wantedCS, CollapseConsensusSequences.Members members) {
+		try {
+			in.reset();
+			while (in.nextRecord()) {
+				int id = names.get(in.getId());
+				if (id >= 0 && id < wantedCS.length && wantedCS[id] != null) {
+					for (int o=0; o<outs.length; o++) {
+						outs[o].write(wantedCS[id].getFastaHeader(limits[o][0], limits[o][1]));
+						in.writeBody(outs[o]);
+						}
+					writeMembers(outs, limits, wantedCS[id], names, lengths, members);
+					}
+				}
+			}
 		catch (IOException ie) {ie.printStackTrace();}
-	}		
+		}		
 }
 
@@ -0,0 +1,320 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*************************
+GenomeCoverage
+	Summarizes the repeat coverage of a genome annotated with the CARP library (and RepBase), as the bp of
+	each sequence (chromosome) covered by each repeat class and family. The genome's CENSOR map file, or
+	RepeatMasker .out file, is streamed a line at a time, and the hits of each run of a sequence's lines are
+	swept on a fork join pool while the next run is read, each run's bp being added to its sequence's as
+	soon as it is swept so that only the runs being swept are held. Where hits overlap, each base is counted
+	once, for the best scoring hit covering it (the first added, on a tie). A library target's family is its
+	#class (Unclassified, Chimeric, PartialAnnotation or Retrovirus_like), or the RBClassifier classification
+	of the RepBase sequence named after its : ; any other target (a RepBase sequence) is classified by
+	RBClassifier. The library names the targets of a RepeatMasker run, which drops the #class. The class
+	of a family is its text up to the first /. A map file is normally grouped by sequence; when a sequence's
+	lines are split across the file, those sequences are read again in a second pass and swept whole.
+	Date: October 17, 2026
+	Inputs: hg19v37.mfa.map (the CENSOR map file of the genome, or RepeatMasker's .out, either may be gzipped)
+		Denovo_TE_Library.fasta (the library the genome was annotated with, optional for CENSOR)
+		RepBase20.04.index (see RBClassifier)
+	Outputs: <hit file>.coverage.txt, a line of Sequence, Class, Family and bp for each family, class (Family
+		All) and sequence (Class All), with the genome's totals as sequence All
+	Usage: java GenomeCoverage [-library Denovo_TE_Library.fasta] hitFile [threads]
+***************************/
+
+
+public class GenomeCoverage {
+	private static class Batch extends RecursiveAction {// the hits of a run of one sequence's lines
+		private static final long serialVersionUID = 1L;
+		private int sequence;
+		private int n = 0;
+		private int[] starts = new int[1024];
+		private int[] ends = new int[1024];
+		private int[] families = new int[1024];
+		private double[] scores = new double[1024];
+		private int maxFamily = -1;
+		private long[] covered = null;//bp by family, once swept
+
+		public Batch (int sequence) {this.sequence = sequence;}
+
+		public void add (int start, int end, int family, double score) {
+			if (n == starts.length) {
+				starts = Arrays.copyOf(starts, n * 2);
+				ends = Arrays.copyOf(ends, n * 2);
+				families = Arrays.copyOf(families, n * 2);
+				scores = Arrays.copyOf(scores, n * 2);
+				}
+			starts[n] = start;
+			ends[n] = end;
+			families[n] = family;
+			scores[n] = score;
+			if (family > maxFamily) maxFamily = family;
+			n++;
+			}
+
+		//Steps along the hits in start order, keeping those covering the position in a queue by score, and
+		//credits each stretch to the best until it ends or the next hit starts
+		protected void compute() {
+			covered = new long[maxFamily + 1];
+			long[] order = new long[n];
+			for (int h=0; h<n; h++) order[h] = (long) starts[h] << 32 | h;
+			Arrays.sort(order);
+			PriorityQueue<Integer> active = new PriorityQueue<Integer>(16, new Comparator<Integer>() {
+				public int compare (Integer a, Integer b) {
+					if (scores[a] != scores[b]) return scores[a] > scores[b]?-1:1;
+					return Integer.compare(a, b);
+					}
+				});
+			long pos = 0;
+			int i = 0;
+			while (i < n || !active.isEmpty()) {
+				if (active.isEmpty()) pos = starts[(int) order[i]];
+				for (; i<n && starts[(int) order[i]] <= pos; i++) active.add((int) order[i]);
+				while (!active.isEmpty() && ends[active.peek()] < pos) active.poll();
+				if (active.isEmpty()) continue;
+				int top = active.peek();
+				long next = ends[top] + 1L;
+				if (i < n) next = Math.min(next, starts[(int) order[i]]);
+				covered[families[top]] += next - pos;
+				pos = next;
+				}
+			starts = ends = families = null;
+			scores = null;
+			}
+		}
+
+
+	private static String hitFile = "./hg19v37.mfa.map";
+	private static String libFile = null;
+	private static String oDir = "./";
+	private static int threads = 1;
+	private static NameDictionary sequences;
+	private static NameDictionary targets;
+	private static IntList targetFamilies;
+	private static NameDictionary families;
+	private static Map<String, String> library;
+	private static List<long[]> covered;//bp by family of each sequence, as its batches are swept
+	private static RBClassifier classifier = null;
+
+	public static void main (String[] args) {
+		setOptions(args);
+		sequences = new NameDictionary();
+		targets = new NameDictionary();
+		targetFamilies = new IntList(-1);
+		families = new NameDictionary();
+		library = new HashMap<String, String>();
+		covered = new ArrayList<long[]>();
+		classifier = new RBClassifier(new NameDictionary());
+		if (libFile != null) readLibrary(libFile);
+		boolean repeatMasker = RepeatMaskerOut.isRepeatMasker(hitFile.endsWith(".gz")?
+			hitFile.substring(0, hitFile.length() - 3):hitFile);
+		ForkJoinPool pool = threads > 1?new ForkJoinPool(threads):null;
+		BitSet split = new BitSet();
+		Metrics.Step step = Metrics.start("GenomeCoverage", "hit streaming and sweeping");
+		long hits = readHits(hitFile, repeatMasker, null, pool, split);
+		step.end(hits, Metrics.getSize(hitFile), 0);
+		if (split.cardinality() > 0) {//the split sequences' first pass bp are replaced by whole sweeps
+			System.out.println(split.cardinality() + " sequences are split across " + hitFile +
+				", reading them again");
+			step = Metrics.start("GenomeCoverage", "split sequence sweeping");
+			for (int s=split.nextSetBit(0); s>=0; s=split.nextSetBit(s + 1)) covered.set(s, null);
+			hits = readHits(hitFile, repeatMasker, split, pool, split);
+			step.end(hits, Metrics.getSize(hitFile), 0);
+			}
+		if (pool != null) pool.shutdown();
+		String outFile = new File(InputFile.resolve(hitFile)).getName();
+		if (outFile.endsWith(".gz")) outFile = outFile.substring(0, outFile.length() - 3);
+		writeCoverage(oDir + outFile + ".coverage.txt");
+		Metrics.write();
+		}
+
+
+	//Adds the bp of a swept batch to its sequence's, after which the batch is dropped
+	private static void addCoverage (Batch batch) {
+		while (covered.size() <= batch.sequence) covered.add(null);
+		long[] bp = covered.get(batch.sequence);
+		if (bp == null || bp.length < batch.covered.length) {
+			bp = bp == null?new long[batch.covered.length]:Arrays.copyOf(bp, batch.covered.length);
+			covered.set(batch.sequence, bp);
+			}
+		for (int f=0; f<batch.covered.length; f++) bp[f] += batch.covered[f];
+		}
+
+	private static String getClass (String family) {
+		int slash = family.indexOf("/");
+		return slash < 0?family:family.substring(0, slash);
+		}
+
+	private static int getFamily (String target) {// memoized by target
+		int id = targets.add(target);
+		int family = targetFamilies.get(id);
+		if (family < 0) {
+			String name = library.get(target);
+			family = families.add(name == null?getFamilyName(target):name);
+			targetFamilies.set(id, family);
+			}
+		return family;
+		}
+
+	private static String getFamilyName (String target) {// from the name of a library or RepBase sequence
+		int hash = target.indexOf("#");
+		if (hash >= 0) return target.substring(hash + 1);
+		int colon = target.indexOf(":");
+		return classifier.classify(colon < 0?target:target.substring(colon + 1));
+		}
+
+	//Reads the hits of the sequences in only (all of them if null), adding them to a batch for each run of
+	//a sequence's lines, or for each sequence when only is given. A batch is swept once its run ends, at most
+	//threads batches being swept while more are read, and its bp are added to its sequence's as soon as it
+	//is swept. Sequences seen in more than one run are set in split.
+	private static long readHits (String hitFile, boolean repeatMasker, BitSet only, ForkJoinPool pool,
+		BitSet split) {
+		long hits = 0;
+		Deque<Batch> sweeping = new ArrayDeque<Batch>();
+		Map<Integer, Batch> wanted = new HashMap<Integer, Batch>();
+		BitSet seen = new BitSet();
+		Batch batch = null;
+		String line = null;
+		try {
+			BufferedReader in = InputFile.getReader(hitFile);
+			while ((line = in.readLine()) != null) {
+				String[] fields = ClassifyConsensusSequences.getMapFields(line, repeatMasker);
+				if (fields == null || fields.length == 0) continue;
+				try {
+					int sequence = sequences.add(fields[0]);
+					if (only != null && !only.get(sequence)) continue;
+					int start = Integer.parseInt(fields[1]);
+					int end = Integer.parseInt(fields[2]);
+					double score = Double.parseDouble(fields[9]);
+					if (end < start) throw new NumberFormatException();
+					if (only != null) {
+						batch = wanted.get(sequence);
+						if (batch == null) wanted.put(sequence, batch = new Batch(sequence));
+						}
+					else if (batch == null || batch.sequence != sequence) {
+						if (batch != null) sweep(batch, pool, sweeping);
+						if (seen.get(sequence)) split.set(sequence);
+						seen.set(sequence);
+						batch = new Batch(sequence);
+						}
+					batch.add(start, end, getFamily(fields[3]), score);
+					hits++;
+					}
+				catch (NumberFormatException ne) {System.out.println("Could not parse: " + line);}
+				catch (ArrayIndexOutOfBoundsException ae) {System.out.println("Could not parse: " + line);}
+				}
+			in.close();
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		if (only != null)
+			for (Batch whole : wanted.values()) sweep(whole, pool, sweeping);
+		else if (batch != null) sweep(batch, pool, sweeping);
+		for (Batch swept : sweeping) {
+			swept.join();
+			addCoverage(swept);
+			}
+		return hits;
+		}
+
+	//Maps each library sequence's name, and its name up to the # as RepeatMasker reports it, to its family
+	private static void readLibrary (String libFile) {
+		try {
+			FastaReader in = new FastaReader(libFile);
+			while (in.nextRecord()) {
+				String id = in.getId();
+				String family = getFamilyName(id);
+				library.put(id, family);
+				if (id.indexOf("#") > 0) library.put(id.substring(0, id.indexOf("#")), family);
+				}
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		}
+
+	//Writes the coverage into dir rather than the working directory, as for the tests
+	static void setDirectory (String dir) {oDir = dir;}
+
+	private static void setOptions (String[] args) {
+		int positional = 0;
+		libFile = null;
+		for (int i=0; i<args.length; i++)
+			if (args[i].equals("-library") && i + 1 < args.length) libFile = args[++i];
+			else if (positional++ == 0) hitFile = args[i];
+			else
+				try {
+					threads = Math.max(1, Integer.parseInt(args[i]));
+					InputFile.setThreads(threads);
+					}
+				catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[i]);}
+		}
+
+	//Sweeps the batch on the pool, first waiting for the oldest sweeps (and adding their bp) so that at most
+	//threads are held
+	private static void sweep (Batch batch, ForkJoinPool pool, Deque<Batch> sweeping) {
+		if (pool == null) {
+			batch.compute();
+			addCoverage(batch);
+			return;
+			}
+		while (sweeping.size() >= threads) {
+			Batch oldest = sweeping.poll();
+			oldest.join();
+			addCoverage(oldest);
+			}
+		pool.execute(batch);
+		sweeping.add(batch);
+		}
+
+	private static void writeCoverage (String outFile) {
+		Metrics.Step step = Metrics.start("GenomeCoverage", "writing " + outFile);
+		long[] genome = new long[families.size()];
+		for (int s=0; s<covered.size(); s++)
+			if (covered.get(s) != null) {
+				covered.set(s, Arrays.copyOf(covered.get(s), families.size()));
+				for (int f=0; f<genome.length; f++) genome[f] += covered.get(s)[f];
+				}
+		Map<String, List<Integer>> classes = new TreeMap<String, List<Integer>>();
+		for (int f=0; f<families.size(); f++) {
+			String name = getClass(families.getName(f));
+			if (!classes.containsKey(name)) classes.put(name, new ArrayList<Integer>());
+			classes.get(name).add(f);
+			}
+		for (List<Integer> members : classes.values())
+			Collections.sort(members, new Comparator<Integer>() {
+				public int compare (Integer a, Integer b) {return families.getName(a).compareTo(families.getName(b));}
+				});
+		int lines = 0;
+		try {
+			BufferedWriter out = new BufferedWriter(new FileWriter(outFile));
+			out.write("Sequence\tClass\tFamily\tbp\n");
+			lines += writeSequence(out, "All", genome, classes);
+			for (int s=0; s<covered.size(); s++)
+				if (covered.get(s) != null) lines += writeSequence(out, sequences.getName(s), covered.get(s), classes);
+			out.close();
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		step.end(lines, 0, Metrics.getSize(outFile));
+		}
+
+	private static int writeSequence (BufferedWriter out, String name, long[] covered, 
+		Map<String, List<Integer>> classes) throws IOException {
+		long total = 0;
+		for (long bp : covered) total += bp;
+		out.write(name + "\tAll\tAll\t" + total + "\n");
+		int lines = 1;
+		for (Map.Entry<String, List<Integer>> entry : classes.entrySet()) {
+			long classTotal = 0;
+			for (int f : entry.getValue()) classTotal += covered[f];
+			if (classTotal == 0) continue;
+			out.write(name + "\t" + entry.getKey() + "\tAll\t" + classTotal + "\n");
+			lines++;
+			for (int f : entry.getValue())
+				if (covered[f] > 0) {
+					out.write(name + "\t" + entry.getKey() + "\t" + families.getName(f) + "\t" + covered[f] + "\n");
+					lines++;
+					}
+			}
+		return lines;
+		}
+	}
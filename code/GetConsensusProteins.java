@@ -7,46 +7,60 @@ public class GetConsensusProteins {
 	private static String consensus = "ConsensusSequences.fa";
 	private static String outFile = "Proteins.fa";
 	
-	public static void main (String[] args) {writeConsensus(getProteins());}
+	public static void main (String[] args) {
+		NameDictionary families = new NameDictionary();
+		NameDictionary proteinNames = new NameDictionary();
+		IntMultiMap proteins = getProteins(families, proteinNames);
+		try {writeConsensus(new FastaReader(dir + consensus), families, proteins, proteinNames);}
+		catch (IOException ie) {ie.printStackTrace();}
+		Metrics.write();
+		}
 		
-		private static Hashtable<String, String> getProteins () {
-			Hashtable<String, String> proteins = new Hashtable<String, String>();
+		private static IntMultiMap getProteins (NameDictionary families, NameDictionary proteinNames) {
+			Metrics.Step step = Metrics.start("GetConsensusProteins", "protein loading");
+			IntMultiMap proteins = new IntMultiMap();
 			try {
-				BufferedReader in = new BufferedReader(new FileReader(dir + protein));
+				BufferedReader in = InputFile.getReader(dir + protein);
 				in.readLine();
 				String line = null;
 				String[] fields = null;
 				while ((line = in.readLine()) != null) {
 					fields = line.split(" ");
-					proteins.put(fields[0], fields[1]);
+					int family = families.add(fields[0]);
+					String[] names = fields[1].split(":");
+					for (int i=0; i<names.length; i++) proteins.add(family, proteinNames.add(names[i]));
 					}
 				in.close();
 				}
 			catch (IOException ie) {ie.printStackTrace();}
 			System.out.println("There are " + proteins.size() + 
 				" consensus sequence families identified as proteins");
+			step.end(proteins.size(), Metrics.getSize(dir + protein), 0);
 			return proteins;
 			}
 			
-		private static void writeConsensus (Hashtable<String, String> proteins) {
+		//Used by AnnotationPipeline with the proteins found by GetProteins
+		static void writeConsensus (FastaReader in, NameDictionary families, IntMultiMap proteins, 
+			NameDictionary proteinNames) {
+			Metrics.Step step = Metrics.start("GetConsensusProteins", "writing Proteins.fa");
+			int n = 0;
 			try {
 				BufferedWriter out = new BufferedWriter(new FileWriter(dir + outFile));
-				BufferedReader in = new BufferedReader(new FileReader(dir + consensus));
-				boolean wanted = false;
-				String line = null;
 				String id = null;
-				while ((line = in.readLine()) != null) {
-					if (line.charAt(0) == '>') {
-						id = line.substring(1);
-						wanted = proteins.containsKey(id);
-						if (wanted) line += " " + proteins.get(id);
+				in.reset();
+				while (in.nextRecord()) {
+					id = in.getHeader();
+					int family = families.get(id);
+					if (proteins.containsKey(family)) {
+						out.write(">" + id + " " + proteins.join(family, proteinNames, ":") + "\n");
+						in.writeBody(out);
+						n++;
 						}
-					if (wanted) out.write(line + "\n");
 					}
-				in.close();
 				out.close();
 				}
 			catch (IOException ie) {ie.printStackTrace();}
+			step.end(n, in.getSize(), Metrics.getSize(dir + outFile));
 			}
 			
 		}
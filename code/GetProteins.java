@@ -12,13 +12,40 @@ public class GetProteins {
 
 	
 	public static void main (String[] args) {
-		Hashtable<String, String> proteins = getProteins(ipFile);
-		writeProteinFamilies(opFile, proteins);
-		writeNonProteinSequences (dDir + data, nknpFile, proteins);
+		NameDictionary families = new NameDictionary();
+		NameDictionary proteinNames = new NameDictionary();
+		IntMultiMap proteins = getProteins(ipFile, families, proteinNames);
+		writeProteinFamilies(opFile, proteins, families, proteinNames);
+		try {
+			writeNonProteinSequences (new FastaReader(dDir + data), families, new BitSet(), nknpFile, proteins);
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		Metrics.write();
+		}
+
+	//Used by AnnotationPipeline, which reads notKnown.fa as ConsensusSequences.fa less the known families
+	static IntMultiMap getProteins (NameDictionary families, NameDictionary proteinNames) {
+		return getProteins(ipFile, families, proteinNames);
+		}
+
+	//Reads and writes the files in dir rather than the working directory, as for the benchmarks and tests
+	static void setDirectory (String dir) {
+		dDir = dir;
+		pDir = dDir + "ProteinReport/";
+		ipFile = pDir + data + ".spwb.gff";
+		opFile = dDir + "protein.txt";
+		nknpFile = dDir + "notKnownNotProtein.fa";
+		}
+
+	static void writeProteins (IntMultiMap proteins, NameDictionary families, NameDictionary proteinNames,
+		FastaReader consensus, BitSet knowns) {
+		writeProteinFamilies(opFile, proteins, families, proteinNames);
+		writeNonProteinSequences (consensus, families, knowns, nknpFile, proteins);
 		}
 	 
 	 
-	private static void addProtein (Hashtable<String, String> proteins, String line) {
+	private static void addProtein (IntMultiMap proteins, NameDictionary families, NameDictionary proteinNames,
+		String line) {
 		StringTokenizer st = new StringTokenizer(line);
 		String family = st.nextToken();
 		for (int i=1; i<3; i++) st.nextToken();
@@ -27,59 +54,73 @@ public class GetProteins {
 			int end = Integer.parseInt(st.nextToken());
 			if ((end - start + 1) >= minLength) {
 				for (int i=1; i<5; i++) st.nextToken();
-				String protein = st.nextToken();
-				if (proteins.containsKey(family)) {
-					String prots = proteins.get(family);
-					prots += ":" + protein;
-					proteins.put(family, prots);
-					}
-				else proteins.put(family, protein);
+				proteins.add(families.add(family), proteinNames.add(st.nextToken()));
 				}
 			}
 		catch (NumberFormatException ne) {System.out.println("Could not parse: " + line);}
 		}
 
-	private static Hashtable<String, String> getProteins(String inFile) {
-		Hashtable<String, String> proteins = new Hashtable<String, String>();
+	private static void addProteins (IntMultiMap proteins, NameDictionary families, NameDictionary proteinNames,
+		BlastTabularReader in) throws IOException {// the -outfmt 6 equivalent of addProtein
+		while (in.nextHit()) 
+			if ((in.getQueryEnd() - in.getQueryStart() + 1) >= minLength) 
+				proteins.add(families.add(in.getQuery()), proteinNames.add(in.getSubject()));
+		in.close();
+		}
+
+	private static IntMultiMap getProteins(String inFile, NameDictionary families, NameDictionary proteinNames) {
+		IntMultiMap proteins = new IntMultiMap();
+		inFile = BlastTabularReader.getHitFile(inFile);
+		Metrics.Step step = Metrics.start("GetProteins", "hit loading");
 		try {
-			BufferedReader in = new BufferedReader(new FileReader(inFile));
-			String line = null;
-			while ((line = in.readLine()) != null) addProtein (proteins, line);
-			in.close();
+			if (BlastTabularReader.isTabular(inFile)) 
+				addProteins(proteins, families, proteinNames, new BlastTabularReader(inFile));
+			else {
+				BufferedReader in = InputFile.getReader(inFile);
+				String line = null;
+				while ((line = in.readLine()) != null) addProtein (proteins, families, proteinNames, line);
+				in.close();
+				}
 			}
 		catch (IOException ie) {ie.printStackTrace();}
 		System.out.println("" + proteins.size() + " consensus sequences have been identified as proteins");
+		step.end(proteins.size(), Metrics.getSize(inFile), 0);
 		return proteins;
 		}
 
-	private static void writeNonProteinSequences (String inFile, String outFile, 
-		Hashtable<String, String> proteins) {
+	private static void writeNonProteinSequences (FastaReader in, NameDictionary families, BitSet excluded, 
+		String outFile, IntMultiMap proteins) {
+		Metrics.Step step = Metrics.start("GetProteins", "writing " + new File(outFile).getName());
+		int n = 0;
 		try {
-			BufferedReader in = new BufferedReader(new FileReader(inFile));
 			BufferedWriter out = new BufferedWriter(new FileWriter(outFile));
-			boolean wanted = false;
-			String line = null;
-			while ((line = in.readLine()) != null) {
-				if (line.charAt(0) == '>') wanted = !proteins.containsKey(line.substring(1));
-				if (wanted) out.write(line + "\n");
+			in.reset();
+			while (in.nextRecord()) {
+				int id = families.get(in.getId());
+				if ((id < 0 || !excluded.get(id)) && !proteins.containsKey(id)) {
+					in.writeRecord(out);
+					n++;
+					}
 				}
-			in.close();
 			out.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
+		step.end(n, in.getSize(), Metrics.getSize(outFile));
 		}
 		
-	private static void writeProteinFamilies (String outFile, Hashtable<String, String> proteins) {
+	private static void writeProteinFamilies (String outFile, IntMultiMap proteins, NameDictionary families,
+		NameDictionary proteinNames) {
+		Metrics.Step step = Metrics.start("GetProteins", "writing " + new File(outFile).getName());
 		try {
 			BufferedWriter out = new BufferedWriter(new FileWriter(outFile));
 			out.write("Sequence MappedTo\n");
-			for (Enumeration<String> e=proteins.keys(); e.hasMoreElements();) {
-				String family = e.nextElement();
-				out.write(family + " " + proteins.get(family) + "\n");
-				}
+			for (int family=0; family<=proteins.maxKey(); family++) 
+				if (proteins.containsKey(family)) 
+					out.write(families.getName(family) + " " + proteins.join(family, proteinNames, ":") + "\n");
 			out.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
+		step.end(proteins.size(), 0, Metrics.getSize(outFile));
 		}		
 		
 	}
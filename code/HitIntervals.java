@@ -0,0 +1,80 @@
+import java.util.*;
+
+/*************************
+HitIntervals
+	An index of one sequence's hits, given as start and end columns in start order, for the overlap
+	decisions of GenerateAnnotatedLibrary: the bp covered by their union, and for an interval the longest
+	overlap with the hits added to the index so far, when those are at least as long as it (so it is as
+	long as the interval when one contains it). Such a hit either starts at or before the interval, and the
+	one reaching furthest overlaps it most, or starts within it and so runs past its end, and the first to
+	start overlaps it most. Maximum ends over the prefixes of the start order, and minimum starts over its
+	suffixes, are kept in Fenwick trees, so each add and query is O(log n) however many hits overlap.
+	Date: October 17, 2026
+	Usage: HitIntervals index = new HitIntervals(starts, ends, n);
+		for (hits longest first) if (index.getMaxOverlap(start, end) < limit) index.add(hit);
+***************************/
+
+
+public class HitIntervals {
+	private int[] starts;
+	private int[] ends;
+	private int n;
+	private int[] maxEnds;//Fenwick tree of the added hits' ends, over prefixes of the start order
+	private int[] minStarts;//Fenwick tree of the added hits' starts, over suffixes (reversed prefixes)
+
+	public HitIntervals (int[] starts, int[] ends, int n) {
+		this.starts = starts;
+		this.ends = ends;
+		this.n = n;
+		maxEnds = new int[n + 1];
+		minStarts = new int[n + 1];
+		Arrays.fill(maxEnds, Integer.MIN_VALUE);
+		Arrays.fill(minStarts, Integer.MAX_VALUE);
+		}
+
+	public void add (int hit) {
+		for (int i=hit + 1; i<=n; i+=i & -i) maxEnds[i] = Math.max(maxEnds[i], ends[hit]);
+		for (int i=n - hit; i<=n; i+=i & -i) minStarts[i] = Math.min(minStarts[i], starts[hit]);
+		}
+
+	//The longest overlap in bp of start to end with an added hit, 0 if none overlaps it. Every added hit
+	//must be at least as long as the interval.
+	public int getMaxOverlap (int start, int end) {
+		int after = getFirstAfter(start);//the hits before it start at or before start
+		int overlap = 0;
+		int reach = Integer.MIN_VALUE;
+		for (int i=after; i>0; i-=i & -i) reach = Math.max(reach, maxEnds[i]);
+		if (reach >= start) overlap = Math.min(reach, end) - start + 1;
+		int first = Integer.MAX_VALUE;
+		for (int i=n - after; i>0; i-=i & -i) first = Math.min(first, minStarts[i]);
+		if (first <= end) overlap = Math.max(overlap, end - first + 1);
+		return overlap;
+		}
+
+	public static long getUnion (int[] starts, int[] ends, int n) {// the bp covered, hits in start order
+		long bp = 0;
+		long reach = Long.MIN_VALUE;
+		for (int i=0; i<n; i++)
+			if (starts[i] > reach) {
+				bp += ends[i] - starts[i] + 1;
+				reach = ends[i];
+				}
+			else if (ends[i] > reach) {
+				bp += ends[i] - reach;
+				reach = ends[i];
+				}
+		return bp;
+		}
+
+
+	private int getFirstAfter (int start) {// the first hit in start order starting after start
+		int low = 0;
+		int high = n;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (starts[mid] <= start) low = mid + 1;
+			else high = mid;
+			}
+		return low;
+		}
+	}
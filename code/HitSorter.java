@@ -0,0 +1,191 @@
+import java.io.*;
+import java.util.*;
+
+/*************************
+HitSorter
+	A HitTable that sorts its hits by query in bounded memory rather than keeping them. Hits are buffered
+	up to runSize, and each full buffer is sorted by query and spilled to a temporary file of fixed size
+	records (query, target, start, end). Once every hit is added, next() steps through the runs merged by
+	query, breaking ties by run, so each query's hits come back in the order they were added, as from a
+	HitTable. Only containsKey and size are kept in memory, as one bit per query; first and next of the
+	HitTable are not used. Values added as to an IntMultiMap are kept as hits with a start and end of 0.
+	Date: October 17, 2026
+	Updated: October 17, 2026 to merge at most fanIn runs at once, merging runs of consecutive runs into
+		larger ones until there are no more than fanIn, so the open files and their buffers stay bounded
+	Usage: sorter.add(query, target, start, end); ... 
+		while (sorter.next()) {sorter.getQuery(); sorter.getTarget();} sorter.close();
+***************************/
+
+
+public class HitSorter extends HitTable {
+	private static class Run {// a spilled run being merged, with its current hit
+		private DataInputStream in;
+		private int index;
+		private long remaining;
+		private int[] hit = new int[FIELDS];
+
+		public Run (File file, int index, long hits) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+			this.index = index;
+			remaining = hits;
+			}
+
+		private boolean next() throws IOException {
+			if (remaining-- <= 0) {
+				in.close();
+				return false;
+				}
+			for (int f=0; f<FIELDS; f++) hit[f] = in.readInt();
+			return true;
+			}
+		}
+
+
+	private static final int FIELDS = 4;
+	private static final int fanIn = 64;//the runs merged at once
+	private int runSize;
+	private String dir;
+	private int[] buffer;
+	private long[] keys;//query << 32 | the hit's place in the buffer, so sorting the keys is stable
+	private int n = 0;
+	private int position = -1;
+	private BitSet queries = new BitSet();
+	private List<File> files = new ArrayList<File>();
+	private List<Long> sizes = new ArrayList<Long>();
+	private int spills = 0;
+	private PriorityQueue<Run> runs = null;
+	private int[] hit = null;
+
+	public HitSorter (int runSize, String dir) {
+		this.runSize = Math.max(1, runSize);
+		this.dir = dir;
+		buffer = new int[Math.min(this.runSize, 1 << 16) * FIELDS];
+		keys = new long[buffer.length / FIELDS];
+		}
+
+	public int add (int query, int target) {return add(query, target, 0, 0);}
+
+	public int add (int query, int target, int start, int end) {
+		if (n == runSize)
+			try {spill();}
+			catch (IOException ie) {throw new UncheckedIOException(ie);}
+		if (n == keys.length) {
+			keys = Arrays.copyOf(keys, Math.min(runSize, n * 2));
+			buffer = Arrays.copyOf(buffer, keys.length * FIELDS);
+			}
+		buffer[n * FIELDS] = query;
+		buffer[n * FIELDS + 1] = target;
+		buffer[n * FIELDS + 2] = start;
+		buffer[n * FIELDS + 3] = end;
+		keys[n] = (long) query << 32 | n;
+		n++;
+		queries.set(query);
+		return -1;
+		}
+
+	public void close() {
+		for (File file : files) file.delete();
+		files.clear();
+		}
+
+	public boolean containsKey (int query) {return query >= 0 && queries.get(query);}
+
+	public int getEnd() {return hit[3];}
+
+	public int getQuery() {return hit[0];}
+
+	public int getRuns() {return Math.max(spills, 1);}
+
+	public int getStart() {return hit[2];}
+
+	public int getTarget() {return hit[1];}
+
+	public boolean next() throws IOException {// the next hit in query order, after the last add
+		if (runs == null && files.isEmpty()) {// never spilled, so the buffer is merged with nothing
+			if (position < 0) Arrays.sort(keys, 0, n);
+			if (++position >= n) return false;
+			if (hit == null) hit = new int[FIELDS];
+			System.arraycopy(buffer, (int) keys[position] * FIELDS, hit, 0, FIELDS);
+			return true;
+			}
+		if (runs == null) start();
+		else {
+			Run run = runs.poll();
+			if (run.next()) runs.add(run);
+			}
+		if (runs.isEmpty()) return false;
+		hit = runs.peek().hit;
+		return true;
+		}
+
+	public int size() {return queries.cardinality();}
+
+
+	private File createFile() throws IOException {
+		File file = File.createTempFile("hits", ".spill", dir == null?null:new File(dir));
+		file.deleteOnExit();
+		return file;
+		}
+
+	//Merges the runs from first up to end into one run in their place. As the runs merged are consecutive,
+	//ties between them still go to the earlier run, as in the last merge.
+	private void merge (int first, int end) throws IOException {
+		PriorityQueue<Run> merged = open(first, end);
+		File file = createFile();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		long hits = 0;
+		while (!merged.isEmpty()) {
+			Run run = merged.poll();
+			for (int f=0; f<FIELDS; f++) out.writeInt(run.hit[f]);
+			hits++;
+			if (run.next()) merged.add(run);
+			}
+		out.close();
+		for (int i=first; i<end; i++) files.get(i).delete();
+		files.subList(first + 1, end).clear();
+		sizes.subList(first + 1, end).clear();
+		files.set(first, file);
+		sizes.set(first, hits);
+		}
+
+	private PriorityQueue<Run> open (int first, int end) throws IOException {// with the first hit of each run
+		PriorityQueue<Run> open = new PriorityQueue<Run>(Math.max(1, end - first), new Comparator<Run>() {
+			public int compare (Run a, Run b) {
+				if (a.hit[0] != b.hit[0]) return Integer.compare(a.hit[0], b.hit[0]);
+				return Integer.compare(a.index, b.index);
+				}
+			});
+		for (int i=first; i<end; i++) {
+			Run run = new Run(files.get(i), i, sizes.get(i));
+			if (run.next()) open.add(run);
+			}
+		return open;
+		}
+
+	private void spill() throws IOException {
+		Arrays.sort(keys, 0, n);
+		File file = createFile();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		for (int i=0; i<n; i++) {
+			int h = (int) keys[i] * FIELDS;
+			for (int f=0; f<FIELDS; f++) out.writeInt(buffer[h + f]);
+			}
+		out.close();
+		files.add(file);
+		sizes.add((long) n);
+		spills++;
+		n = 0;
+		}
+
+	private void start() throws IOException {// spills the last run, merges down to fanIn runs and opens them
+		if (n > 0) spill();
+		buffer = null;
+		keys = null;
+		while (files.size() > fanIn)
+			for (int first=0; first<files.size(); first++) {
+				int end = Math.min(first + fanIn, files.size());
+				if (end - first > 1) merge(first, end);
+				}
+		runs = open(0, files.size());
+		}
+	}
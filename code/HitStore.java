@@ -0,0 +1,290 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*************************
+HitStore
+	A binary columnar copy of a CENSOR map (or RepeatMasker .out) file, or of a blastx/tblastx gff (or -outfmt 6)
+	file, written once so that later runs of ClassifyConsensusSequences and GenerateAnnotatedLibrary map it
+	rather than parse the text again. Queries, targets and scores are interned into string tables, and each
+	hit is a row of the columns query, target, start, end, library start, library end, strand and score, in
+	the order of the text file. A per-query index lists each query's rows, found by name through an open
+	addressed table, so one family's hits can be read without the rest (as GenerateAnnotatedLibrary reads
+	the IR hits of the wanted sequences). The stages read <text file>.hits in place of the text file when it
+	is at least as new. Lines that cannot be parsed are reported and left out.
+	Date: October 17, 2026
+	Inputs: ConsensusSequences.fa.map (or .out), notKnown.fa.tewb.gff and notKnown.fa.ervwb.gff (or .ncbi)
+	Outputs: The same names with .hits added
+	Usage: java HitStore [-family name] [text files] (the three above by default, -family prints one family's
+		hits from each store)
+	Format: MAGIC, nRows, nQueries, nTargets, nScores, nSlots, the query, target and score tables (each an
+		offset per string and one past the last, then the strings), the slots (query + 1, 0 if empty), the
+		query, target, start, end, library start, library end and score columns of ints, the strand column of
+		bytes, then the index (the first of each query's entries and one past the last, then the entries'
+		rows). Ints are big endian, as read by MappedFile.getInt.
+***************************/
+
+
+public class HitStore {
+	private static final int MAGIC = 0x48495431;
+	private static final String[] defaults = {"./ConsensusSequences.fa.map", "./notKnown.fa.tewb.gff",
+		"./notKnown.fa.ervwb.gff"};
+	private MappedFile file;
+	private int rows;
+	private long[] tables = new long[3];//the offsets of the query, target and score tables
+	private int[] sizes = new int[3];
+	private String[][] names = new String[3][];//cached as they are read
+	private int nSlots;
+	private long slotStart;
+	private long[] columns = new long[7];
+	private long strands;
+	private long indexStart;
+	private long entryStart;
+
+	public HitStore (String storeFile) throws IOException {
+		file = new MappedFile(storeFile);
+		if (file.getSize() < 24 || file.getInt(0) != MAGIC) throw new IOException(storeFile + " is not a hit store");
+		rows = file.getInt(4);
+		for (int t=0; t<3; t++) sizes[t] = file.getInt(8 + 4 * t);
+		nSlots = file.getInt(20);
+		long pos = 24;
+		for (int t=0; t<3; t++) {
+			tables[t] = pos;
+			names[t] = new String[sizes[t]];
+			pos += 4L * (sizes[t] + 1) + file.getInt(pos + 4L * sizes[t]);
+			}
+		slotStart = pos;
+		pos += 4L * nSlots;
+		for (int c=0; c<columns.length; c++) {
+			columns[c] = pos;
+			pos += 4L * rows;
+			}
+		strands = pos;
+		indexStart = pos + rows;
+		entryStart = indexStart + 4L * (sizes[0] + 1);
+		}
+
+	public int findQuery (String name) {// -1 when the store has no hits for it
+		for (int slot=hash(name) & (nSlots - 1);; slot=(slot + 1) & (nSlots - 1)) {
+			int query = file.getInt(slotStart + 4L * slot) - 1;
+			if (query < 0 || getQueryName(query).equals(name)) return query;
+			}
+		}
+
+	public int getEnd (int row) {return getColumn(3, row);}
+
+	public int getEntries (int query) {return getEntry(query + 1) - getEntry(query);}
+
+	public int getLibEnd (int row) {return getColumn(5, row);}
+
+	public int getLibStart (int row) {return getColumn(4, row);}
+
+	public int getQueries() {return sizes[0];}
+
+	public int getQuery (int row) {return getColumn(0, row);}
+
+	public String getQueryName (int query) {return getName(0, query);}
+
+	public int getRow (int query, int entry) {// the entry'th of the query's rows
+		return file.getInt(entryStart + 4L * (getEntry(query) + entry));
+		}
+
+	public int getRows() {return rows;}
+
+	public String getScore (int row) {return getName(2, getColumn(6, row));}
+
+	public int getStart (int row) {return getColumn(2, row);}
+
+	//The store of the text file, when there is one at least as new as it, or null
+	public static String getStoreFile (String textFile) {
+		File store = new File(textFile + ".hits");
+		if (!store.exists()) return null;
+		File text = new File(InputFile.resolve(textFile));
+		return !text.exists() || store.lastModified() >= text.lastModified()?store.getPath():null;
+		}
+
+	public char getStrand (int row) {return (char) file.byteAt(strands + row);}
+
+	public int getTarget (int row) {return getColumn(1, row);}
+
+	public String getTargetName (int target) {return getName(1, target);}
+
+	public int getTargets() {return sizes[1];}
+
+	public static void main (String[] args) {
+		String family = null;
+		List<String> files = new ArrayList<String>();
+		for (int i=0; i<args.length; i++)
+			if (args[i].equals("-family") && i + 1 < args.length) family = args[++i];
+			else files.add(args[i]);
+		if (files.isEmpty())
+			for (int i=0; i<defaults.length; i++)
+				files.add(i == 0?RepeatMaskerOut.getMapFile(defaults[i]):BlastTabularReader.getHitFile(defaults[i]));
+		try {
+			for (String textFile : files) {
+				if (family == null) convert(textFile, textFile + ".hits");
+				else printFamily(new HitStore(getStoreFile(textFile) == null?textFile + ".hits":
+					getStoreFile(textFile)), family);
+				}
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		}
+
+
+	private static void addString (NameDictionary strings, IntList column, String string) {
+		column.add(strings.add(string));
+		}
+
+	static void convert (String textFile, String storeFile) throws IOException {
+		NameDictionary[] strings = {new NameDictionary(), new NameDictionary(), new NameDictionary()};
+		IntList[] columns = new IntList[7];
+		for (int c=0; c<columns.length; c++) columns[c] = new IntList();
+		ByteArrayOutputStream strands = new ByteArrayOutputStream();
+		if (textFile.endsWith(".map") || RepeatMaskerOut.isRepeatMasker(textFile))
+			readMap(textFile, strings, columns, strands);
+		else if (BlastTabularReader.isTabular(textFile)) {
+			BlastTabularReader in = new BlastTabularReader(textFile);
+			while (in.nextHit()) {
+				addString(strings[0], columns[0], in.getQuery());
+				addString(strings[1], columns[1], in.getSubject());
+				columns[2].add(in.getQueryStart());
+				columns[3].add(in.getQueryEnd());
+				columns[4].add(0);
+				columns[5].add(0);
+				addString(strings[2], columns[6], ".");
+				strands.write('.');
+				}
+			in.close();
+			}
+		else readGff(textFile, strings, columns, strands);
+		write(storeFile, strings, columns, strands.toByteArray());
+		System.out.println(columns[0].size() + " hits of " + strings[0].size() + " queries from " + textFile +
+			" written to " + storeFile);
+		}
+
+	private int getColumn (int column, int row) {return file.getInt(columns[column] + 4L * row);}
+
+	private int getEntry (int index) {return file.getInt(indexStart + 4L * index);}
+
+	private String getName (int table, int id) {
+		if (names[table][id] == null) {
+			long bytes = tables[table] + 4L * (sizes[table] + 1);
+			names[table][id] = file.getString(bytes + file.getInt(tables[table] + 4L * id),
+				bytes + file.getInt(tables[table] + 4L * (id + 1)));
+			}
+		return names[table][id];
+		}
+
+	private static int hash (String name) {
+		int h = name.hashCode();
+		return h ^ (h >>> 16);
+		}
+
+	private static void printFamily (HitStore store, String family) {
+		int query = store.findQuery(family);
+		int entries = query < 0?0:store.getEntries(query);
+		System.out.println(family + ": " + entries + " hits");
+		for (int e=0; e<entries; e++) {
+			int row = store.getRow(query, e);
+			System.out.println(family + "\t" + store.getStart(row) + "\t" + store.getEnd(row) + "\t" +
+				store.getTargetName(store.getTarget(row)) + "\t" + store.getLibStart(row) + "\t" +
+				store.getLibEnd(row) + "\t" + store.getStrand(row) + "\t" + store.getScore(row));
+			}
+		}
+
+	//As addRetroHits reads the gff, the target being the first word of the attributes after Target
+	private static void readGff (String textFile, NameDictionary[] strings, IntList[] columns,
+		ByteArrayOutputStream strands) throws IOException {
+		BufferedReader in = InputFile.getReader(textFile);
+		String line = null;
+		while ((line = in.readLine()) != null)
+			try {
+				String[] fields = line.split("\t");
+				int i1 = fields[8].indexOf(" ") + 1;
+				int i2 = fields[8].indexOf(" ", i1);
+				int start = Integer.parseInt(fields[3]);
+				int end = Integer.parseInt(fields[4]);
+				addString(strings[0], columns[0], fields[0]);
+				addString(strings[1], columns[1], fields[8].substring(i1, i2));
+				columns[2].add(start);
+				columns[3].add(end);
+				columns[4].add(0);
+				columns[5].add(0);
+				addString(strings[2], columns[6], fields[5]);
+				strands.write(fields[6].length() > 0?fields[6].charAt(0):'.');
+				}
+			catch (RuntimeException re) {System.out.println("Could not parse: " + line);}
+		in.close();
+		}
+
+	//As ClassifyConsensusSequences reads the map, through the fields of each line in the CENSOR map order
+	private static void readMap (String textFile, NameDictionary[] strings, IntList[] columns,
+		ByteArrayOutputStream strands) throws IOException {
+		boolean repeatMasker = RepeatMaskerOut.isRepeatMasker(textFile);
+		BufferedReader in = InputFile.getReader(textFile);
+		String line = null;
+		while ((line = in.readLine()) != null) {
+			String[] fields = ClassifyConsensusSequences.getMapFields(line, repeatMasker);
+			if (fields == null || fields.length == 0) continue;
+			try {
+				int[] values = new int[4];
+				for (int i=0; i<4; i++) values[i] = Integer.parseInt(fields[i < 2?i + 1:i + 2]);
+				if (fields.length < 10) throw new NumberFormatException();
+				addString(strings[0], columns[0], fields[0]);
+				addString(strings[1], columns[1], fields[3]);
+				for (int i=0; i<4; i++) columns[i + 2].add(values[i]);
+				addString(strings[2], columns[6], fields[9]);
+				strands.write(fields[6].charAt(0));
+				}
+			catch (RuntimeException re) {System.out.println("Could not parse: " + line);}
+			}
+		in.close();
+		}
+
+	private static void write (String storeFile, NameDictionary[] strings, IntList[] columns, byte[] strands)
+		throws IOException {
+		int rows = columns[0].size();
+		int nQueries = strings[0].size();
+		int nSlots = 1;
+		while (nSlots < nQueries * 2) nSlots <<= 1;
+		int[] slots = new int[nSlots];
+		for (int q=0; q<nQueries; q++) {
+			int slot = hash(strings[0].getName(q)) & (nSlots - 1);
+			while (slots[slot] != 0) slot = (slot + 1) & (nSlots - 1);
+			slots[slot] = q + 1;
+			}
+		int[] first = new int[nQueries + 1];//a counting sort of the rows by query, keeping their order
+		for (int row=0; row<rows; row++) first[columns[0].get(row) + 1]++;
+		for (int q=0; q<nQueries; q++) first[q + 1] += first[q];
+		int[] entries = new int[rows];
+		int[] next = Arrays.copyOf(first, nQueries);
+		for (int row=0; row<rows; row++) entries[next[columns[0].get(row)]++] = row;
+		File temp = new File(storeFile + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(rows);
+		for (int t=0; t<3; t++) out.writeInt(strings[t].size());
+		out.writeInt(nSlots);
+		for (int t=0; t<3; t++) {
+			byte[][] bytes = new byte[strings[t].size()][];
+			int offset = 0;
+			for (int id=0; id<bytes.length; id++) {
+				bytes[id] = strings[t].getName(id).getBytes(StandardCharsets.ISO_8859_1);
+				out.writeInt(offset);
+				offset += bytes[id].length;
+				}
+			out.writeInt(offset);
+			for (int id=0; id<bytes.length; id++) out.write(bytes[id]);
+			}
+		for (int slot=0; slot<nSlots; slot++) out.writeInt(slots[slot]);
+		for (int c=0; c<columns.length; c++)
+			for (int row=0; row<rows; row++) out.writeInt(columns[c].get(row));
+		out.write(strands);
+		for (int q=0; q<=nQueries; q++) out.writeInt(first[q]);
+		for (int e=0; e<rows; e++) out.writeInt(entries[e]);
+		out.close();
+		File store = new File(storeFile);
+		store.delete();
+		if (!temp.renameTo(store)) throw new IOException("Could not rename " + temp + " to " + storeFile);
+		}
+	}
@@ -0,0 +1,26 @@
+/*************************
+HitTable
+	The hits of each query (a consensus family ID) to targets (library IDs), held as primitive columns
+	(target, start, end) indexed by entry, with each query's entries linked in the order they were added.
+	Date: October 17, 2026
+	Usage: for (int h=table.first(query); h>=0; h=table.next(h)) table.getTarget(h);
+***************************/
+
+
+public class HitTable extends IntMultiMap {
+	private IntList starts = new IntList();
+	private IntList ends = new IntList();
+
+	public int add (int query, int target, int start, int end) {
+		int hit = add(query, target);
+		starts.set(hit, start);
+		ends.set(hit, end);
+		return hit;
+		}
+
+	public int getEnd (int hit) {return ends.get(hit);}
+
+	public int getStart (int hit) {return starts.get(hit);}
+
+	public int getTarget (int hit) {return getValue(hit);}
+	}
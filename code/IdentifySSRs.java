@@ -1,23 +1,134 @@
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
-
+//Usage: java IdentifySSRs [-phobos] [threads]
+//Scans notKnownNotProtein.fa for tandem repeats of units of 1 to 7 bp, with mismatches and gaps (after phobos -r 7
+//and its default scores, though not checked against phobos' own output), on the given number of threads, or with
+//-phobos reads the SSRs from phobos' notKnownNotProtein.phobos
 public class IdentifySSRs {
+	private static class SSR {// a family whose repeat covers the start and end of its sequence
+		private String family;
+		private String unit;
+
+		public SSR (String family, String unit) {
+			this.family = family;
+			this.unit = unit;
+			}
+		}
+
+	private static class SSRChunk extends RecursiveAction {// the records whose headers start in a part of the file
+		private static final long serialVersionUID = 1L;
+		private FastaReader in;
+		private NameDictionary families;
+		private BitSet excluded;
+		private List<SSR> ssrs = new ArrayList<SSR>();
+		private double maxCovered = 0.0;
+		private int scanned = 0;
+
+		public SSRChunk (FastaReader in, NameDictionary families, BitSet excluded) {
+			this.in = in;
+			this.families = families;
+			this.excluded = excluded;
+			}
+
+		protected void compute() {
+			while (in.nextRecord()) {
+				int id = families.get(in.getId());
+				if (id >= 0 && excluded.get(id)) continue;
+				String[] unit = new String[1];
+				scanned++;
+				double covered = scan(in.getSequence(), unit);
+				if (covered > maxCovered) maxCovered = covered;
+				if (unit[0] != null) ssrs.add(new SSR(in.getId(), unit[0]));
+				}
+			}
+		}
+
+	private static int chunkSize = 1 << 22;
+	private static int threads = 1;
+	private static int maxUnit = 7;
+	private static int minScore = 12;//as phobos' defaults, with its match, mismatch and gap scores
+	private static int match = 1;
+	private static int mismatch = -5;
+	private static int gap = -5;
+	private static int maxDrop = 10;//how far the score may fall from its best before an extension stops
+	private static boolean phobos = false;
 	private static String dDir = "./";
 	private static String inPrefix = dDir + "notKnownNotProtein";
 	private static String pFile = inPrefix + ".phobos";
 	
 	
 	public static void main (String[] args) {
-		Hashtable<String, String> ssrs = getSSRs(pFile);
-		if (ssrs.size() > 0) {
-			outputSSRs (ssrs, dDir + "SSR.txt");
-			outputUnknownFasta(ssrs, inPrefix + ".fa", inPrefix + "NotSSR.fa");
+		setOptions(args);
+		NameDictionary families = new NameDictionary();
+		NameDictionary units = new NameDictionary();
+		try {
+			FastaReader in = new FastaReader(inPrefix + ".fa");
+			IntList ssrs = phobos?getSSRs(pFile, families, units):findSSRs(in, families, units, new BitSet());
+			if (ssrs.keySet().cardinality() > 0) writeSSRs (ssrs, families, units, in, new BitSet());
 			}
+		catch (IOException ie) {ie.printStackTrace();}
+		Metrics.write();
 		}
 		
+	//Used by AnnotationPipeline, which reads notKnownNotProtein.fa as ConsensusSequences.fa less excluded
+	static IntList getSSRs (NameDictionary families, NameDictionary units) {return getSSRs(pFile, families, units);}
+
+	//Used by AnnotationPipeline with the consensus sequences and the known and protein families as excluded.
+	//The chunks only read families, the SSRs are added to it and units in file order once they are joined.
+	static IntList findSSRs (FastaReader in, NameDictionary families, NameDictionary units, BitSet excluded) {
+		Metrics.Step step = Metrics.start("IdentifySSRs", "SSR scan");
+		IntList ssrs = new IntList(-1);
+		int scanned = 0;
+		double maxCovered = 0.0;
+		List<SSRChunk> chunks = new ArrayList<SSRChunk>();
+		if (threads > 1 && !in.isStreamed()) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			for (long start=0; start<in.getSize(); start+=chunkSize) {
+				SSRChunk chunk = new SSRChunk(in.getChunk(start, start + chunkSize), families, excluded);
+				pool.execute(chunk);
+				chunks.add(chunk);
+				}
+			for (SSRChunk chunk : chunks) chunk.join();
+			pool.shutdown();
+			}
+		else {
+			in.reset();
+			chunks.add(new SSRChunk(in, families, excluded));
+			chunks.get(0).compute();
+			}
+		for (SSRChunk chunk : chunks) {
+			for (SSR ssr : chunk.ssrs) ssrs.set(families.add(ssr.family), units.add(ssr.unit));
+			if (chunk.maxCovered > maxCovered) maxCovered = chunk.maxCovered;
+			scanned += chunk.scanned;
+			}
+		System.out.println("There are " + ssrs.keySet().cardinality() + " families that are SSRs, maximum " + 
+			"coverage was " + maxCovered + " percent");
+		step.end(scanned, in.getSize(), 0);
+		return ssrs;
+		}
+
+	//Reads and writes the files in dir rather than the working directory, as for the benchmarks and tests
+	static void setDirectory (String dir) {
+		dDir = dir;
+		inPrefix = dDir + "notKnownNotProtein";
+		pFile = inPrefix + ".phobos";
+		}
+
+	static void setThreads (int n) {threads = Math.max(1, n);}
+
+	static void setPhobos (boolean usePhobos) {phobos = usePhobos;}
+
+	static void writeSSRs (IntList ssrs, NameDictionary families, NameDictionary units, FastaReader in, 
+		BitSet excluded) {
+		outputSSRs (ssrs, families, units, dDir + "SSR.txt");
+		outputUnknownFasta(ssrs, families, in, excluded, inPrefix + "NotSSR.fa");
+		}
 
-	private static double addFamilySSR (String name, BufferedReader in, Hashtable<String, String> ssrs) {
+
+	private static double addFamilySSR (String name, BufferedReader in, IntList ssrs, NameDictionary families,
+		NameDictionary units) {
 		String line = null;
 		double maxCovered = 0.0;
 		try {
@@ -38,7 +149,7 @@ public class IdentifySSRs {
 					if (covered > maxCovered) maxCovered = covered;
 					if (end >= upperLimit) {
 						for (int i=1; i<15; i++) st.nextToken();
-						ssrs.put(name, st.nextToken());
+						ssrs.set(families.add(name), units.add(st.nextToken()));
 						}
 					}
 				}
@@ -48,52 +159,167 @@ public class IdentifySSRs {
 		return maxCovered;
 		}
 		 		
-	private static Hashtable<String, String> getSSRs (String inFile) {
-		Hashtable<String, String> ssrs = new Hashtable<String, String> ();
+	static IntList getSSRs (String inFile, NameDictionary families, NameDictionary units) {
+		Metrics.Step step = Metrics.start("IdentifySSRs", "phobos parsing");
+		IntList ssrs = new IntList(-1);
 		double maxCovered = 0.0;
 		try {
-			BufferedReader in = new BufferedReader(new FileReader(inFile));
+			BufferedReader in = InputFile.getReader(inFile);
 			String line = null;
 			double covered = 0.0;
 			while ((line = in.readLine()) != null) 
 				if (line.charAt(0) == '>') {
-					covered = addFamilySSR(line.substring(1), in, ssrs); 
+					covered = addFamilySSR(line.substring(1).trim().split("\\s+")[0], in, ssrs, families, units); 
 					if (covered > maxCovered) maxCovered = covered;
 					}
 			in.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
-		System.out.println("There are " + ssrs.size() + " families that are SSRs, maximum coverage was " + 
-			maxCovered + " percent");
+		System.out.println("There are " + ssrs.keySet().cardinality() + " families that are SSRs, maximum " + 
+			"coverage was " + maxCovered + " percent");
+		step.end(ssrs.keySet().cardinality(), Metrics.getSize(inFile), 0);
 		return ssrs;
 		}
 
-	private static void outputSSRs (Hashtable<String, String> ssrs, String outFile) {
+	//Extends a repeat of unit from the seed at position from, one base at a time in direction step, aligning
+	//the bases to the perfect repeat with gaps, with phobos' scores: current[phase] is the best score of an
+	//alignment whose next base is at that phase of the unit. Returns the last position of the best scoring
+	//extension, its score in score[0] and the phase of the unit at that position in score[1].
+	private static int extend (byte[] residues, int seed, int from, int step, byte[] unit, int[] score) {
+		int size = unit.length;
+		int[] current = new int[size];
+		int[] next = new int[size];
+		Arrays.fill(current, Integer.MIN_VALUE / 2);
+		current[((from - seed) % size + size) % size] = 0;
+		int best = 0;
+		int bestEnd = from - step;
+		int bestPhase = ((from - step - seed) % size + size) % size;
+		for (int pos=from, columnBest=0; pos>=0 && pos<residues.length && best - columnBest <= maxDrop; pos+=step) {
+			byte base = upper(residues[pos]);
+			for (int phase=0; phase<size; phase++) next[phase] = current[phase] + gap;//an inserted base
+			for (int phase=0; phase<size; phase++) {
+				int after = (phase + step + size) % size;
+				next[after] = Math.max(next[after], current[phase] + (base == unit[phase]?match:mismatch));
+				}
+			for (int d=1; d<size; d++)//deleted bases of the unit
+				for (int phase=0; phase<size; phase++) {
+					int after = (phase + step + size) % size;
+					next[after] = Math.max(next[after], next[phase] + gap);
+					}
+			columnBest = Integer.MIN_VALUE;
+			for (int phase=0; phase<size; phase++)
+				if (next[phase] > columnBest) {
+					columnBest = next[phase];
+					if (columnBest > best) {
+						best = columnBest;
+						bestEnd = pos;
+						bestPhase = (phase - step + size) % size;
+						}
+					}
+			int[] swap = current;
+			current = next;
+			next = swap;
+			}
+		score[0] = best;
+		score[1] = bestPhase;
+		return bestEnd;
+		}
+
+	private static boolean isPrimitive (byte[] residues, int start, int length) {// not a repeat of a shorter unit
+		for (int d=1; d<length; d++) 
+			if (length % d == 0) {
+				boolean repeats = true;
+				for (int i=d; repeats && i<length; i++) repeats = residues[start + i] == residues[start + i - d];
+				if (repeats) return false;
+				}
+		return true;
+		}
+		
+	private static void outputSSRs (IntList ssrs, NameDictionary families, NameDictionary units, String outFile) {
+		Metrics.Step step = Metrics.start("IdentifySSRs", "writing " + new File(outFile).getName());
 		try {
 			BufferedWriter out = new BufferedWriter(new FileWriter(outFile));
 			out.write("Sequence MappedTo\n");
-			for (Enumeration<String> e=ssrs.keys(); e.hasMoreElements();) {
-				String key = e.nextElement();
-				out.write(key + " " + ssrs.get(key) + "\n");
-				}
+			for (int family=0; family<ssrs.size(); family++) 
+				if (ssrs.get(family) >= 0) 
+					out.write(families.getName(family) + " " + units.getName(ssrs.get(family)) + "\n");
 			out.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
+		step.end(ssrs.keySet().cardinality(), 0, Metrics.getSize(outFile));
 		}
 		
-	private static void outputUnknownFasta (Hashtable<String, String> ssrs, String inFile, String outFile) {
+	//Finds the tandem repeats of units of 1 to maxUnit bp, each seeded by two exact copies and extended both
+	//ways, with gaps, while it scores well. Applies addFamilySSR's rule to them: if one starts in the first tenth of the
+	//sequence and ends in the last, its unit is returned in unit[0]. Returns the best percentage covered by a
+	//repeat starting in the first tenth, as addFamilySSR does.
+	private static double scan (byte[] residues, String[] unit) {
+		int length = residues.length;
+		double lowerLimit = length * .1;
+		double upperLimit = length * .9;
+		double maxCovered = 0.0;
+		int bestLength = 0;
+		int[] score = new int[2];
+		for (int size=1; size<=maxUnit; size++) {
+			int run = 0;
+			for (int i=size; i<length; i++) {
+				byte base = upper(residues[i]);
+				run = base == upper(residues[i - size]) && base != 'N'?run + 1:0;
+				if (run < size) continue;
+				int seed = i - 2 * size + 1;
+				if (!isPrimitive(residues, seed, size)) {
+					run = 0;
+					continue;
+					}
+				byte[] seedUnit = new byte[size];
+				for (int j=0; j<size; j++) seedUnit[j] = upper(residues[seed + j]);
+				int end = extend(residues, seed, i + 1, 1, seedUnit, score);
+				int rightScore = score[0];
+				int start = extend(residues, seed, seed - 1, -1, seedUnit, score);
+				if (2 * size + rightScore + score[0] >= minScore && start + 1 <= lowerLimit) {
+					double covered = (end - start + 1) * 100. / length;
+					if (covered > maxCovered) maxCovered = covered;
+					if (end + 1 >= upperLimit && end - start + 1 > bestLength) {
+						bestLength = end - start + 1;
+						byte[] startUnit = new byte[size];
+						for (int j=0; j<size; j++) startUnit[j] = seedUnit[(score[1] + j) % size];
+						unit[0] = new String(startUnit, java.nio.charset.StandardCharsets.ISO_8859_1);
+						}
+					}
+				i = end;
+				run = 0;
+				}
+			}
+		return maxCovered;
+		}
+
+	private static void setOptions (String[] args) {
+		for (int i=0; i<args.length; i++)
+			if (args[i].equals("-phobos")) phobos = true;
+			else 
+				try {setThreads(Integer.parseInt(args[i]));}
+				catch (NumberFormatException ne) {System.out.println("Could not parse: " + args[i]);} 
+		}
+
+	private static byte upper (byte base) {return base >= 'a' && base <= 'z'?(byte) (base - 32):base;}
+
+	private static void outputUnknownFasta (IntList ssrs, NameDictionary families, FastaReader in, 
+		BitSet excluded, String outFile) {
+		Metrics.Step step = Metrics.start("IdentifySSRs", "writing " + new File(outFile).getName());
+		int n = 0;
 		try {
 			BufferedWriter out = new BufferedWriter(new FileWriter(outFile));
-			BufferedReader in = new BufferedReader(new FileReader(inFile));
-			boolean wanted = false;
-			String line = null;
-			while ((line = in.readLine()) != null) {
-				if (line.charAt(0) == '>') wanted = !ssrs.containsKey(line.substring(1));
-				if (wanted) out.write(line + "\n");
+			in.reset();
+			while (in.nextRecord()) {
+				int id = families.get(in.getId());
+				if ((id < 0 || !excluded.get(id)) && ssrs.get(id) < 0) {
+					in.writeRecord(out);
+					n++;
+					}
 				}
-			in.close();
 			out.close();
 			}
 		catch (IOException ie) {ie.printStackTrace();}
+		step.end(n, in.getSize(), Metrics.getSize(outFile));
 		} 
 }
@@ -0,0 +1,240 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/*************************
+InputFile
+	Opens the input files of the annotation stages whether they are plain text, gzip or BGZF (bgzip)
+	compressed. Compression is recognised by the gzip magic number rather than the name, and a file that is
+	missing is read from the same name with .gz added when that exists, so the files the stages read as
+	lines (the map, gff and .ncbi files, the RepBase libraries and phobos' output) can be kept compressed.
+	The FASTA files and indexes are memory-mapped instead (see MappedFile), but for a compressed FASTA file,
+	which FastaReader streams through open.
+	BGZF files are inflated a batch of blocks at a time on a fork join pool, as their blocks are
+	independent, and other gzip files by a GZIPInputStream.
+	Date: October 17, 2026
+	Updated: October 17, 2026 to find a line of a BGZF file by its virtual offset (the block's offset in the
+		file shifted left 16, plus the offset in the inflated block), inflating only its blocks, for
+		RetroAnnotations' lookups in a compressed library
+	Usage: BufferedReader in = InputFile.getReader(file); or InputStream in = InputFile.open(file);
+		String line = InputFile.readLine(file, InputFile.getVirtualOffsets(file, positions)[0]);
+***************************/
+
+
+public class InputFile {
+	private static class BgzfStream extends InputStream {// the blocks of a BGZF file, in order
+		private DataInputStream in;
+		private ForkJoinPool pool = new ForkJoinPool(threads);
+		private BlockTask[] batch = new BlockTask[threads * 16];
+		private int blocks = 0;
+		private int block = 0;
+		private int position = 0;
+
+		public BgzfStream (InputStream in) {this.in = new DataInputStream(new BufferedInputStream(in, 1 << 20));}
+
+		public void close() throws IOException {
+			pool.shutdown();
+			in.close();
+			}
+
+		public int read() throws IOException {
+			if (!fill()) return -1;
+			return batch[block].inflated[position++] & 0xff;
+			}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) return 0;
+			if (!fill()) return -1;
+			int n = Math.min(len, batch[block].inflated.length - position);
+			System.arraycopy(batch[block].inflated, position, b, off, n);
+			position += n;
+			return n;
+			}
+
+		private boolean fill() throws IOException {// false at the end of the file
+			while (block >= blocks || position >= batch[block].inflated.length) {
+				if (++block < blocks) position = 0;
+				else if (!readBatch()) return false;
+				}
+			return true;
+			}
+
+		private boolean readBatch() throws IOException {
+			blocks = 0;
+			block = 0;
+			position = 0;
+			while (blocks < batch.length) {
+				byte[] data = readBlock(in);
+				if (data == null) break;
+				batch[blocks++] = new BlockTask(data);
+				}
+			if (blocks == 0) return false;
+			pool.invoke(new BatchTask(batch, blocks));
+			for (int i=0; i<blocks; i++) if (batch[i].error != null) throw batch[i].error;
+			return true;
+			}
+		}
+
+
+	private static class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private BlockTask[] batch;
+		private int blocks;
+
+		public BatchTask (BlockTask[] batch, int blocks) {
+			this.batch = batch;
+			this.blocks = blocks;
+			}
+
+		protected void compute() {invokeAll(Arrays.asList(batch).subList(0, blocks));}
+		}
+
+
+	private static class BlockTask extends RecursiveAction {// the deflated data, CRC32 and ISIZE of a block
+		private static final long serialVersionUID = 1L;
+		private byte[] data;
+		private byte[] inflated;
+		private IOException error = null;
+
+		public BlockTask (byte[] data) {this.data = data;}
+
+		protected void compute() {
+			int n = data.length - 8;
+			inflated = new byte[getIntLE(data, n + 4)];
+			Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(data, 0, n);
+				int length = 0;
+				while (length < inflated.length && !inflater.finished())
+					if (inflater.inflate(inflated, length, inflated.length - length) == 0 && inflater.needsInput())
+						break;
+					else length = inflater.getTotalOut();
+				CRC32 crc = new CRC32();
+				crc.update(inflated, 0, inflated.length);
+				if (length != inflated.length || (int) crc.getValue() != getIntLE(data, n))
+					error = new IOException("Corrupt BGZF block");
+				}
+			catch (DataFormatException de) {error = new IOException("Corrupt BGZF block: " + de.getMessage());}
+			inflater.end();
+			data = null;
+			}
+		}
+
+
+	private static int threads = Runtime.getRuntime().availableProcessors();
+
+	public static boolean exists (String file) {return new File(file).exists() || new File(file + ".gz").exists();}
+
+	public static BufferedReader getReader (String file) throws IOException {
+		return new BufferedReader(new InputStreamReader(open(file)), 1 << 16);
+		}
+
+	//The virtual offsets of positions in the inflated file, which are in increasing order
+	public static long[] getVirtualOffsets (String file, long[] positions) throws IOException {
+		long[] offsets = new long[positions.length];
+		RandomAccessFile in = new RandomAccessFile(resolve(file), "r");
+		long start = 0;//of the block, in the inflated file
+		int p = 0;
+		try {
+			while (p < positions.length) {
+				long block = in.getFilePointer();
+				byte[] data = readBlock(in);
+				if (data == null) throw new IOException(positions[p] + " is past the end of " + file);
+				long end = start + getIntLE(data, data.length - 4);
+				for (; p<positions.length && positions[p]<end; p++) offsets[p] = block << 16 | (positions[p] - start);
+				start = end;
+				}
+			}
+		finally {in.close();}
+		return offsets;
+		}
+
+	public static boolean isBgzf (String file) throws IOException {return getFormat(resolve(file)) == 2;}
+
+	public static boolean isGzip (String file) throws IOException {return getFormat(resolve(file)) > 0;}
+
+	public static InputStream open (String file) throws IOException {
+		file = resolve(file);
+		int format = getFormat(file);
+		InputStream in = new FileInputStream(file);
+		if (format == 2) return new BgzfStream(in);
+		if (format == 1) return new GZIPInputStream(in, 1 << 16);
+		return in;
+		}
+
+	//The line of a BGZF file from a virtual offset, without its line end
+	public static String readLine (String file, long virtualOffset) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		RandomAccessFile in = new RandomAccessFile(resolve(file), "r");
+		try {
+			in.seek(virtualOffset >>> 16);
+			int position = (int) (virtualOffset & 0xffff);
+			for (byte[] data; (data = readBlock(in)) != null; position = 0) {
+				BlockTask block = new BlockTask(data);
+				block.invoke();
+				if (block.error != null) throw block.error;
+				int end = position;
+				while (end < block.inflated.length && block.inflated[end] != '\n') end++;
+				line.write(block.inflated, position, end - position);
+				if (end < block.inflated.length) break;
+				}
+			}
+		finally {in.close();}
+		byte[] bytes = line.toByteArray();
+		int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r'?bytes.length - 1:bytes.length;
+		return new String(bytes, 0, length, "ISO-8859-1");
+		}
+
+	//The file, or the file with .gz added when only that exists
+	public static String resolve (String file) {
+		if (new File(file).exists() || !new File(file + ".gz").exists()) return file;
+		return file + ".gz";
+		}
+
+	public static void setThreads (int n) {threads = Math.max(1, n);}
+
+
+	//The size of a BGZF block, from the BC subfield of its gzip header's extra field, or -1
+	private static int getBlockSize (byte[] extra) {
+		for (int i=0; i+4<=extra.length;) {
+			int length = (extra[i + 2] & 0xff) | (extra[i + 3] & 0xff) << 8;
+			if (extra[i] == 'B' && extra[i + 1] == 'C' && length == 2 && i + 6 <= extra.length)
+				return ((extra[i + 4] & 0xff) | (extra[i + 5] & 0xff) << 8) + 1;
+			i += 4 + length;
+			}
+		return -1;
+		}
+
+	//The deflated data, CRC32 and ISIZE of the next BGZF block, or null at the end of the file
+	private static byte[] readBlock (DataInput in) throws IOException {
+		byte[] header = new byte[12];
+		try {in.readFully(header, 0, 1);}
+		catch (EOFException ee) {return null;}
+		in.readFully(header, 1, 11);
+		int xlen = (header[10] & 0xff) | (header[11] & 0xff) << 8;
+		byte[] extra = new byte[xlen];
+		in.readFully(extra);
+		int size = getBlockSize(extra);
+		if (size < 0) throw new IOException("Not a BGZF block");
+		byte[] data = new byte[size - 12 - xlen];
+		in.readFully(data);
+		return data;
+		}
+
+	private static int getFormat (String file) throws IOException {// 0 plain, 1 gzip, 2 BGZF
+		byte[] header = new byte[18];
+		InputStream in = new FileInputStream(file);
+		int n = 0;
+		for (int read; n < header.length && (read = in.read(header, n, header.length - n)) > 0;) n += read;
+		in.close();
+		if (n < 10 || (header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b) return 0;
+		if (n == 18 && (header[3] & 4) != 0 && header[12] == 'B' && header[13] == 'C') return 2;
+		return 1;
+		}
+
+	private static int getIntLE (byte[] bytes, int pos) {
+		return (bytes[pos] & 0xff) | (bytes[pos + 1] & 0xff) << 8 | (bytes[pos + 2] & 0xff) << 16 |
+			(bytes[pos + 3] & 0xff) << 24;
+		}
+	}
@@ -0,0 +1,47 @@
+import java.util.BitSet;
+
+/*************************
+IntList
+	A growable array of ints. Setting an index past the end grows the list, filling the gap with the
+	value given for missing entries (0 by default, -1 for lists of IDs).
+	Date: October 17, 2026
+***************************/
+
+
+public class IntList {
+	private int[] values = new int[16];
+	private int size = 0;
+	private int missing;
+
+	public IntList () {this(0);}
+
+	public IntList (int missing) {this.missing = missing;}
+
+	public void add (int value) {set(size, value);}
+
+	public int get (int index) {return index >= 0 && index < size?values[index]:missing;}
+
+	public void set (int index, int value) {
+		if (index >= values.length) {
+			int[] larger = new int[Math.max(values.length * 2, index + 1)];
+			System.arraycopy(values, 0, larger, 0, size);
+			values = larger;
+			}
+		for (; size<=index; size++) values[size] = missing;
+		values[index] = value;
+		}
+
+	public BitSet keySet () {// the indices that have a value
+		BitSet keys = new BitSet(size);
+		for (int i=0; i<size; i++) if (values[i] != missing) keys.set(i);
+		return keys;
+		}
+
+	public int size () {return size;}
+
+	public int[] toArray () {
+		int[] array = new int[size];
+		System.arraycopy(values, 0, array, 0, size);
+		return array;
+		}
+	}
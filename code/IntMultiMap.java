@@ -0,0 +1,59 @@
+import java.util.BitSet;
+
+/*************************
+IntMultiMap
+	Maps dense int keys (IDs from a NameDictionary) to lists of int values, such as the library targets
+	a consensus family partially maps to, without boxing. Each key's values are kept in the order they
+	were added, as a linked list threaded through primitive arrays. Not synchronized.
+	Date: October 17, 2026
+	Usage: for (int e=map.first(key); e>=0; e=map.next(e)) map.getValue(e);
+***************************/
+
+
+public class IntMultiMap {
+	private IntList first = new IntList(-1);
+	private IntList last = new IntList(-1);
+	private IntList next = new IntList(-1);
+	private IntList values = new IntList();
+	private int keys = 0;
+
+	public int add (int key, int value) {// returns the entry
+		int entry = values.size();
+		values.add(value);
+		next.add(-1);
+		if (first.get(key) < 0) {
+			first.set(key, entry);
+			keys++;
+			}
+		else next.set(last.get(key), entry);
+		last.set(key, entry);
+		return entry;
+		}
+
+	public boolean containsKey (int key) {return first.get(key) >= 0;}
+
+	public int first (int key) {return first.get(key);}
+
+	public int getValue (int entry) {return values.get(entry);}
+
+	public BitSet keySet () {
+		BitSet keySet = new BitSet(first.size());
+		for (int key=0; key<first.size(); key++) if (first.get(key) >= 0) keySet.set(key);
+		return keySet;
+		}
+
+	public int next (int entry) {return next.get(entry);}
+
+	public int size () {return keys;}
+
+	public int maxKey () {return first.size() - 1;}
+
+	public String join (int key, NameDictionary names, String separator) {
+		StringBuilder joined = new StringBuilder();
+		for (int e=first(key); e>=0; e=next(e)) {
+			if (joined.length() > 0) joined.append(separator);
+			joined.append(names.getName(getValue(e)));
+			}
+		return joined.toString();
+		}
+	}
@@ -0,0 +1,75 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/*************************
+MappedFile
+	A read only memory-mapping of a whole file, in 1GB segments so that files larger than 2GB can be
+	mapped, with the byte and line level access used by FastaReader and the map file readers.
+	Date: October 17, 2026
+	Updated: October 17, 2026 To reject gzip and BGZF files with a clear message rather than inflate them
+		into the heap, whose size is then that of the text (the line-oriented readers stream them through
+		InputFile instead)
+	Updated: October 17, 2026 to add getLong, for the offsets of the RetroAnnotations indexes
+	Updated: October 17, 2026 to let FastaReader hold the records it streams from a compressed file in place
+		of a mapping (the protected constructor)
+***************************/
+
+
+public class MappedFile {
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+	private ByteBuffer[] segments;
+	protected long size;
+
+	protected MappedFile () {}// for bytes that are not mapped, see FastaReader
+
+	public MappedFile (String file) throws IOException {
+		file = InputFile.resolve(file);
+		if (InputFile.isGzip(file)) 
+			throw new IOException(file + " is compressed, but is read by memory-mapping it: decompress it first " +
+				"(gunzip, or bgzip -d), or read it through FastaReader or InputFile");
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		FileChannel channel = raf.getChannel();
+		size = channel.size();
+		segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+		for (int i=0; i<segments.length; i++) {
+			long start = (long) i << SEGMENT_SHIFT;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start,
+				SEGMENT_MASK + 1));
+			}
+		raf.close();
+		}
+
+	public byte byteAt(long pos) {
+		return segments[(int) (pos >>> SEGMENT_SHIFT)].get((int) (pos & SEGMENT_MASK));
+		}
+
+	public int getInt(long pos) {// big endian, as written by DataOutputStream
+		return (byteAt(pos) & 0xff) << 24 | (byteAt(pos + 1) & 0xff) << 16 | (byteAt(pos + 2) & 0xff) << 8 | 
+			(byteAt(pos + 3) & 0xff);
+		}
+
+	public long getLong(long pos) {return (long) getInt(pos) << 32 | (getInt(pos + 4) & 0xffffffffL);}
+
+	public long getSize() {return size;}
+
+	public String getString(long start, long end) {
+		byte[] bytes = new byte[(int) (end - start)];
+		for (int i=0; i<bytes.length; i++) bytes[i] = byteAt(start + i);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+
+	public long lineEnd(long start, long next) {// end of the line's text, ignoring the \n or \r\n
+		long end = next;
+		if (end > start && byteAt(end - 1) == '\n') end--;
+		if (end > start && byteAt(end - 1) == '\r') end--;
+		return end;
+		}
+
+	public long nextLine(long pos) {// the start of the line after the one containing pos
+		while (pos < size && byteAt(pos) != '\n') pos++;
+		return pos < size?pos + 1:size;
+		}
+	}
@@ -0,0 +1,158 @@
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import jdk.jfr.*;
+
+/*************************
+Metrics
+	Times the steps of each annotation stage (length loading, map parsing, hit loading, classification,
+	writing and so on) with the records they handled, the bytes they read and wrote, the peak heap while they
+	ran and the GC time they saw. Each step is committed as a carp.Step JFR event, recorded when the JVM is
+	run with -XX:StartFlightRecording, and the steps of a run are written as a JSON summary to the file
+	named by -Dcarp.metrics (or AnnotationPipeline's -metrics). Steps may be nested, a stage's steps within
+	it, and are only started and ended on the stage's own thread.
+	Date: October 17, 2026
+	Outputs: The JSON summary, when a file is named
+	Usage: Metrics.Step step = Metrics.start("GetProteins", "hit loading"); ... step.end(records, read, written);
+***************************/
+
+
+public class Metrics {
+	@Name("carp.Step")
+	@Label("Annotation Step")
+	@Category("CARP")
+	@StackTrace(false)
+	static class StepEvent extends jdk.jfr.Event {
+		@Label("Stage") String stage;
+		@Label("Step") String step;
+		@Label("Records") long records;
+		@Label("Bytes Read") @DataAmount long bytesRead;
+		@Label("Bytes Written") @DataAmount long bytesWritten;
+		@Label("Peak Heap") @DataAmount long peakHeap;
+		@Label("GC Time") @Timespan(Timespan.MILLISECONDS) long gcTime;
+		}
+
+
+	static class Step {
+		private String stage;
+		private String name;
+		private int depth;
+		private long start = System.nanoTime();
+		private long wall = 0;
+		private long gcStart = getGCTime();
+		private long gcTime = 0;
+		private long peakHeap = 0;
+		private long records = 0;
+		private long bytesRead = 0;
+		private long bytesWritten = 0;
+		private StepEvent event = new StepEvent();
+
+		private Step (String stage, String name, int depth) {
+			this.stage = stage;
+			this.name = name;
+			this.depth = depth;
+			event.begin();
+			}
+
+		public void end (long records, long bytesRead, long bytesWritten) {
+			wall = System.nanoTime() - start;
+			gcTime = getGCTime() - gcStart;
+			this.records = records;
+			this.bytesRead = bytesRead;
+			this.bytesWritten = bytesWritten;
+			Metrics.end(this);
+			event.end();
+			if (event.shouldCommit()) {
+				event.stage = stage;
+				event.step = name;
+				event.records = records;
+				event.bytesRead = bytesRead;
+				event.bytesWritten = bytesWritten;
+				event.peakHeap = peakHeap;
+				event.gcTime = gcTime;
+				event.commit();
+				}
+			}
+
+		private void toJSON (Writer out) throws IOException {
+			double seconds = wall / 1e9;
+			out.write("    {\"stage\": " + quote(stage) + ", \"step\": " + quote(name) + ", \"depth\": " + depth +
+				", \"wallMs\": " + wall / 1000000 + ", \"records\": " + records + ", \"recordsPerSecond\": " +
+				(seconds > 0?Math.round(records / seconds):0) + ", \"bytesRead\": " + bytesRead +
+				", \"bytesWritten\": " + bytesWritten + ", \"peakHeapBytes\": " + peakHeap + ", \"gcMs\": " +
+				gcTime + "}");
+			}
+		}
+
+
+	private static long runStart = System.nanoTime();
+	private static long runGCStart = getGCTime();
+	private static long runPeakHeap = 0;
+	private static List<Step> steps = new ArrayList<Step>();
+	private static Deque<Step> open = new ArrayDeque<Step>();
+
+	//The size of an input or output file, as it is on disk
+	static long getSize (String file) {return new File(InputFile.resolve(file)).length();}
+
+	static synchronized Step start (String stage, String name) {
+		updatePeakHeap();
+		Step step = new Step(stage, name, open.size());
+		steps.add(step);
+		open.push(step);
+		return step;
+		}
+
+	static void setFile (String file) {System.setProperty("carp.metrics", file);}
+
+	//Writes the JSON summary of the steps ended so far, in the order they were started
+	static synchronized void write() {
+		String file = System.getProperty("carp.metrics");
+		if (file == null) return;
+		updatePeakHeap();
+		try {
+			BufferedWriter out = new BufferedWriter(new FileWriter(file));
+			out.write("{\n  \"wallMs\": " + (System.nanoTime() - runStart) / 1000000 + ", \"peakHeapBytes\": " +
+				runPeakHeap + ", \"gcMs\": " + (getGCTime() - runGCStart) + ",\n  \"steps\": [\n");
+			boolean first = true;
+			for (Step step : steps)
+				if (!open.contains(step)) {
+					if (!first) out.write(",\n");
+					step.toJSON(out);
+					first = false;
+					}
+			out.write("\n  ]\n}\n");
+			out.close();
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		}
+
+
+	private static synchronized void end (Step step) {
+		updatePeakHeap();
+		open.remove(step);
+		}
+
+	private static long getGCTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			time += Math.max(0, gc.getCollectionTime());
+		return time;
+		}
+
+	private static String quote (String text) {
+		return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+		}
+
+	//The heap pools' peaks since the last update are credited to every open step, and the peaks are reset so
+	//that a step started later does not see the peak of one that ended before it
+	private static void updatePeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				peak += pool.getPeakUsage().getUsed();
+				pool.resetPeakUsage();
+				}
+		for (Step step : open) step.peakHeap = Math.max(step.peakHeap, peak);
+		runPeakHeap = Math.max(runPeakHeap, peak);
+		}
+	}
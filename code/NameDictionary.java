@@ -0,0 +1,49 @@
+/*************************
+NameDictionary
+	Assigns dense int IDs (0, 1, 2 ...) to names, such as the consensus family names or the library
+	targets, once per run so that lengths, hits and mappings can be kept in primitive arrays indexed by
+	ID rather than in Hashtables keyed on the names. Not synchronized.
+	Date: October 17, 2026
+***************************/
+
+
+public class NameDictionary {
+	private String[] names = new String[1024];
+	private int[] slots = new int[2048];// open addressing, holds ID + 1, 0 for an empty slot
+	private int size = 0;
+
+	public int add (String name) {
+		int slot = find(name);
+		if (slots[slot] != 0) return slots[slot] - 1;
+		if (size == names.length) {
+			String[] larger = new String[size * 2];
+			System.arraycopy(names, 0, larger, 0, size);
+			names = larger;
+			}
+		names[size] = name;
+		slots[slot] = ++size;
+		if (size * 2 > slots.length) rehash();
+		return size - 1;
+		}
+
+	public boolean contains (String name) {return get(name) >= 0;}
+
+	public int get (String name) {return slots[find(name)] - 1;}
+
+	public String getName (int id) {return names[id];}
+
+	public int size () {return size;}
+
+	private int find (String name) {
+		int mask = slots.length - 1;
+		int h = name.hashCode();
+		int slot = (h ^ (h >>> 16)) & mask;
+		while (slots[slot] != 0 && !names[slots[slot] - 1].equals(name)) slot = (slot + 1) & mask;
+		return slot;
+		}
+
+	private void rehash () {
+		slots = new int[slots.length * 2];
+		for (int id=0; id<size; id++) slots[find(names[id])] = id + 1;
+		}
+	}
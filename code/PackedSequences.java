@@ -0,0 +1,350 @@
+import java.io.*;
+import java.util.*;
+
+/*************************
+PackedSequences
+	The records of a fasta file held in memory, their residues packed at 2 bits a base, so that the stages
+	can write, slice or reverse complement them without the file being kept. Residues other than ACGT (N and
+	the IUPAC codes) are kept as runs of one residue, and lowercase as runs of positions, both in order so
+	that a range finds its runs by binary search. Each record keeps its header, the offsets of its header and
+	body in the file and its line width (or all its line lengths when its lines are not of one width, but
+	for the last), so it is written as it was read. As it is a FastaReader, it can be handed to any stage in
+	place of the reader it was packed from, and reads the same records; records are numbered in file order.
+	162M bases pack into about 40MB.
+	Date: October 17, 2026
+	Updated: October 17, 2026 to keep each body offset as read, as a header line may end in \r\n
+	Updated: October 17, 2026 to take the file's size once it is packed, as a compressed file's is not known
+		until it has been streamed
+	Inputs: A fasta file, through its FastaReader
+	Usage: FastaReader consensus = new PackedSequences(new FastaReader(file));
+		java PackedSequences [file] (reports the packed size, and checks that every record is written as read)
+***************************/
+
+
+public class PackedSequences extends FastaReader {
+	private static final byte[] letters = {'A', 'C', 'G', 'T'};
+	private static final byte[] complements = new byte[256];
+	private long[] bases;//2 bits a base, ACGT as 0-3, the records one after another
+	private long[] starts;//the first base of each record, and one past the last
+	private long[] headerOffsets;
+	private long[] bodyOffsets;//as read, after a header line ending in \n or \r\n
+	private String[] headers;
+	private int[] widths;//of each record's lines, or -1 when its lines are in irregularLines
+	private Map<Integer, int[]> irregularLines;
+	private long[] exceptionStarts;//runs of one residue other than ACGT, in upper case
+	private int[] exceptionLengths;
+	private byte[] exceptions;
+	private long[] lowerStarts;//runs of lowercase residues
+	private long[] lowerEnds;
+	private long size;//of the file, known once a streamed file has been read
+	private int first = 0;//the records of this reader, a chunk of the file or all of it
+	private int last;
+	private int record = -1;
+	private char[] chars = new char[8192];
+
+	static {
+		for (int b=0; b<256; b++) complements[b] = (byte) b;
+		String pairs = "ATCGRYKMBVDHNNSSWW";
+		for (int i=0; i<pairs.length(); i+=2) {
+			char a = pairs.charAt(i);
+			char b = pairs.charAt(i + 1);
+			complements[a] = (byte) b;
+			complements[b] = (byte) a;
+			complements[Character.toLowerCase(a)] = (byte) Character.toLowerCase(b);
+			complements[Character.toLowerCase(b)] = (byte) Character.toLowerCase(a);
+			}
+		complements['U'] = 'A';
+		complements['u'] = 'a';
+		}
+
+	public PackedSequences (FastaReader in) {
+		super(in.getSize());
+		List<String> headerList = new ArrayList<String>();
+		List<Long> offsetList = new ArrayList<Long>();
+		List<Long> bodyList = new ArrayList<Long>();
+		IntList widthList = new IntList();
+		irregularLines = new HashMap<Integer, int[]>();
+		long[] packed = new long[1024];
+		long[] recordStarts = new long[1024];
+		long[] eStarts = new long[64];
+		int[] eLengths = new int[64];
+		byte[] eBytes = new byte[64];
+		int nExceptions = 0;
+		long[] lStarts = new long[64];
+		long[] lEnds = new long[64];
+		int nLower = 0;
+		long n = 0;
+		in.reset();
+		while (in.nextRecord()) {
+			int r = headerList.size();
+			if (r + 1 >= recordStarts.length) recordStarts = Arrays.copyOf(recordStarts, recordStarts.length * 2);
+			recordStarts[r] = n;
+			headerList.add(in.getHeader());
+			offsetList.add(in.getHeaderOffset());
+			bodyList.add(in.getBodyOffset());
+			IntList lines = in.getLineLengths();
+			int width = getWidth(lines);
+			widthList.add(width);
+			if (width < 0) {
+				int[] lengths = new int[lines.size()];
+				for (int i=0; i<lengths.length; i++) lengths[i] = lines.get(i);
+				irregularLines.put(r, lengths);
+				}
+			byte[] residues = in.getSequence();
+			if (((n + residues.length) >>> 5) + 1 > packed.length)
+				packed = Arrays.copyOf(packed, (int) Math.max(packed.length * 2L, ((n + residues.length) >>> 5) + 1));
+			for (int i=0; i<residues.length; i++, n++) {
+				byte b = residues[i];
+				boolean lower = b >= 'a' && b <= 'z';
+				if (lower) {
+					b -= 32;
+					if (nLower > 0 && lEnds[nLower - 1] == n) lEnds[nLower - 1]++;
+					else {
+						if (nLower == lStarts.length) {
+							lStarts = Arrays.copyOf(lStarts, nLower * 2);
+							lEnds = Arrays.copyOf(lEnds, nLower * 2);
+							}
+						lStarts[nLower] = n;
+						lEnds[nLower++] = n + 1;
+						}
+					}
+				int code = getCode(b);
+				if (code < 0) {
+					code = 0;
+					int e = nExceptions - 1;
+					if (e >= 0 && eBytes[e] == b && eStarts[e] + eLengths[e] == n) eLengths[e]++;
+					else {
+						if (nExceptions == eStarts.length) {
+							eStarts = Arrays.copyOf(eStarts, nExceptions * 2);
+							eLengths = Arrays.copyOf(eLengths, nExceptions * 2);
+							eBytes = Arrays.copyOf(eBytes, nExceptions * 2);
+							}
+						eStarts[nExceptions] = n;
+						eLengths[nExceptions] = 1;
+						eBytes[nExceptions++] = b;
+						}
+					}
+				packed[(int) (n >>> 5)] |= (long) code << ((n & 31) << 1);
+				}
+			}
+		int records = headerList.size();
+		recordStarts[records] = n;
+		bases = Arrays.copyOf(packed, (int) (n >>> 5) + 1);
+		starts = Arrays.copyOf(recordStarts, records + 1);
+		headers = headerList.toArray(new String[records]);
+		headerOffsets = new long[records];
+		bodyOffsets = new long[records];
+		widths = new int[records];
+		for (int r=0; r<records; r++) {
+			headerOffsets[r] = offsetList.get(r);
+			bodyOffsets[r] = bodyList.get(r);
+			widths[r] = widthList.get(r);
+			}
+		exceptionStarts = Arrays.copyOf(eStarts, nExceptions);
+		exceptionLengths = Arrays.copyOf(eLengths, nExceptions);
+		exceptions = Arrays.copyOf(eBytes, nExceptions);
+		lowerStarts = Arrays.copyOf(lStarts, nLower);
+		lowerEnds = Arrays.copyOf(lEnds, nLower);
+		last = records;
+		size = in.getSize();
+		}
+
+	private PackedSequences (PackedSequences packed, int first, int last) {// a chunk, sharing the arrays
+		super(packed.getSize());
+		size = packed.getSize();
+		bases = packed.bases;
+		starts = packed.starts;
+		headerOffsets = packed.headerOffsets;
+		bodyOffsets = packed.bodyOffsets;
+		headers = packed.headers;
+		widths = packed.widths;
+		irregularLines = packed.irregularLines;
+		exceptionStarts = packed.exceptionStarts;
+		exceptionLengths = packed.exceptionLengths;
+		exceptions = packed.exceptions;
+		lowerStarts = packed.lowerStarts;
+		lowerEnds = packed.lowerEnds;
+		this.first = first;
+		this.last = last;
+		record = first - 1;
+		}
+
+	public static void main (String[] args) {
+		String file = args.length > 0?args[0]:"./ConsensusSequences.fa";
+		try {
+			FastaReader in = new FastaReader(file);
+			Metrics.Step step = Metrics.start("PackedSequences", "packing");
+			PackedSequences packed = new PackedSequences(in);
+			step.end(packed.size(), in.getSize(), 0);
+			System.out.println(packed.size() + " records of " + packed.getResidues() + " residues (" +
+				packed.exceptions.length + " runs of other residues, " + packed.lowerStarts.length +
+				" lowercase runs) packed into " + packed.getPackedSize() + " bytes from " + in.getSize());
+			int differ = 0;
+			in.reset();
+			packed.reset();
+			while (in.nextRecord() && packed.nextRecord()) {
+				StringWriter read = new StringWriter();
+				StringWriter written = new StringWriter();
+				in.writeRecord(read);
+				packed.writeRecord(written);
+				if (!read.toString().equals(written.toString()) && differ++ == 0)
+					System.out.println("Could not pack " + in.getId() + " as read");
+				}
+			System.out.println(differ == 0?"Every record is written as read":differ + " records are not written as read");
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		Metrics.write();
+		}
+
+	public long getBodyEnd() {return record + 1 < headerOffsets.length?headerOffsets[record + 1]:getSize();}
+
+	public long getBodyOffset() {return bodyOffsets[record];}
+
+	public long getSize() {return size;}
+
+	//The records whose headers start from start up to end, sharing this store
+	public FastaReader getChunk(long start, long end) {
+		return new PackedSequences(this, findRecord(start), findRecord(end));
+		}
+
+	public String getHeader() {return headers[record];}
+
+	public long getHeaderOffset() {return headerOffsets[record];}
+
+	public String getId() {
+		String header = headers[record];
+		int end = 0;
+		while (end < header.length() && header.charAt(end) != ' ' && header.charAt(end) != '\t') end++;
+		return header.substring(0, end);
+		}
+
+	public int getLength() {return getLength(record);}
+
+	public int getLength(int record) {return (int) (starts[record + 1] - starts[record]);}
+
+	public long getPackedSize() {// the bytes of the residues, exceptions and line widths, without the headers
+		long size = 8L * (bases.length + starts.length + 2 * headerOffsets.length + exceptionStarts.length +
+			lowerStarts.length + lowerEnds.length) + 4L * (widths.length + exceptionLengths.length) + exceptions.length;
+		for (int[] lines : irregularLines.values()) size += 4L * lines.length;
+		return size;
+		}
+
+	public int getRecord() {return record;}
+
+	public long getResidues() {return starts[starts.length - 1];}
+
+	//Residues start to end (from 1, inclusive) of the record, reverse complemented, keeping their case. The
+	//IUPAC codes are complemented, other residues are kept.
+	public byte[] getReverseComplement(int record, int start, int end) {
+		byte[] residues = getSequence(record, start, end);
+		for (int i=0, j=residues.length - 1; i<=j; i++, j--) {
+			byte b = complements[residues[i] & 0xff];
+			residues[i] = complements[residues[j] & 0xff];
+			residues[j] = b;
+			}
+		return residues;
+		}
+
+	public byte[] getSequence() {return getSequence(record);}
+
+	public byte[] getSequence(int record) {return getSequence(record, 1, getLength(record));}
+
+	public byte[] getSequence(int record, int start, int end) {// residues start to end, from 1, inclusive
+		long from = starts[record] + start - 1;
+		long to = starts[record] + end;
+		byte[] residues = new byte[(int) Math.max(0, to - from)];
+		for (long p=from; p<to; p++) 
+			residues[(int) (p - from)] = letters[(int) (bases[(int) (p >>> 5)] >>> ((p & 31) << 1)) & 3];
+		for (int e=findRun(exceptionStarts, from); e<exceptionStarts.length && exceptionStarts[e]<to; e++)
+			for (long p=Math.max(from, exceptionStarts[e]); p<Math.min(to, exceptionStarts[e] + exceptionLengths[e]); p++)
+				residues[(int) (p - from)] = exceptions[e];
+		for (int l=findRun(lowerStarts, from); l<lowerStarts.length && lowerStarts[l]<to; l++)
+			for (long p=Math.max(from, lowerStarts[l]); p<Math.min(to, lowerEnds[l]); p++) {
+				int i = (int) (p - from);
+				if (residues[i] >= 'A' && residues[i] <= 'Z') residues[i] += 32;
+				}
+		return residues;
+		}
+
+	public boolean nextRecord() {
+		if (record + 1 >= last) return false;
+		record++;
+		return true;
+		}
+
+	public void reset() {record = first - 1;}
+
+	public boolean setRecord(int record) {// so that the next record read is the given one
+		if (record < first || record >= last) return false;
+		this.record = record - 1;
+		return true;
+		}
+
+	public int size() {return last - first;}
+
+	public void writeBody(Writer out) throws IOException {
+		byte[] residues = getSequence(record);
+		int[] lines = widths[record] < 0?irregularLines.get(record):null;
+		int pos = 0;
+		for (int line=0; lines == null?pos<residues.length:line<lines.length; line++) {
+			int length = lines == null?Math.min(widths[record], residues.length - pos):lines[line];
+			if (length + 1 > chars.length) chars = new char[length + 1];
+			for (int i=0; i<length; i++) chars[i] = (char) (residues[pos + i] & 0xff);
+			chars[length] = '\n';
+			out.write(chars, 0, length + 1);
+			pos += length;
+			}
+		}
+
+	public void writeRecord(Writer out) throws IOException {
+		out.write(">" + headers[record] + "\n");
+		writeBody(out);
+		}
+
+
+	private int findRecord(long offset) {// the first record whose header starts at or after offset
+		int low = 0;
+		int high = headerOffsets.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (headerOffsets[mid] < offset) low = mid + 1;
+			else high = mid;
+			}
+		return low;
+		}
+
+	private static int findRun(long[] runStarts, long from) {// the last run starting at or before from, or 0
+		int low = 0;
+		int high = runStarts.length - 1;
+		int found = 0;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (runStarts[mid] <= from) {
+				found = mid;
+				low = mid + 1;
+				}
+			else high = mid - 1;
+			}
+		return found;
+		}
+
+	private static int getCode (byte base) {// 2 bits, or -1 for anything but ACGT
+		switch (base) {
+			case 'A': return 0;
+			case 'C': return 1;
+			case 'G': return 2;
+			case 'T': return 3;
+			default: return -1;
+			}
+		}
+
+	//The width of the record's lines when all but the last are of it and the last is no longer, or -1
+	private static int getWidth(IntList lines) {
+		if (lines.size() == 0) return 0;
+		int width = lines.get(0);
+		if (width == 0) return -1;
+		for (int i=1; i<lines.size() - 1; i++) if (lines.get(i) != width) return -1;
+		int lastLine = lines.get(lines.size() - 1);
+		return lastLine > 0 && lastLine <= width?width:-1;
+		}
+	}
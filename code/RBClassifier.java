@@ -0,0 +1,411 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*************************
+RBClassifier
+	Classifies library sequence names by the RepBase family of the same name, after a small set of prefix
+	rules. The RepBase headers are compiled once into an index file (an open addressed table of names and
+	their finished classifications) which is memory-mapped by later runs, rather than every *rep.ref file
+	being read and split on each run. Classifications are memoized per target ID.
+	Date: October 17, 2026 (from GenerateAnnotatedLibrary)
+	Updated: October 17, 2026 to add setTargets, so the index can be mapped while the targets are read
+	Updated: October 17, 2026 to share a mapped index between classifiers of different targets
+	Updated: October 17, 2026 to add setRepBase, so the tests classify by a RepBase and index of their own
+	Inputs: /home/a1635743/RepBase20.04.fasta/*rep.ref (RepBase libraries to base classification on)
+	Outputs: RepBase20.04.index (The compiled classifications, written when it does not already exist or is
+		older than any *rep.ref file, through a .tmp file renamed into place, so a run that fails or is stopped
+		leaves no partial index to be mapped. The main method rebuilds it regardless)
+	Usage: java RBClassifier [RepBase directory [index file]]
+***************************/
+
+
+public class RBClassifier {
+	private static final int MAGIC = 0x52424931;
+	private static final String[][] prefixRules = {
+		{"AFROSINE", "SINE2/AFROSINE"}, {"BTLTR1", "LTR/BTLTR1"}, {"Bov-tA", "SINE2/BOV.tA"}, 
+		{"BovB", "LINE/RTE_BovB"}, {"ERE1", "SINE2/ERE1"}, {"ERE2", "SINE2/ERE2"}, {"ERE3", "SINE2/ERE3"}, 
+		{"ERE4", "SINE2/ERE4"}, {"MIR", "SINE2/MIR"}, {"MIRAGE", null}, {"SINEC", "SINE2/CanSINE"}, 
+		{"THER", "SINE2/MIR"}, {"ERV-1_PM", "ERV/ERV1"}, {"ERV-2_PM", "ERV"}, {"AluY", "SINE1/7SL"}, 
+		{"Dada", "DNA/Dada"}, {"DNA-TTAA0-", "DNA"}, {"Kolobok", "DNA/Kolobok"}, {"Sola", "DNA/Sola"}};//null excludes
+	//the prefix rules as a trie, each node's children are a list of siblings
+	private static IntList firstChild = new IntList(-1);
+	private static IntList nextSibling = new IntList(-1);
+	private static IntList label = new IntList();
+	private static IntList rule = new IntList(-1);
+	private static String libDir = "/home/a1635743/RepBase20.04.fasta";
+	private static String indexFile = "./RepBase20.04.index";
+	private MappedFile index = null;
+	private String[] classes = new String[0];
+	private int nSlots = 0;
+	private long slotStart = 0;
+	private NameDictionary targets;
+	private String[] memo;
+
+	static {
+		label.set(0, 0);//the root
+		for (int r=0; r<prefixRules.length; r++) {
+			int node = 0;
+			for (int i=0; i<prefixRules[r][0].length(); i++) node = addChild(node, prefixRules[r][0].charAt(i));
+			rule.set(node, r);
+			}
+		}
+
+	public RBClassifier (NameDictionary targets) {this(targets, libDir, indexFile);}
+
+	RBClassifier (NameDictionary targets, String libDir, String indexFile) {
+		this.targets = targets;
+		memo = new String[targets.size()];
+		try {
+			if (!isCurrent(libDir, indexFile)) 
+				if (new File(libDir).exists()) compile(libDir, indexFile);
+				else System.out.println("The directory " + libDir + " does not exist.");
+			if (new File(indexFile).exists()) map(indexFile);
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		}
+
+	//A classifier of other targets sharing the mapped index, as for each request of ClassificationService
+	RBClassifier (RBClassifier mapped, NameDictionary targets) {
+		this.targets = targets;
+		memo = new String[targets.size()];
+		index = mapped.index;
+		classes = mapped.classes;
+		nSlots = mapped.nSlots;
+		slotStart = mapped.slotStart;
+		}
+
+	public static void main (String[] args) {
+		try {compile(args.length > 0?args[0]:libDir, args.length > 1?args[1]:indexFile);}
+		catch (IOException ie) {ie.printStackTrace();}
+		}
+
+	public String classify (int target) {
+		if (target < 0 || target >= memo.length) return classify(targets.getName(target));
+		String classif = memo[target];
+		if (classif == null) memo[target] = classif = classify(targets.getName(target));
+		return classif;
+		}
+
+	public String classify (String name) {
+		String classif = getPrefixClassification(name);
+		if (classif == null) classif = lookup(name);
+		if (classif == null) return name.startsWith("ERV")?"ERV":"Unknown";
+		return classif;
+		}
+
+	//The RepBase directory and index file of the classifiers made by name, as for a test's temporary directory
+	static void setRepBase (String dir, String index) {
+		libDir = dir;
+		indexFile = index;
+		}
+
+	//Memoizes by the IDs of targets, for a classifier made before the targets were all read
+	void setTargets (NameDictionary targets) {
+		this.targets = targets;
+		memo = new String[targets.size()];
+		}
+
+
+	private static int addChild (int node, char c) {
+		int child = firstChild.get(node);
+		for (; child>=0; child=nextSibling.get(child)) if (label.get(child) == c) return child;
+		child = label.size();
+		label.set(child, c);
+		firstChild.set(child, -1);
+		nextSibling.set(child, firstChild.get(node));
+		firstChild.set(node, child);
+		return child;
+		}
+
+	private static String finish (String name, String classif) {// the classification of a RepBase name
+		if (classif.equals("SINE")) return classif + "/Unclassified";
+		if (classif.indexOf("CR1") >= 0) {
+			if (name.indexOf("LINE") >= 0) classif = (name.indexOf("LINE2") >= 0)?classif + "_L2":"LINE";
+			else if (name.startsWith("L2") || name.startsWith("CR1-L2")) {
+				int nameLength = name.indexOf("L2") + 2;
+				if (name.length()==nameLength) classif += "_L2";
+				else if (name.charAt(nameLength) < '0' || name.charAt(nameLength) > '9') classif += "_L2";
+				}
+			}
+		return classif;
+		}
+
+	//Writes the magic number, the number of classes and of slots, then each class as a length and bytes, the
+	//slots as the offsets of their entries (0 if empty) and the entries as a class, a length and the name bytes
+	private static void compile (String libDir, String indexFile) throws IOException {
+		Hashtable<String, String> classifications = getClassifications(libDir);
+		String[] names = classifications.keySet().toArray(new String[classifications.size()]);
+		Arrays.sort(names);
+		List<String> classes = new ArrayList<String>();
+		Map<String, Integer> classIds = new HashMap<String, Integer>();
+		int[] nameClasses = new int[names.length];
+		for (int n=0; n<names.length; n++) {
+			String classif = finish(names[n], classifications.get(names[n]));
+			Integer id = classIds.get(classif);
+			if (id == null) {
+				id = classes.size();
+				classIds.put(classif, id);
+				classes.add(classif);
+				}
+			nameClasses[n] = id;
+			}
+		int nSlots = 2;
+		while (nSlots < names.length * 2) nSlots <<= 1;
+		int offset = 12;
+		for (String classif : classes) offset += 4 + classif.length();
+		offset += 4 * nSlots;
+		int[] slots = new int[nSlots];
+		for (int n=0; n<names.length; n++) {
+			int slot = hash(names[n]) & (nSlots - 1);
+			while (slots[slot] != 0) slot = (slot + 1) & (nSlots - 1);
+			slots[slot] = offset;
+			offset += 8 + names[n].length();
+			}
+		File temp = new File(indexFile + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		out.writeInt(MAGIC);
+		out.writeInt(classes.size());
+		out.writeInt(nSlots);
+		for (String classif : classes) {
+			out.writeInt(classif.length());
+			out.write(classif.getBytes(StandardCharsets.ISO_8859_1));
+			}
+		for (int slot=0; slot<nSlots; slot++) out.writeInt(slots[slot]);
+		for (int n=0; n<names.length; n++) {
+			out.writeInt(nameClasses[n]);
+			out.writeInt(names[n].length());
+			out.write(names[n].getBytes(StandardCharsets.ISO_8859_1));
+			}
+		out.close();
+		File index = new File(indexFile);
+		index.delete();
+		if (!temp.renameTo(index)) throw new IOException("Could not rename " + temp + " to " + indexFile);
+		System.out.println("Compiled " + names.length + " RepBase classifications to " + indexFile);
+		}
+
+	private String getPrefixClassification (String name) {// the longest matching prefix rule wins
+		int match = -1;
+		int node = 0;
+		for (int i=0; i<name.length() && node>=0; i++) {
+			node = firstChild.get(node);
+			while (node >= 0 && label.get(node) != name.charAt(i)) node = nextSibling.get(node);
+			if (node >= 0 && rule.get(node) >= 0) match = rule.get(node);
+			}
+		return match<0?null:prefixRules[match][1];
+		}
+
+	private static int hash (String name) {
+		int h = name.hashCode();
+		return h ^ (h >>> 16);
+		}
+
+	//The index exists and is at least as new as every *rep.ref file, as RetroAnnotations checks its .acc files.
+	//Without the RepBase directory an existing index is used as it is.
+	private static boolean isCurrent (String libDir, String indexFile) {
+		File index = new File(indexFile);
+		if (!index.exists()) return false;
+		File[] libs = new File(libDir).listFiles();
+		if (libs != null)
+			for (File lib : libs)
+				if ((lib.getName().endsWith("rep.ref") || lib.getName().endsWith("rep.ref.gz")) &&
+					lib.lastModified() > index.lastModified()) return false;
+		return true;
+		}
+
+	private String lookup (String name) {
+		if (index == null) return null;
+		for (int slot=hash(name) & (nSlots - 1);; slot=(slot + 1) & (nSlots - 1)) {
+			long entry = index.getInt(slotStart + 4L * slot);
+			if (entry == 0) return null;
+			if (matches(entry + 8, index.getInt(entry + 4), name)) return classes[index.getInt(entry)];
+			}
+		}
+
+	private void map (String indexFile) throws IOException {
+		index = new MappedFile(indexFile);
+		if (index.getSize() < 12 || index.getInt(0) != MAGIC) {
+			System.out.println(indexFile + " is not a RepBase index.");
+			index = null;
+			return;
+			}
+		classes = new String[index.getInt(4)];
+		nSlots = index.getInt(8);
+		long pos = 12;
+		for (int c=0; c<classes.length; c++) {
+			int length = index.getInt(pos);
+			classes[c] = index.getString(pos + 4, pos + 4 + length);
+			pos += 4 + length;
+			}
+		slotStart = pos;
+		}
+
+	private boolean matches (long pos, int length, String name) {
+		if (length != name.length()) return false;
+		for (int i=0; i<length; i++) if ((index.byteAt(pos + i) & 0xff) != name.charAt(i)) return false;
+		return true;
+		}
+
+	private static void reClassify (Hashtable<String, String> classifications) {
+  	String[][] seqClass = {
+    	{"ERV/ERV3_MaLR", "MLT1J-int", "MLT1M", "MTE-int", "ORR1B1-int", "ORR1D-int", "ORR1E", 
+      	"MLT1G1", "MLT1H", "MLT1H1", "MLT1H2", "MLT1I", "MLT1J", "MLT1J1", "MLT1J2", "MLT1K", 
+      	"MTE", "ORR1A0", "ORR1B1", "ORR1B2", "ORR1C1", "ORR1C2", "MLT-int", "MLT1A0", "MLT1A1", 
+      	"MLT1C", "MLT1C1", "MLT1D", "MLT1E", "MLT1E1", "MLT1E1A", "MLT1E2", "MLT1F", "MLT1F_I", 
+      	"MLT1G", "MLT1G2", "MLT1G3", "MLT1L", "MLT1O", "MLT1_I", "MSTA", "MSTA1", "MSTA2", "MSTB1", 
+      	"MSTD", "MST_I", "MTAI", "ORR1AI", "ORR1BI", "THE1A", "THE1B", "THE1C", "THE1D", "MTA", 
+      	"MTB", "MTC", "MTD", "ORR1A", "ORR1B", "ORR1C", "ORR1D",  "MLT1B", "MLT1F1", "MLT1F2", 
+      	"MSTB", "MSTC"},
+    	{"DNA", "UCON71_Crp"},
+			{"LTR/ALTR2", "ALTR2"},
+			{"SINE/BOVA2", "BOVA2"},       
+    	{"SINE2/AFRO_LA", "AFRO_LA"}, 
+			{"SINE2/BOV.tA", "BOVTA", "Bovc-tA2"},
+			{"SINE2/CanSINE", "CAN"},
+			{"SINE2/MIR", "MAR1", "MAR1_MD", "MAR1c_Mdo", "MON1", "SINE-1_MD", "SINE-2_MD", "WSINE1"}
+			};
+  	for (int c=0; c<seqClass.length; c++) 
+    	for (int s=1; s<seqClass[c].length; s++) classifications.put(seqClass[c][s], seqClass[c][0]);
+  	}
+  
+	private static void addUnknownClassifications (Hashtable<String, String> classifications) {
+  	String[][] seqClass = {
+   		{"DNA", "DNA-1-1_DR", "DNA-1-2_DR", "DNA-1-4_DR", "DNA-1-9_DR", "DNA-2-3_DR", "DNA-2-9_DR",
+      	"DNA-2-12_DR", "DNA-2-31_DR", "DNA-2-33_DR", "DNA-4-2_DR", "DNA-8-2_DR", "DNA-8-5_DR",
+      	"DNA-8-6_DR", "DNA-8-15_DR", "DNA-8-20_DR", "DNA-8-25_DR", "DNA-8-32_DR", "DNA-8-33_DR",
+      	"DNA-8-34_DR", "DNA-8-36_DR", "DNA-TTAA-2_DR", "DNA2-5_DR", "DNA25TWA1_DR", "DNA5-10_CGi",
+      	"DNA8-1_DR", "DNA8-5_DR", "DNA8-41_AP", "DNA9-7_STu"},
+    	{"DNA/hAT", "hAT-N71_DR", "HATN9_DR"},
+    	{"DNA/Mariner/Tc1", "PARISa_DPo", "Sagan-1_PMa"},
+    	{"ERV", "LTR6_Ami"},
+   		{"ERV/ERV2", "IAPLTR1_Mm_LTR"},
+			{"LINE/CR1", "CR1-7_DR", "CR1-15_DR", "CR1-19_DR", "CR1-20_DR", "CR1-21_DR", "CR1-23_DR",
+		  	"CR1-26_DR", "CR1-28_DR", "CR1-27_DR", "CR1-29_DR", "CR1-30_DR", "CR1-31_DR", "CR1-38_DR",
+		  	"CR1-40_DR", "CR1-43_DR"},
+			{"LINE/I", "I-2_DR"},
+			{"LINE/Jockey", "TART"},
+			{"LTR", "LTR-1_Crp", "LTR-11_DR", "LTR-1302_Crp", "LTR-1B_Crp", "LTR-3_Crp", 
+		  	"LTR-775_Gav_odd", "LTR_PP", "LTR1_CR", "LTR3_CR", "PtPiedmont_I", "PtPiedmont_LTR"},
+			{"NonLTR", "SSSINESAT"},
+			{"SINE", "S1_BN", "SINE_LC", "SINE_SO"},
+			{"Transposable Element", "TE-447_AMi"},
+			{"Unknown", "DRP_EG", "NTLTR1", "SSNHEI", "Tc1N1_DR"},
+			{"Unknown/tandem repeat", "Mf3_MF"} 
+			};
+		for (int c=0; c<seqClass.length; c++) 
+	  	for (int s=1; s<seqClass[c].length; s++) 
+	    	if (!classifications.containsKey(seqClass[c][s]))
+	      	classifications.put(seqClass[c][s], seqClass[c][0]);
+  	}
+  
+	private static Hashtable<String, String> getClassifications (String libDir) {
+		Hashtable<String, String> classifications = new Hashtable<String, String>();
+		Hashtable<String, String> families = getFamilyClassifications();
+		String line = null;
+		String[] fields = null;
+		String id = null;
+		BufferedReader in = null;
+		try {
+	  	File dir = new File(libDir);
+	  	if (dir.exists()) {
+	    	File[] libs = dir.listFiles();
+		  	for (int i=0; i<libs.length; i++) {
+		    	if (libs[i].getName().endsWith("rep.ref") || libs[i].getName().endsWith("rep.ref.gz")) {
+			    	in = InputFile.getReader(libs[i].getPath());
+			   		while ((line = in.readLine()) != null) 
+				    	if (line.charAt(0) == '>') {
+					    	fields = line.split("\t");
+					    	id = fields[0].substring(1);
+					    	if (!classifications.containsKey(id)) 
+						    	if (fields.length < 2) 
+							    	classifications.put(id, fields[0].endsWith("(n)")?"Simple Repeat/" + 
+							      	id:"Unknown");
+						    	else if (families.containsKey(fields[1])) 
+						      	classifications.put(id, families.get(fields[1]));
+						    	else classifications.put(id, "Unknown/" + fields[1]);
+					    	}
+			    	in.close();
+			    	}
+			  	}
+				}
+			else System.out.println("The directory " + libDir + " does not exist.");
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		reClassify(classifications);
+		addUnknownClassifications(classifications);
+		//System.out.println("There are " + classifications.size() + " classifications");
+		return classifications;
+		}
+
+	private static Hashtable<String, String> getFamilyClassifications() {
+		Hashtable<String, String> families = new Hashtable<String, String>();
+		String[][] classes = {
+	  	{"DNA", "Mariner/Tc1", "hAT", "Repetitive element", "Repeat DNA", "DNA transposon", "AMTAM2", 
+	    	"APO1_AP", "APO2_AP", "ARS_TA", "BHIKHARI_I", "BMRP1", "Ginger2/TDD", "Academ", "Zisupton", 
+	    	"BREP1", "BS1", "BstUI repeat", "CAM2_GG", "CEREP3", "CERP2", "CERP3", "CERP4", "CEU86951",
+	    	"Charlie-Galluhop", "CRTOC1", "CryptonS", "C_OC", "CHD", "Chapaev", "CSP2034", "DMRP1",
+	    	"MuDR", "EnSpm", "Eutr1", "Eutr10", "Eutr11", "Eutr12", "Eutr13", "Eutr14", "Eutr15",
+				"Eutr16", "Eutr17", "Eutr18", "Eutr2", "Eutr3", "Eutr4", "Eutr5", "Eutr6", "Eutr9", "DMRPR",
+				"EUTREP11", "EUTREP12", "EUTREP14", "EUTREP15", "EUTREP16", "EUTREP2", "EUTREP4", "DRB_RN",
+				"EUTREP5", "EUTREP6", "EUTREP7", "EUTREP8", "MARE10", "MARE11", "MARE4", "MARE8", "LVU1",
+				"MARE9", "BDDF1", "P", "Merlin", "Harbinger", "Transib", "Novosib", "Helitron", "Polinton", 
+				"Kolobok", "ISL2EU", "Crypton", "MER35", "OOREP1", "piggyBac", "Zator", "Ginger1", 
+				"IS3EU", "2109A repetitive sequence", "ALBAMH1", "ARS406", "AVIXHoI", "CERP1", "CMREP", 
+				"AY1 repetitive sequence", "CSP2090", "CSP2111", "CSP2112", "DDTDD", "DMFUSHI", "DMHMR2",
+				"DQ524338", "EcoR1 repeat region", "EHINV1", "EHINV2", "EnSpm/CACTA", "ERACSI34_EA", 
+				"ERASCI228", "FPREP1", "FR1", "FUGUREP4B", "GISH1_AC", "GPRP1", "GQRP1", "HHAI", "KER",
+				"HIND3_MS", "HTE1", "IKIRARA1", "Interspersed repeat", "Inverted repeat", "JH12_XL",
+				"Interspersed repetitive sequence", "KRISPIE", "LARP1", "LARP2", "LARRP1", "LDRP2", "LR9A",
+				"LGRP1", "LIRP1", "LMRP1", "MCMREP", "MER122", "MER22", "MICROPON-LIKE-1", "MITE", "OARP1",
+				"MICROPON-LIKE-2", "miniature inverted repeat", "Minicircle", "MINIME_DN", "MRE1_OL",
+				"MSRBMI", "DMHMR1", "NTS_DM", "OFU85403", "Origin of replication", "P-element", "PAT", 
+				"PEN1", "PEN2", "PEN4", "PFRP1", "PFRP5", "pSOS family", "R1A_SS", "R1B_DS", "R1B_SS",
+				"RC14", "RCS5", "REP-1_Croc", "REP-540_Croc", "Repeat region", "Repetitive element Vi",
+				"Repetitive sequence", "RMER1", "RMER1A", "RMER1B", "RP1_GL", "RP2_HV", "RP5S", "SCAI_EH",
+				"RS3 repeat region", "SIRE", "STREPB_FA", "STREPE_PF", "SZ23_TC", "Tcn760", 
+				"transposon", "TREP_CE", "VADER", "VEGE_DW", "XbaI", "Y\' element", "5S_DM", "ALAD", 
+				"AFRP1", "MU4_ZM"},
+			{"ERV", "ERV1", "ERV2", "ERV3", "Lentivirus", "ERV4"},
+			{"LINE", "R4", "L1", "RTE", "I", "Jockey", "CR1", "RTEX", "L2", "Vingi", "CRE", "NeSL", "R2", 
+		  	"Rex1", "RandI", "Tx1", "Crack", "Nimb", "Proto1", "Proto2", "RTETP", "Hero", "Tad1", 
+		  	"Loa", "Ingi", "Outcast", "R1", "Daphne", "Ambal", "Kiri", "L2A", "L2B"},
+			{"LTR", "Gypsy", "Copia", "BEL", "DIRS"},
+			{"Satellite", "SAT", "MSAT"},
+			{"Pseudogene", "rRNA", "tRNA", "snRNA"},
+			{"Integrated Virus", "DNA Virus", "Caulimoviridae"}};
+		String clas = null;
+		for (int c=0; c<classes.length; c++) {
+			clas = classes[c][0] + "/";
+			for (int f=1; f<classes[c].length; f++) families.put(classes[c][f], clas + classes[c][f]);
+			}
+		String[][] fams = {
+	  	{"DNA/Male specific", "Male-specific DNA", "Y chromosome", },
+	  	{"ERV", "Endogenous Retrovirus"},
+	  	{"LTR", "LTR Retrotransposon", "Long terminal repeat", "LTR-775_Gav_odd"},
+	  	{"NonLTR", "Non-LTR Retrotransposon"},
+	  	{"Simple Repeat", "AT-rich DNA repeat", "(CA)n related"},
+	  	{"SINE", "short interspersed element"},
+	  	{"Unknown", "conserved", "Internal sequence of mouse VL30 retro-element", "Nonautonomous",
+	    	"TREP16", "TREP17"},
+	  	{"Unknown/centromere repeat", "CENSTRIG", "RCH2", "CEN1_SP"},
+	  	{"Unknown/centromere-associated repeat", "ATREPTSEQ"},
+	  	{"Unknown/direct repeat", "direct repeat", "ISFUN1"},
+	  	{"Unknown/dispersed repeat", "ATREP19", "Dispersed repeat", "CEREP4", "CEREP5", "SCAR_MA",
+	    	"SCAR_MI"},
+	  	{"Unknown/midrepetitive element", "SNAPBACK_TC", "TELREP_AG"},
+	  	{"Unknown/Pericentromeric repeat", "IID2-12_AT"},
+	  	{"Unknown/tandem repeat", "AlKe1_AL", "ATREP18", "BamHI repetitive sequence", "CARO_CA", 
+	    	"D1100 family", "DEC1_DS", "DMHETRP", "CPTAN", "EcoRI family", "ECORI_Hm", "HHA1_BT", 
+	    	"OVRP1", "PTR_XL", "SAL_CL", "SAU3A_TR", "STTREP_Mp", "tandem repeat", "TANDREP_TG"}
+	  	};
+		for (int c=0; c<fams.length; c++)
+	  	for (int f=1; f<fams[c].length; f++) families.put(fams[c][f], fams[c][0]);
+		//Classes that are subclasses
+		String[] fam = {"SINE", "Simple Repeat", "Satellite", "Transposable Element", 
+	  	"Integrated Virus", "Pseudogene", "SINE1/7SL", "SINE2/tRNA", "SINE3/5S", "SINE4", "Penelope"};
+		for (int f=0; f<fam.length; f++) families.put(fam[f], fam[f]);
+		//System.out.println("There are " + families.size() + " family classifications");
+		return families;
+		}
+
+	}
@@ -0,0 +1,40 @@
+import java.io.*;
+import java.util.*;
+
+/*************************
+RepeatMaskerOut
+	Reads the hits of a RepeatMasker .out file in place of a CENSOR map file, giving the fields of each hit
+	in the CENSOR map order that format_RMSK.pl writes (query, start, end, repeat, repeat start, repeat end,
+	d or c, 0, 0, score). Complement (C) hits have the parenthesized remaining length in the repeat start
+	column, and their repeat start and end in the two columns after it. The header and blank lines, and
+	hits on any other strand, give null, as format_RMSK.pl skips them.
+	Date: October 17, 2026
+	Inputs: ConsensusSequences.fa.out (from a RepeatMasker run on the consensus sequences)
+	Usage: String[] fields = RepeatMaskerOut.getMapFields(line);
+***************************/
+
+
+public class RepeatMaskerOut {
+	private static final int FIELDS = 14;
+
+	//The map file, or the RepeatMasker .out file of the same sequences when there is no map file
+	public static String getMapFile (String mapFile) {
+		if (InputFile.exists(mapFile) || !mapFile.endsWith(".map")) return mapFile;
+		String outFile = mapFile.substring(0, mapFile.length() - 4) + ".out";
+		return InputFile.exists(outFile)?outFile:mapFile;
+		}
+
+	public static String[] getMapFields (String line) {
+		String[] data = new String[FIELDS];
+		StringTokenizer st = new StringTokenizer(line);
+		int n = 0;
+		while (n < FIELDS && st.hasMoreTokens()) data[n++] = st.nextToken();
+		if (n < 13 || !(data[8].equals("+") || data[8].equals("C"))) return null;
+		boolean remaining = data[11].startsWith("(") && data[11].endsWith(")");
+		if (remaining && n < FIELDS) return null;
+		return new String[] {data[4], data[5], data[6], data[9], remaining?data[13]:data[11], data[12],
+			data[8].equals("C")?"c":"d", "0", "0", data[0]};
+		}
+
+	public static boolean isRepeatMasker (String file) {return file.endsWith(".out");}
+	}
@@ -0,0 +1,190 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*************************
+RetroAnnotations
+	The descriptions of the GB_TE and all_retrovirus library sequences, looked up by accession (the text
+	between the second and fourth | of a header) for the #Retrovirus_like consensus sequences. Each library
+	has an index (<library>.acc) of its accessions in sorted order, with the file offset of each one's
+	description, written once and memory-mapped by later runs. A description is only read from its library
+	when it is asked for, so the libraries' headers are neither read nor held on each run. Where an accession
+	is in more than one header, the last library, and within it the last header, gives the description, as
+	when every description was put into one table. The library is memory-mapped at its first lookup.
+	Date: October 17, 2026 (from GenerateAnnotatedLibrary)
+	Updated: October 17, 2026 to index a compressed library, read through FastaReader: a BGZF library's
+		descriptions are looked up by their virtual offsets (see InputFile.readLine), and a gzip library,
+		which cannot be read from an offset, has its descriptions kept in the index
+	Inputs: GB_TE.21032016.fa and all_retrovirus.fasta (or the libraries given)
+	Outputs: The same names with .acc added, written when missing or older than the library
+	Usage: java RetroAnnotations [libraries] (rebuilds the indexes)
+	Format: MAGIC, n, the offsets of the n accessions in the accession bytes and one past the last, the
+		description offsets (longs), then the accession bytes. Big endian, as read by MappedFile. The
+		offsets are in the library (MAGIC), virtual offsets in a BGZF library (BGZF), or in the index,
+		where each description follows the accession bytes, ending in \n (STORED).
+***************************/
+
+
+public class RetroAnnotations {
+	private static final int MAGIC = 0x41434331;
+	private static final int BGZF = 0x41434332;
+	private static final int STORED = 0x41434333;
+	private String[] libraries;
+	private MappedFile[] indexes;
+	private MappedFile[] files;//mapped at their first lookup
+	private int[] kinds;//MAGIC, BGZF or STORED
+	private int[] sizes;
+
+	public RetroAnnotations (String... libraries) {
+		this.libraries = libraries;
+		indexes = new MappedFile[libraries.length];
+		files = new MappedFile[libraries.length];
+		kinds = new int[libraries.length];
+		sizes = new int[libraries.length];
+		for (int l=0; l<libraries.length; l++)
+			try {
+				String indexFile = libraries[l] + ".acc";
+				if (!isCurrent(libraries[l], indexFile)) compile(libraries[l], indexFile);
+				MappedFile index = new MappedFile(indexFile);
+				int kind = index.getSize() < 12?0:index.getInt(0);
+				if (kind != MAGIC && kind != BGZF && kind != STORED)
+					System.out.println(indexFile + " is not an accession index.");
+				else {
+					indexes[l] = index;
+					kinds[l] = kind;
+					sizes[l] = index.getInt(4);
+					}
+				}
+			catch (IOException ie) {ie.printStackTrace();}
+		}
+
+	public static void main (String[] args) {
+		String[] libraries = args.length > 0?args:new String[] {"./GB_TE.21032016.fa", "./all_retrovirus.fasta"};
+		for (String library : libraries)
+			try {compile(library, library + ".acc");}
+			catch (IOException ie) {ie.printStackTrace();}
+		}
+
+	public String get (String accession) {// null when no library has it
+		for (int l=libraries.length - 1; l>=0; l--) {
+			int entry = find(l, accession);
+			if (entry >= 0)
+				try {
+					long start = indexes[l].getLong(12 + 4L * sizes[l] + 8L * entry);
+					if (kinds[l] == BGZF) return InputFile.readLine(libraries[l], start);
+					MappedFile file = kinds[l] == STORED?indexes[l]:getFile(l);
+					return file.getString(start, file.lineEnd(start, file.nextLine(start)));
+					}
+				catch (IOException ie) {ie.printStackTrace();}
+			}
+		return null;
+		}
+
+	public long getIndexSize() {// the bytes of the indexes
+		long size = 0;
+		for (MappedFile index : indexes) if (index != null) size += index.getSize();
+		return size;
+		}
+
+	public int size() {// the accessions indexed, over all the libraries
+		int size = 0;
+		for (int n : sizes) size += n;
+		return size;
+		}
+
+
+	private int compare (int l, int entry, String accession) {// as String.compareTo, over ISO-8859-1 bytes
+		long start = 12 + 12L * sizes[l] + indexes[l].getInt(8 + 4L * entry);
+		int length = indexes[l].getInt(12 + 4L * entry) - indexes[l].getInt(8 + 4L * entry);
+		for (int i=0; i<length && i<accession.length(); i++) {
+			int c = (indexes[l].byteAt(start + i) & 0xff) - accession.charAt(i);
+			if (c != 0) return c;
+			}
+		return length - accession.length();
+		}
+
+	//Writes the index of a library, reading each header's accession and description as
+	//GenerateAnnotatedLibrary did. Of the headers with the same accession only the last is kept.
+	private static void compile (String library, String indexFile) throws IOException {
+		FastaReader in = new FastaReader(library);
+		int kind = InputFile.isBgzf(library)?BGZF:in.isStreamed()?STORED:MAGIC;
+		List<String> accessions = new ArrayList<String>();
+		List<String> descriptions = new ArrayList<String>();//kept when STORED
+		long[] offsets = new long[1024];
+		while (in.nextRecord()) {
+			String header = in.getHeader();
+			int i1 = header.indexOf("|", 3) + 1;
+			int i2 = header.indexOf("|", header.indexOf("|", i1)+1);
+			if (i2 < i1 || i2 + 2 > header.length()) System.out.println("Could not parse: " + header);
+			else {
+				if (accessions.size() == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+				offsets[accessions.size()] = in.getHeaderOffset() + 1 + i2 + 2;
+				accessions.add(header.substring(i1, i2));
+				if (kind == STORED) descriptions.add(header.substring(i2 + 2));
+				}
+			}
+		if (kind == BGZF) offsets = InputFile.getVirtualOffsets(library, Arrays.copyOf(offsets, accessions.size()));
+		Integer[] order = new Integer[accessions.size()];
+		for (int i=0; i<order.length; i++) order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare (Integer a, Integer b) {
+				int c = accessions.get(a).compareTo(accessions.get(b));
+				return c != 0?c:Integer.compare(a, b);
+				}
+			});
+		int n = 0;
+		for (int i=0; i<order.length; i++)
+			if (i + 1 == order.length || !accessions.get(order[i]).equals(accessions.get(order[i + 1])))
+				order[n++] = order[i];
+		File temp = new File(indexFile + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+		out.writeInt(kind);
+		out.writeInt(n);
+		int offset = 0;
+		for (int i=0; i<n; i++) {
+			out.writeInt(offset);
+			offset += accessions.get(order[i]).length();
+			}
+		out.writeInt(offset);
+		long stored = 12 + 12L * n + offset;//the first description kept in the index
+		for (int i=0; i<n; i++)
+			if (kind != STORED) out.writeLong(offsets[order[i]]);
+			else {
+				out.writeLong(stored);
+				stored += descriptions.get(order[i]).getBytes(StandardCharsets.ISO_8859_1).length + 1;
+				}
+		for (int i=0; i<n; i++) out.write(accessions.get(order[i]).getBytes(StandardCharsets.ISO_8859_1));
+		for (int i=0; kind==STORED && i<n; i++)
+			out.write((descriptions.get(order[i]) + "\n").getBytes(StandardCharsets.ISO_8859_1));
+		out.close();
+		File index = new File(indexFile);
+		index.delete();
+		if (!temp.renameTo(index)) throw new IOException("Could not rename " + temp + " to " + indexFile);
+		System.out.println("Indexed " + n + " accessions of " + library + " to " + indexFile);
+		}
+
+	private int find (int l, String accession) {// the accession's entry, or -1
+		if (indexes[l] == null) return -1;
+		int low = 0;
+		int high = sizes[l] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int c = compare(l, mid, accession);
+			if (c == 0) return mid;
+			if (c < 0) low = mid + 1;
+			else high = mid - 1;
+			}
+		return -1;
+		}
+
+	private synchronized MappedFile getFile (int l) throws IOException {
+		if (files[l] == null) files[l] = new MappedFile(libraries[l]);
+		return files[l];
+		}
+
+	private static boolean isCurrent (String library, String indexFile) {
+		File index = new File(indexFile);
+		File file = new File(InputFile.resolve(library));
+		return index.exists() && file.exists() && index.lastModified() >= file.lastModified();
+		}
+	}
@@ -0,0 +1,213 @@
+import java.io.*;
+import java.util.*;
+
+/*************************
+SyntheticInputs
+	Generates synthetic inputs for the annotation stages from a seed, scaled to the consensus sequence sizes
+	of the Benchmarks2 table in CARP.tex, so that the same arguments always give the same data. Used by the
+	JMH benchmarks (jmh/carp/Benchmarks.java) and the tests. The inputs are written into the given directory,
+	which must be empty or not yet exist, or into a new temporary directory; never the working directory.
+	Date: October 17, 2026
+	Outputs: ConsensusSequences.fa, ConsensusSequences.fa.map, Vertebrate_use.fa, our_known_reps_20130520.fasta,
+		notKnown.fa.tewb.gff, notKnown.fa.ervwb.gff, ProteinReport/notKnown.fa.spwb.gff,
+		notKnownNotProtein.phobos, Benchmark_RepBase/bench_rep.ref and the empty results_classify directory;
+		for the tests of GenerateAnnotatedLibrary, also SSR.txt, protein.txt, GB_TE.21032016.fa,
+		all_retrovirus.fasta and the empty library directory (generateLibraryInputs)
+	Usage: java SyntheticInputs [directory [genome or consensus size in MB [seed]]]
+		e.g. java SyntheticInputs /tmp/chicken Chicken (genome is one of the Benchmarks2 rows, default Chicken)
+***************************/
+
+
+public class SyntheticInputs {
+	private static String[][] genomes = {{"Human", "38"}, {"Bearded_Dragon", "88"}, {"Anolis", "63"},
+		{"Chicken", "18"}, {"Opossum", "60"}, {"Platypus", "162"}, {"Echidna", "59"}};
+	private static String[] families = {"L2", "CR1", "L1", "RTE", "hAT", "Mariner/Tc1", "Gypsy", "ERV1", "ERV2",
+		"SINE", "SINE2/tRNA", "SINE1/7SL", "SAT", "Helitron", "piggyBac", "Penelope", "DIRS", "conserved"};
+	private static String[] prefixes = {"L2-", "CR1-", "L1M", "MIR", "MIRAGE", "ERE2_", "BovB", "THER", "AluY",
+		"Charlie", "MER", "LTR", "ERV", "ERVL-", "Kolobok-", "SINEC_", "SAT", "DNA-TTAA0-", "Sola", "Dada-"};
+	static final String repBase = "Benchmark_RepBase/";
+
+	String dir;
+	String[] names;
+	int[] lengths;
+	String[] libNames;
+	int[] libLengths;
+	private Random random;
+
+	//dir ends with a "/", as the directories of the stages (see ClassifyConsensusSequences.setDirectory)
+	SyntheticInputs (String dir, long seed) throws IOException {
+		File directory = new File(dir);
+		String[] existing = directory.list();
+		if (existing != null && existing.length > 0)
+			throw new IOException("The directory " + dir + " is not empty, it is not generated into");
+		this.dir = dir.endsWith("/")?dir:dir + "/";
+		random = new Random(seed);
+		}
+
+	public static void main (String[] args) {
+		try {
+			String dir = args.length > 0?args[0]:createTempDirectory();
+			double mb = getSize(args.length > 1?args[1]:"Chicken");
+			long seed = args.length > 2?Long.parseLong(args[2]):20260917L;
+			SyntheticInputs inputs = new SyntheticInputs(dir, seed);
+			inputs.generate(mb);
+			System.out.println(mb + "MB of consensus sequences (" + inputs.names.length + " families), seed " + seed +
+				", in " + inputs.dir);
+			}
+		catch (IOException ie) {ie.printStackTrace();}
+		catch (NumberFormatException ne) {System.out.println("Could not parse: " + Arrays.toString(args));}
+		}
+
+
+	static String createTempDirectory () throws IOException {
+		return java.nio.file.Files.createTempDirectory("carp").toString() + "/";
+		}
+
+	//Deletes a generated directory and all in it, as when the benchmarks and tests are done with it
+	static void delete (File file) {
+		File[] files = file.listFiles();
+		if (files != null) for (File f : files) delete(f);
+		file.delete();
+		}
+
+	void generate (double mb) throws IOException {
+		new File(dir + "results_classify").mkdirs();
+		new File(dir + "ProteinReport").mkdirs();
+		new File(dir + repBase).mkdirs();
+		generateLibraries();
+		generateConsensusSequences((long) (mb * 1000000));
+		generateMap();
+		generateGff(dir + "notKnown.fa.tewb.gff", "sp|TE", .2);
+		generateGff(dir + "notKnown.fa.ervwb.gff", "sp|ERV", .1);
+		generateGff(dir + "ProteinReport/notKnown.fa.spwb.gff", "sp|P", .15);
+		generatePhobos();
+		}
+
+	//The other inputs of GenerateAnnotatedLibrary, after generate: every 7th family as an SSR and every 5th as a
+	//protein, and the retro libraries of the gff targets. known.txt is left to ClassifyConsensusSequences.
+	void generateLibraryInputs () throws IOException {
+		writeFamilies(dir + "SSR.txt", 7);
+		writeFamilies(dir + "protein.txt", 5);
+		writeRetroLibrary(dir + "GB_TE.21032016.fa", "sp|TE");
+		writeRetroLibrary(dir + "all_retrovirus.fasta", "sp|ERV");
+		new File(dir + "library").mkdirs();
+		}
+
+	static double getSize (String genome) {
+		for (int g=0; g<genomes.length; g++)
+			if (genomes[g][0].equalsIgnoreCase(genome)) return Double.parseDouble(genomes[g][1]);
+		return Double.parseDouble(genome);
+		}
+
+
+	private void generateConsensusSequences (long size) throws IOException {
+		List<String> nameList = new ArrayList<String>();
+		List<Integer> lengthList = new ArrayList<Integer>();
+		BufferedWriter out = new BufferedWriter(new FileWriter(dir + "ConsensusSequences.fa"));
+		for (long written=0; written<size;) {
+			String name = String.format("family%07d", nameList.size());
+			int length = 80 + random.nextInt(5000);
+			nameList.add(name);
+			lengthList.add(length);
+			out.write(">" + name + "\n");
+			writeSequence(out, length, random.nextDouble() < .1);
+			written += name.length() + 2 + length + length / 60 + 1;
+			}
+		out.close();
+		names = nameList.toArray(new String[nameList.size()]);
+		lengths = new int[names.length];
+		for (int i=0; i<lengths.length; i++) lengths[i] = lengthList.get(i);
+		}
+
+	private void generateGff (String file, String prefix, double fraction) throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		for (int i=0; i<names.length; i++)
+			if (random.nextDouble() < fraction)
+				for (int h=random.nextInt(4); h>=0; h--) {
+					int start = 1 + random.nextInt(lengths[i]);
+					int end = Math.min(lengths[i], start + 5 + random.nextInt(lengths[i]));
+					out.write(names[i] + "\tblastx\tmatch\t" + start + "\t" + end + "\t1e-10\t.\t.\tTarget " + prefix +
+						String.format("%05d", random.nextInt(2000)) + " 1 " + (end - start + 1) / 3 + "\n");
+					}
+		out.close();
+		}
+
+	private void generateLibraries () throws IOException {
+		libNames = new String[4000];
+		libLengths = new int[libNames.length];
+		BufferedWriter vertebrate = new BufferedWriter(new FileWriter(dir + "Vertebrate_use.fa"));
+		BufferedWriter ours = new BufferedWriter(new FileWriter(dir + "our_known_reps_20130520.fasta"));
+		BufferedWriter rep = new BufferedWriter(new FileWriter(dir + repBase + "bench_rep.ref"));
+		for (int i=0; i<libNames.length; i++) {
+			libNames[i] = prefixes[random.nextInt(prefixes.length)] + i + "_" + (char) ('A' + random.nextInt(26));
+			libLengths[i] = 200 + random.nextInt(6000);
+			BufferedWriter out = i < libNames.length * 3 / 4?vertebrate:ours;
+			out.write(">" + libNames[i] + "\tdescription\n");
+			writeSequence(out, libLengths[i], false);
+			rep.write(">" + libNames[i] + (random.nextDouble() < .05?"":"\t" + families[random.nextInt(
+				families.length)] + "\tSpecies") + "\nACGT\n");
+			}
+		vertebrate.close();
+		ours.close();
+		rep.close();
+		}
+
+	private void generateMap () throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(dir + "ConsensusSequences.fa.map"));
+		for (int i=0; i<names.length; i++)
+			if (random.nextDouble() < .65)
+				for (int h=random.nextInt(6); h>=0; h--) {
+					int lib = random.nextInt(libNames.length);
+					int start = 1, end = lengths[i], lStart = 1, lEnd = libLengths[lib];
+					if (random.nextDouble() >= .2) {
+						start = 1 + random.nextInt(lengths[i]);
+						end = Math.min(lengths[i], start + 10 + random.nextInt(lengths[i]));
+						lStart = 1 + random.nextInt(libLengths[lib]);
+						lEnd = Math.min(libLengths[lib], lStart + 10 + random.nextInt(libLengths[lib]));
+						}
+					out.write(names[i] + "\t" + start + "\t" + end + "\t" + libNames[lib] + "\t" + lStart + "\t" + lEnd +
+						"\t" + (random.nextBoolean()?"d":"c") + "\t0.8\t0.9\t" + (200 + random.nextInt(3000)) + "\n");
+					}
+		out.close();
+		}
+
+	private void generatePhobos () throws IOException {// as phobos writes it for notKnownNotProtein.fa
+		BufferedWriter out = new BufferedWriter(new FileWriter(dir + "notKnownNotProtein.phobos"));
+		for (int i=0; i<names.length; i++) {
+			out.write(">" + names[i] + "\nsequence length: " + lengths[i] + "\n----\n");
+			for (int r=random.nextInt(4); r>0; r--) {
+				int start = random.nextDouble() < .1?1:1 + random.nextInt(lengths[i]);
+				int end = Math.min(lengths[i], random.nextDouble() < .1?lengths[i]:start + 10 + random.nextInt(200));
+				out.write("r " + start + " : " + end + " x x x x x x x x x x x x x x CA\n");
+				}
+			out.write("#\n");
+			}
+		out.close();
+		}
+
+	private void writeFamilies (String file, int every) throws IOException {// as IdentifySSRs and GetProteins
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		out.write("Sequence MappedTo\n");
+		for (int i=0; i<names.length; i+=every) out.write(names[i] + " X\n");
+		out.close();
+		}
+
+	private void writeRetroLibrary (String file, String prefix) throws IOException {// the targets of generateGff
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		for (int i=0; i<2000; i++)
+			out.write(">gi|" + i + "|" + prefix + String.format("%05d", i) + "| Retrovirus " + i + "\nACGT\n");
+		out.close();
+		}
+
+	private void writeSequence (BufferedWriter out, int length, boolean ssr) throws IOException {
+		char[] bases = {'A', 'C', 'G', 'T'};
+		char[] line = new char[61];
+		for (int done=0; done<length;) {
+			int n = Math.min(60, length - done);
+			for (int i=0; i<n; i++) line[i] = ssr?((done + i) % 2 == 0?'C':'A'):bases[random.nextInt(4)];
+			line[n] = '\n';
+			out.write(line, 0, n + 1);
+			done += n;
+			}
+		}
+	}
@@ -9,6 +9,20 @@
 #######################################################
 
 
+# Optional: drop the sequences that have no chance of a hit in any database (see BlastPrefilter for -k, -hits
+# and -bits). Its seeding finds fewer hits than BLAST, so first measure its recall against the outputs of a
+# full run of this script, copied into full/ (the searches below overwrite them):
+#java BlastPrefilter -p sp uniprot_sprot.fasta -p te GB_TE.21032016.fa -n erv all_retrovirus.fasta \
+#	-reference sp full/notKnown.fa.spwb.gff -reference te full/notKnown.fa.tewb.gff \
+#	-reference erv full/notKnown.fa.ervwb.gff
+# and only when the recall is acceptable, search the candidates of each database in place of notKnown.fa:
+# notKnown.sp.fa, notKnown.te.fa and notKnown.erv.fa
+
+# Each search below can instead be run as shards of its query, a few BLAST processes at a time, with
+# the shard gffs joined in query order (see BlastShards; finished shards are skipped when rerun), e.g.
+# java BlastShards -shards 32 -jobs 8 notKnown.fa notKnown.fa.spwb.gff \
+#	"blastx ./report_run/sprot {in} -gspmax=1 -E 0.00001 -B 1 -V 1 -cpus=4 > {out}.wb && python ./report_run/wublastx2gff.py {out}.wb > {out}"
+
 # Search protein data (Uniprot database)
 # If you decided to download your own datasets, you need to make database for the blastx
 xdformat -p -k uniprot_sprot.fasta
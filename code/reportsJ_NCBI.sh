@@ -10,25 +10,30 @@
 # -num_threads: Number of threads (CPUs) to use in the BLAST search
 # -max_target_seqs: Maximum number of aligned sequences to keep 
 # -word_size: Word size for wordfinder algorithm. The wu-blast default is 3, we've tried both word_size 2 and 3 in NCBI-blast, 2 can find more same results compared to wublast
+# The -outfmt 6 outputs (notKnown.fa.*wb.ncbi) are read as they are by GetProteins and GenerateAnnotatedLibrary in
+# place of the gff files, so there is no conversion step. Move notKnown.fa.spwb.ncbi to ProteinReport/ as for the gff.
 ########################################################
 
 
+# Optional: drop the sequences that have no chance of a hit in any database (see BlastPrefilter for -k, -hits
+# and -bits). Its seeding finds fewer hits than BLAST, so first measure its recall against the outputs of a
+# full run of this script, copied into full/ (the searches below overwrite them):
+#java BlastPrefilter -p sp uniprot_sprot.fasta -p te GB_TE.21032016.fa -n erv all_retrovirus.fasta \
+#	-reference sp full/notKnown.fa.spwb.ncbi -reference te full/notKnown.fa.tewb.ncbi \
+#	-reference erv full/notKnown.fa.ervwb.ncbi
+# and only when the recall is acceptable, search the candidates of each database in place of notKnown.fa:
+# notKnown.sp.fa, notKnown.te.fa and notKnown.erv.fa
+
 # Search protein data (Uniprot database)
 # If you decided to download your own datasets, you need to make database for the blastx
 makeblastdb -in uniprot_sprot.fasta -dbtype prot
 blastx -db uniprot_sprot.fasta -query notKnown.fa -max_hsps 1 -seg no -evalue 0.00001 -num_threads 32 -max_target_seqs 1 -word_size 2 -outfmt 6 -out notKnown.fa.spwb.ncbi
-awk '{print $1"\t""blast""\t""hit""\t"$7"\t"$8"\t"$11"\t"".""\t"".""\t""Target sp|"$2" "$9" "$10}' notKnown.fa.spwb.ncbi > tmp
-awk '{if($4>$5) print $1"\t"$2"\t"$3"\t"$5"\t"$4"\t"$6"\t"$7"\t"$8"\t"$9" "$10" "$11" "$12; else print $0}' tmp > notKnown.fa.spwb.gff
 
 # Search from GB_TE databae
 # If you decided to download your own datasets, you need to make database for the blastx
 makeblastdb -in GB_TE.21032016.fa -dbtype prot -out GB_TE.new
 tblastx -db GB_TE.new -query notKnown.fa -max_hsps 1 -seg no -evalue 0.00001 -num_threads 32 -max_target_seqs 1 -word_size 2 -outfmt 6 -out notKnown.fa.tewb.ncbi
-awk '{print $1"\t""blast""\t""hit""\t"$7"\t"$8"\t"$11"\t"".""\t"".""\t""Target sp|"$2" "$9" "$10}' notKnown.fa.ervwb.ncbi > tmp
-awk '{if($4>$5) print $1"\t"$2"\t"$3"\t"$5"\t"$4"\t"$6"\t"$7"\t"$8"\t"$9" "$10" "$11" "$12; else print $0}' tmp > notKnown.fa.tewb.gff
 # Search Retrovirus data
 # If you decided to download your own datasets, you need to make database for the tblastx
 makeblastdb -in all_retrovirus.fasta -dbtype nucl 
-tblastx -db all_retrovirus.fasta -query notKnown.fa -max_hsps 1 -seg no -evalue 0.00001 -num_threads 32 -max_target_seqs 1 -word_size 2 -outfmt 6 -out notKnown.fa.ervwb.ncbi
-awk '{print $1"\t""blast""\t""hit""\t"$7"\t"$8"\t"$11"\t"".""\t"".""\t""Target sp|"$2" "$9" "$10}' notKnown.fa.ervwb.ncbi > tmp
-awk '{if($4>$5) print $1"\t"$2"\t"$3"\t"$5"\t"$4"\t"$6"\t"$7"\t"$8"\t"$9" "$10" "$11" "$12; else print $0}' tmp > notKnown.fa.ervwb.gff
\ No newline at end of file
+tblastx -db all_retrovirus.fasta -query notKnown.fa -max_hsps 1 -seg no -evalue 0.00001 -num_threads 32 -max_target_seqs 1 -word_size 2 -outfmt 6 -out notKnown.fa.ervwb.ncbi
\ No newline at end of file
@@ -0,0 +1,157 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/*************************
+BenchmarkWorkloads
+	The parsing and classification loops timed by the JMH benchmarks (carp/Benchmarks.java), on inputs
+	generated by SyntheticInputs into a temporary directory that the stages are pointed at. Everything a
+	loop reads (the family names and lengths, the known families, the hits and the RepBase index) is made
+	here, so no benchmark depends on another having run. It is in the default package with the stages, as
+	JMH does not generate benchmarks of default package classes: the benchmarks get each loop by its name.
+	Date: October 17, 2026
+***************************/
+
+
+public class BenchmarkWorkloads implements Function<String, Callable<Object>>, AutoCloseable {
+	private String dir;
+	private SyntheticInputs inputs;
+	private FastaReader consensus;
+	private NameDictionary names = new NameDictionary();
+	private IntList cLengths;
+	private NameDictionary libs = new NameDictionary();
+	private IntList libL = new IntList(-1);
+	private List<String> mapLines = new ArrayList<String>();
+	private BitSet knowns;
+	private NameDictionary targets = new NameDictionary();
+	private RBClassifier classifier;
+	private NameDictionary units = new NameDictionary();
+	private IntList ssrs;
+	private PrintStream console = System.out;
+
+	public BenchmarkWorkloads (String genome, long seed, int threads) throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));// the stages report each step
+		inputs = new SyntheticInputs(dir, seed);
+		inputs.generate(SyntheticInputs.getSize(genome));
+		ClassifyConsensusSequences.setDirectory(dir);
+		GetProteins.setDirectory(dir);
+		IdentifySSRs.setDirectory(dir);
+		ClassifyConsensusSequences.setThreads(threads);
+		consensus = new FastaReader(dir + "ConsensusSequences.fa");
+		cLengths = ClassifyConsensusSequences.getLengths(consensus, names);
+		for (int i=0; i<inputs.libNames.length; i++) libL.set(libs.add(inputs.libNames[i]), inputs.libLengths[i]);
+		BufferedReader in = new BufferedReader(new FileReader(dir + "ConsensusSequences.fa.map"));
+		String line = null;
+		while ((line = in.readLine()) != null) mapLines.add(line);
+		in.close();
+		knowns = ClassifyConsensusSequences.classify(names, cLengths, new NameDictionary(), new HitTable(), false);
+		GenerateAnnotatedLibrary.addRetroHits(new HitTable(), dir + "notKnown.fa.tewb.gff", names, targets);
+		GenerateAnnotatedLibrary.addRetroHits(new HitTable(), dir + "notKnown.fa.ervwb.gff", names, targets);
+		GenerateAnnotatedLibrary.addIRHits(getWantedCSs(), names, targets);
+		classifier = new RBClassifier(targets, dir + SyntheticInputs.repBase, dir + "Benchmark_RepBase.index");
+		ssrs = IdentifySSRs.getSSRs(dir + "notKnownNotProtein.phobos", names, units);
+		}
+
+	//The loop of the given name, ready to be timed. The loops that change what they work on are made
+	//afresh by each call, so get them before each invocation
+	public Callable<Object> apply (String loop) {
+		if (loop.equals("getLengths")) return new Callable<Object>() {
+			public Object call () {return ClassifyConsensusSequences.getLengths(consensus, new NameDictionary());}
+			};
+		if (loop.equals("processMapping")) return new Callable<Object>() {
+			public Object call () {
+				StringBuilder check = new StringBuilder();
+				StringBuilder gff = new StringBuilder();
+				StringBuilder log = new StringBuilder();
+				for (String line : mapLines)
+					ClassifyConsensusSequences.processMapping(names, cLengths, libs, libL, line, check, gff, log);
+				return check;
+				}
+			};
+		if (loop.equals("classify")) return new Callable<Object>() {
+			public Object call () {
+				return ClassifyConsensusSequences.classify(names, cLengths, new NameDictionary(), new HitTable(),
+					false);
+				}
+			};
+		if (loop.equals("addRetroHits")) return new Callable<Object>() {
+			public Object call () {
+				HitTable hits = new HitTable();
+				GenerateAnnotatedLibrary.addRetroHits(hits, dir + "notKnown.fa.tewb.gff", names, targets);
+				GenerateAnnotatedLibrary.addRetroHits(hits, dir + "notKnown.fa.ervwb.gff", names, targets);
+				return hits;
+				}
+			};
+		if (loop.equals("addIRHits")) {
+			final GenerateAnnotatedLibrary.CS[] wanted = getWantedCSs();
+			return new Callable<Object>() {
+				public Object call () {
+					GenerateAnnotatedLibrary.addIRHits(wanted, names, targets);
+					return wanted;
+					}
+				};
+			}
+		if (loop.equals("removeSubHits")) {
+			final GenerateAnnotatedLibrary.CS[] wanted = getWantedCSs();
+			GenerateAnnotatedLibrary.addIRHits(wanted, names, targets);
+			return new Callable<Object>() {
+				public Object call () {
+					for (int id=0; id<wanted.length; id++)
+						if (wanted[id] != null) {
+							wanted[id].removeSubHits();
+							wanted[id].getCoverage();
+							}
+					return wanted;
+					}
+				};
+			}
+		if (loop.equals("RBClassifier.classify")) return new Callable<Object>() {
+			public Object call () {// a new classifier of the mapped index, so none of its classifications are memoized
+				RBClassifier run = new RBClassifier(classifier, targets);
+				String classif = null;
+				for (int i=0; i<inputs.libNames.length; i++) classif = run.classify(inputs.libNames[i]);
+				for (int id=0; id<targets.size(); id++) classif = run.classify(id);
+				return classif;
+				}
+			};
+		if (loop.equals("getSSRs")) return new Callable<Object>() {
+			public Object call () {
+				return IdentifySSRs.getSSRs(dir + "notKnownNotProtein.phobos", new NameDictionary(),
+					new NameDictionary());
+				}
+			};
+		if (loop.equals("printNotKnownSequences")) return new Callable<Object>() {
+			public Object call () {
+				ClassifyConsensusSequences.printNotKnownSequences(consensus, names, knowns);
+				return knowns;
+				}
+			};
+		if (loop.equals("writeProteins")) return new Callable<Object>() {
+			public Object call () {
+				NameDictionary proteinNames = new NameDictionary();
+				GetProteins.writeProteins(GetProteins.getProteins(names, proteinNames), names, proteinNames, consensus,
+					knowns);
+				return proteinNames;
+				}
+			};
+		if (loop.equals("writeSSRs")) return new Callable<Object>() {
+			public Object call () {
+				IdentifySSRs.writeSSRs(ssrs, names, units, consensus, knowns);
+				return ssrs;
+				}
+			};
+		throw new IllegalArgumentException("There is no benchmark loop " + loop);
+		}
+
+	public void close () {
+		System.setOut(console);
+		SyntheticInputs.delete(new File(dir));
+		}
+
+
+	private GenerateAnnotatedLibrary.CS[] getWantedCSs () {
+		return GenerateAnnotatedLibrary.getWantedCSs(names, new HitTable(), cLengths, new BitSet(), new BitSet());
+		}
+	}
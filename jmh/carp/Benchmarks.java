@@ -0,0 +1,108 @@
+package carp;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.*;
+
+/*************************
+Benchmarks
+	JMH benchmarks of the parsing and classification loops of the annotation stages, on synthetic inputs
+	generated from a seed (see SyntheticInputs) into a temporary directory in the setup of each trial. The
+	loops themselves are in BenchmarkWorkloads, as the stages are in the default package.
+	Date: October 17, 2026
+	Usage: mvn -B -Pjmh package, then java -jar target/benchmarks.jar [JMH options]
+		e.g. java -jar target/benchmarks.jar -p genome=Human -p threads=4 classify
+***************************/
+
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class Benchmarks {
+	@State(Scope.Benchmark)
+	public static class Inputs {
+		@Param({"Chicken"})
+		public String genome;// a Benchmarks2 row of CARP.tex, or the consensus size in MB
+		@Param({"20260917"})
+		public long seed;
+		@Param({"1"})
+		public int threads;
+		Function<String, Callable<Object>> workloads;
+		Callable<Object> getLengths, processMapping, classify, addRetroHits, classifier, getSSRs,
+			printNotKnownSequences, writeProteins, writeSSRs;
+
+		@Setup(Level.Trial)
+		@SuppressWarnings("unchecked")
+		public void setup () throws Exception {
+			workloads = (Function<String, Callable<Object>>) Class.forName("BenchmarkWorkloads")
+				.getConstructor(String.class, long.class, int.class).newInstance(genome, seed, threads);
+			getLengths = workloads.apply("getLengths");
+			processMapping = workloads.apply("processMapping");
+			classify = workloads.apply("classify");
+			addRetroHits = workloads.apply("addRetroHits");
+			classifier = workloads.apply("RBClassifier.classify");
+			getSSRs = workloads.apply("getSSRs");
+			printNotKnownSequences = workloads.apply("printNotKnownSequences");
+			writeProteins = workloads.apply("writeProteins");
+			writeSSRs = workloads.apply("writeSSRs");
+			}
+
+		@TearDown(Level.Trial)
+		public void tearDown () throws Exception {((AutoCloseable) workloads).close();}
+		}
+
+	@State(Scope.Thread)
+	public static class IRHits {// the wanted families, without hits before each invocation
+		Callable<Object> run;
+
+		@Setup(Level.Invocation)
+		public void setup (Inputs inputs) {run = inputs.workloads.apply("addIRHits");}
+		}
+
+	@State(Scope.Thread)
+	public static class SubHits {// the wanted families with their hits, before sub hits are removed
+		Callable<Object> run;
+
+		@Setup(Level.Invocation)
+		public void setup (Inputs inputs) {run = inputs.workloads.apply("removeSubHits");}
+		}
+
+
+	@Benchmark
+	public Object addIRHits (IRHits irHits) throws Exception {return irHits.run.call();}
+
+	@Benchmark
+	public Object addRetroHits (Inputs inputs) throws Exception {return inputs.addRetroHits.call();}
+
+	@Benchmark
+	public Object classify (Inputs inputs) throws Exception {return inputs.classify.call();}
+
+	@Benchmark
+	public Object getLengths (Inputs inputs) throws Exception {return inputs.getLengths.call();}
+
+	@Benchmark
+	public Object getSSRs (Inputs inputs) throws Exception {return inputs.getSSRs.call();}
+
+	@Benchmark
+	public Object printNotKnownSequences (Inputs inputs) throws Exception {
+		return inputs.printNotKnownSequences.call();
+		}
+
+	@Benchmark
+	public Object processMapping (Inputs inputs) throws Exception {return inputs.processMapping.call();}
+
+	@Benchmark
+	public Object rbClassify (Inputs inputs) throws Exception {return inputs.classifier.call();}
+
+	@Benchmark
+	public Object removeSubHits (SubHits subHits) throws Exception {return subHits.run.call();}
+
+	@Benchmark
+	public Object writeProteins (Inputs inputs) throws Exception {return inputs.writeProteins.call();}
+
+	@Benchmark
+	public Object writeSSRs (Inputs inputs) throws Exception {return inputs.writeSSRs.call();}
+	}
@@ -0,0 +1,77 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+
+//The library headers GenerateAnnotatedLibrary gives families for their hits, since sub hits, coverage and
+//chimeras are decided over all of a family's hits (HitIntervals) rather than each hit and the one before it
+public class AnnotateAndClassifyTest {
+	private NameDictionary targets = new NameDictionary();
+	private BitSet irs = new BitSet();
+	private RBClassifier classifier;
+	private String dir;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		classifier = new RBClassifier(targets, dir + "RepBase", dir + "RepBase.index");//no RepBase, all Unknown
+		}
+
+	@After
+	public void tearDown () {SyntheticInputs.delete(new File(dir));}
+
+	@Test
+	public void hitsToOneTargetAreNotChimeric () {// was #Chimeric, as the family had more than one hit
+		assertEquals(">fam1:T1 T1 (80)\n", getHeader(1, "fam1", 1000, new Object[][] {{"T1", 1, 400}, 
+			{"T1", 500, 900}}));
+		}
+
+	@Test
+	public void hitsToTwoTargetsAreChimeric () {
+		assertEquals(">fam2#Chimeric T2 (40); T1 (40)\n", getHeader(2, "fam2", 1000, new Object[][] {
+			{"T1", 1, 400}, {"T2", 500, 900}}));
+		irs.set(3);//known families are never chimeric
+		assertEquals(">fam3:T2 T2 (40); T1 (40)\n", getHeader(3, "fam3", 1000, new Object[][] {
+			{"T1", 1, 400}, {"T2", 500, 900}}));
+		}
+
+	@Test
+	public void overlappingHitsAreCountedOnce () {// was T1 (90), the hits' bp summed
+		assertEquals(">fam4:T1 T1 (70)\n", getHeader(4, "fam4", 1000, new Object[][] {{"T1", 1, 500}, 
+			{"T1", 300, 700}}));
+		}
+
+	@Test
+	public void subHitsOfAnyKeptHitAreRemoved () {
+		//each is within T1, however many hits start between them
+		assertEquals(">fam5:T1 T1 (60)\n", getHeader(5, "fam5", 1000, new Object[][] {{"T1", 1, 600}, 
+			{"T4", 40, 90}, {"T2", 100, 500}, {"T3", 520, 600}}));
+		assertEquals(">fam6#Chimeric T1 (60); T4 (10)\n", getHeader(6, "fam6", 1000, new Object[][] {
+			{"T1", 1, 600}, {"T2", 100, 500}, {"T4", 560, 660}}));
+		}
+
+	@Test
+	public void partialBelowCoverage () {
+		assertEquals(">fam7#PartialAnnotation T1 (30)\n", getHeader(7, "fam7", 1000, new Object[][] {
+			{"T1", 1, 300}}));
+		}
+
+	@Test
+	public void tiesAreListedByFirstHit () {// not by target ID, the order added or Hashtable order
+		assertEquals(">fam8#Chimeric U2 (40); U1 (40)\n", getHeader(8, "fam8", 1000, new Object[][] {
+			{"U2", 1, 400}, {"U1", 501, 900}}));
+		assertEquals(">fam9#Chimeric U1 (40); U2 (40)\n", getHeader(9, "fam9", 1000, new Object[][] {
+			{"U1", 1, 400}, {"U2", 501, 900}}));
+		assertEquals(">fam10#Chimeric U1 (40); U2 (40)\n", getHeader(10, "fam10", 1000, new Object[][] {
+			{"U2", 501, 900}, {"U1", 1, 400}}));
+		}
+
+
+	private String getHeader (int id, String name, int length, Object[][] hits) {
+		GenerateAnnotatedLibrary.CS cs = new GenerateAnnotatedLibrary.CS(id, name, length);
+		for (Object[] hit : hits) cs.addHit(targets.add((String) hit[0]), (Integer) hit[1], (Integer) hit[2]);
+		cs.annotateAndClassify(targets, null, irs, new RBClassifier(classifier, targets));
+		return cs.getFastaHeader(.5, .5);
+		}
+	}
@@ -0,0 +1,108 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.zip.*;
+import org.junit.*;
+
+//GenerateAnnotatedLibrary on threads, with enough wanted sequences that they are annotated and classified in
+//many AnnotateTask ranges, writes the library that a sequential run writes, and so it does when its inputs
+//are loaded concurrently from each of the forms they may take
+public class AnnotatedLibraryThreadsTest {
+	private String dir;
+	private SyntheticInputs inputs;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		inputs = new SyntheticInputs(dir, 5);
+		inputs.generate(2);
+		ClassifyConsensusSequences.setDirectory(dir);
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		Files.copy(Paths.get(dir + "results_classify/known.txt"), Paths.get(dir + "known.txt"));
+		inputs.generateLibraryInputs();
+		GenerateAnnotatedLibrary.setDirectory(dir);
+		RBClassifier.setRepBase(dir + SyntheticInputs.repBase, dir + "RepBase.index");
+		}
+
+	@After
+	public void tearDown () {
+		ClassifyConsensusSequences.setDirectory("./");
+		GenerateAnnotatedLibrary.setDirectory("./");
+		GenerateAnnotatedLibrary.setThreads(1);
+		GenerateAnnotatedLibrary.setExternal(false);
+		RBClassifier.setRepBase("/home/a1635743/RepBase20.04.fasta", "./RepBase20.04.index");
+		SyntheticInputs.delete(new File(dir));
+		}
+
+	@Test
+	public void threadsMatchSequentialRun () throws IOException {
+		byte[] sequential = run(1);
+		String library = new String(sequential, "ISO-8859-1");
+		assertTrue(library.split(">").length > 4 * 64);
+		assertTrue(library.contains("#Retrovirus_like"));
+		for (int threads : new int[] {2, 4, 8}) assertArrayEquals("with " + threads + " threads", sequential, run(threads));
+		}
+
+	//The TE hits from their HitStore, the ERV hits from a compressed -outfmt 6 file, and SSR.txt and known.txt
+	//compressed, each read on a loading thread of its own
+	@Test
+	public void loadingMatchesSequentialRun () throws IOException {
+		byte[] sequential = run(1);
+		HitStore.convert(dir + "notKnown.fa.tewb.gff", dir + "notKnown.fa.tewb.gff.hits");
+		writeTabular(dir + "notKnown.fa.ervwb.gff", dir + "notKnown.fa.ervwb.ncbi.gz");
+		compress(dir + "SSR.txt");
+		compress(dir + "known.txt");
+		for (int threads : new int[] {1, 2, 8}) assertArrayEquals("with " + threads + " threads", sequential, run(threads));
+		}
+
+	//A header whose ID ends at a tab gives the family of that ID, in memory and with -external, as it does in
+	//the other stages and AnnotationPipeline
+	@Test
+	public void tabbedHeadersAreKeyedByID () throws IOException {
+		byte[] sequential = run(1);
+		GenerateAnnotatedLibrary.setExternal(true);
+		byte[] external = run(1);
+		GenerateAnnotatedLibrary.setExternal(false);
+		Path consensus = Paths.get(dir + "ConsensusSequences.fa");
+		String tabbed = new String(Files.readAllBytes(consensus), "ISO-8859-1").replaceAll("(>family[0-9]+)\n",
+			"$1\tdescription\n");
+		Files.write(consensus, tabbed.getBytes("ISO-8859-1"));
+		assertArrayEquals(sequential, run(1));
+		GenerateAnnotatedLibrary.setExternal(true);
+		assertArrayEquals(external, run(1));
+		}
+
+
+	private void compress (String file) throws IOException {
+		OutputStream out = new GZIPOutputStream(new FileOutputStream(file + ".gz"));
+		Files.copy(Paths.get(file), out);
+		out.close();
+		Files.delete(Paths.get(file));
+		}
+
+	private byte[] run (int threads) throws IOException {
+		GenerateAnnotatedLibrary.main(new String[] {"0.9", "" + threads});
+		Path library = Paths.get(dir + "library/Denovo_TE_Library.fasta");
+		byte[] contents = Files.readAllBytes(library);
+		Files.delete(library);
+		return contents;
+		}
+
+
+
+	private void writeTabular (String gffFile, String ncbiFile) throws IOException {// as reportsJ_NCBI.sh writes
+		BufferedReader in = new BufferedReader(new FileReader(gffFile));
+		BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+			new FileOutputStream(ncbiFile))));
+		for (String line; (line = in.readLine()) != null;) {
+			String[] fields = line.split("\t");
+			String[] target = fields[8].split(" ");
+			out.write(fields[0] + "\t" + target[1].substring(3) + "\t90.0\t100\t0\t0\t" + fields[3] + "\t" + fields[4] + 
+				"\t" + target[2] + "\t" + target[3] + "\t1e-10\t100\n");
+			}
+		in.close();
+		out.close();
+		Files.delete(Paths.get(gffFile));
+		}
+	}
@@ -0,0 +1,76 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+
+//BlastShards run in a JVM of its own, as it exits with 1 when a shard fails, with stub sh commands in place
+//of BLAST: cat copies a shard's fasta as its output, so the joined output is the query when all goes well
+public class BlastShardsTest {
+	private String dir;
+	private String query;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		StringBuilder fasta = new StringBuilder();
+		Random random = new Random(14);
+		for (int r=0; r<40; r++) {
+			fasta.append(">seq" + r + "\n");
+			int length = r % 10 == 0?400:100;
+			for (int i=0; i<length; i++) fasta.append("ACGT".charAt(random.nextInt(4)) + (i % 60 == 59?"\n":""));
+			if (length % 60 != 0) fasta.append("\n");
+			}
+		query = dir + "query.fa";
+		Files.write(Paths.get(query), fasta.toString().getBytes("ISO-8859-1"));
+		}
+
+	@After
+	public void tearDown () {SyntheticInputs.delete(new File(dir));}
+
+	@Test
+	public void splitsByResiduesInOrder () throws Exception {
+		assertEquals(0, run("cat {in} > {out}"));
+		assertArrayEquals(Files.readAllBytes(Paths.get(query)), Files.readAllBytes(Paths.get(dir + "out.gff")));
+		long[] residues = new long[4];
+		for (int s=0; s<4; s++) 
+			for (String line : Files.readAllLines(Paths.get(dir + "shards/query.fa." + s + ".fa")))
+				if (!line.startsWith(">")) residues[s] += line.length();
+		for (int s=0; s<4; s++) assertEquals(1300, residues[s], 200);
+		}
+
+	@Test
+	public void skipsDoneShardsOnRestart () throws Exception {
+		assertEquals(0, run("cat {in} > {out}"));
+		String failing = "echo run {in} >> " + dir + "runs; exit 3";
+		assertEquals(0, run(failing));//every shard is done, so none is run
+		assertFalse(new File(dir + "runs").exists());
+		//the same lengths in a changed shard: its checksum differs, so it alone is run again
+		byte[] bytes = Files.readAllBytes(Paths.get(query));
+		String text = new String(bytes, "ISO-8859-1");
+		int base = text.indexOf("\n", text.indexOf(">seq35")) + 1;
+		bytes[base] = (byte) (bytes[base] == 'A'?'C':'A');
+		Files.write(Paths.get(query), bytes);
+		assertEquals(1, run(failing));
+		assertEquals(Arrays.asList("run " + dir + "shards/query.fa.3.fa"), Files.readAllLines(Paths.get(dir + "runs")));
+		}
+
+	@Test
+	public void failedShardLeavesOutputUnjoined () throws Exception {
+		assertEquals(1, run("case {in} in *.2.fa) exit 1;; esac; cat {in} > {out}"));
+		assertFalse(new File(dir + "out.gff").exists());
+		assertTrue(new File(dir + "shards/out.gff.1.done").exists());
+		assertFalse(new File(dir + "shards/out.gff.2.done").exists());
+		}
+
+
+	private int run (String command) throws Exception {
+		ProcessBuilder builder = new ProcessBuilder(System.getProperty("java.home") + "/bin/java", "-cp",
+			System.getProperty("java.class.path"), "BlastShards", "-shards", "4", "-jobs", "2", "-dir", dir + "shards",
+			query, dir + "out.gff", command);
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(new File(dir + "BlastShards.log"));
+		return builder.start().waitFor();
+		}
+	}
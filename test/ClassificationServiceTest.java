@@ -0,0 +1,104 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+
+//The service's answers are the decisions of the stages: /map gives check.txt and the known families of
+//ClassifyConsensusSequences, and /annotate the library headers of GenerateAnnotatedLibrary, for the same inputs
+public class ClassificationServiceTest {
+	private String dir;
+	private SyntheticInputs inputs;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		inputs = new SyntheticInputs(dir, 11);
+		inputs.generate(1);
+		ClassifyConsensusSequences.setDirectory(dir);
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		Files.copy(Paths.get(dir + "results_classify/known.txt"), Paths.get(dir + "known.txt"));
+		inputs.generateLibraryInputs();
+		GenerateAnnotatedLibrary.setDirectory(dir);
+		RBClassifier.setRepBase(dir + SyntheticInputs.repBase, dir + "RepBase.index");
+		ClassificationService.load();
+		}
+
+	@After
+	public void tearDown () {
+		ClassifyConsensusSequences.setDirectory("./");
+		GenerateAnnotatedLibrary.setDirectory("./");
+		RBClassifier.setRepBase("/home/a1635743/RepBase20.04.fasta", "./RepBase20.04.index");
+		SyntheticInputs.delete(new File(dir));
+		}
+
+	@Test
+	public void mapMatchesClassifyConsensusSequences () throws IOException {
+		StringBuilder request = new StringBuilder();
+		for (int i=0; i<inputs.names.length; i++) request.append(">" + inputs.names[i] + " " + inputs.lengths[i] + "\n");
+		for (String line : read(dir + "ConsensusSequences.fa.map")) request.append(line + "\n");
+		StringBuilder check = new StringBuilder();
+		Set<String> known = new TreeSet<String>();
+		for (String line : answer(ClassificationService.map(new BufferedReader(new StringReader(request.toString())),
+			false))) {
+			String[] fields = line.split("\t");
+			assertEquals(line, 2, fields.length);
+			check.append(fields[0] + "\n");
+			if (fields[1].equals("known")) known.add(fields[0].substring(0, fields[0].indexOf(" ")));
+			}
+		assertEquals(new String(Files.readAllBytes(Paths.get(dir + "results_classify/check.txt")), "ISO-8859-1"),
+			check.toString());
+		assertFalse(known.isEmpty());
+		assertEquals(getFamilies(dir + "known.txt"), known);
+		}
+
+	@Test
+	public void annotateMatchesGenerateAnnotatedLibrary () throws IOException {
+		GenerateAnnotatedLibrary.main(new String[] {"0.9", "1"});
+		List<String> headers = new ArrayList<String>();
+		for (String line : read(dir + "library/Denovo_TE_Library.fasta")) if (line.startsWith(">")) headers.add(line);
+		assertTrue(headers.size() > 100);
+		//each family's hits in the order the stage adds them: the TE hits, the ERV hits, then the map's
+		Map<String, StringBuilder> hits = new HashMap<String, StringBuilder>();
+		for (String gff : new String[] {"notKnown.fa.tewb.gff", "notKnown.fa.ervwb.gff"})
+			for (String line : read(dir + gff)) {
+				String[] fields = line.split("\t");
+				addHit(hits, fields[0], fields[8].split(" ")[1], fields[3], fields[4]);
+				}
+		for (String line : read(dir + "ConsensusSequences.fa.map")) {
+			String[] fields = line.split("\t");
+			addHit(hits, fields[0], fields[3], fields[1], fields[2]);
+			}
+		Map<String, Integer> lengths = new HashMap<String, Integer>();
+		for (int i=0; i<inputs.names.length; i++) lengths.put(inputs.names[i], inputs.lengths[i]);
+		Set<String> known = getFamilies(dir + "known.txt");
+		StringBuilder request = new StringBuilder();
+		for (String header : headers) {
+			String name = header.substring(1).split("[#: ]")[0];
+			request.append(">" + name + " " + lengths.get(name) + (known.contains(name)?" known":"") + "\n");
+			if (hits.containsKey(name)) request.append(hits.get(name));
+			}
+		assertEquals(headers, answer(ClassificationService.annotate(new BufferedReader(new StringReader(
+			request.toString())), .9, .9)));
+		}
+
+
+	private void addHit (Map<String, StringBuilder> hits, String family, String target, String start, String end) {
+		if (!hits.containsKey(family)) hits.put(family, new StringBuilder());
+		hits.get(family).append(target + " " + start + " " + end + "\n");
+		}
+
+	private List<String> answer (String answer) {return Arrays.asList(answer.split("\n"));}
+
+	private Set<String> getFamilies (String file) throws IOException {// the first word after the header line
+		Set<String> families = new TreeSet<String>();
+		List<String> lines = read(file);
+		for (String line : lines.subList(1, lines.size())) families.add(line.substring(0, line.indexOf(" ")));
+		return families;
+		}
+
+	private List<String> read (String file) throws IOException {
+		return Files.readAllLines(Paths.get(file), java.nio.charset.StandardCharsets.ISO_8859_1);
+		}
+	}
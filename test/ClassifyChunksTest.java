@@ -0,0 +1,53 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import org.junit.*;
+
+//ClassifyConsensusSequences on threads, with chunks small enough that the mappings of many families are
+//split between chunks, writes what a sequential run writes
+public class ClassifyChunksTest {
+	private static final String[] outputs = {"known.txt", "partial.txt", "check.txt", "notKnown.fa.gff",
+		"notKnown.fa"};
+	private String dir;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		new SyntheticInputs(dir, 3).generate(2);
+		ClassifyConsensusSequences.setDirectory(dir);
+		}
+
+	@After
+	public void tearDown () {
+		ClassifyConsensusSequences.setDirectory("./");
+		ClassifyConsensusSequences.setThreads(1);
+		ClassifyConsensusSequences.setChunkSize(1 << 22);
+		SyntheticInputs.delete(new File(dir));
+		}
+
+	@Test
+	public void threadsMatchSequentialRun () throws IOException {
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		byte[][] sequential = read();
+		assertTrue(new String(sequential[0], "ISO-8859-1").split("\n").length > 10);
+		long mapSize = new File(dir + "ConsensusSequences.fa.map").length();
+		for (int chunkSize : new int[] {1000, 4096, 20000}) {
+			assertTrue(mapSize > 4 * chunkSize);
+			ClassifyConsensusSequences.main(new String[] {"-chunkSize", "" + chunkSize, "4"});
+			byte[][] threaded = read();
+			for (int i=0; i<outputs.length; i++) 
+				assertArrayEquals(outputs[i] + " with -chunkSize " + chunkSize, sequential[i], threaded[i]);
+			}
+		}
+
+
+	private byte[][] read () throws IOException {
+		byte[][] contents = new byte[outputs.length][];
+		for (int i=0; i<outputs.length; i++) {
+			contents[i] = Files.readAllBytes(Paths.get(dir + "results_classify/" + outputs[i]));
+			new File(dir + "results_classify/" + outputs[i]).delete();
+			}
+		return contents;
+		}
+	}
@@ -0,0 +1,205 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+
+//Near-duplicates planted among unrelated records (trimmed copies with a substitution, some reverse
+//complemented, before or after their originals) are collapsed into their originals, the same on 1 thread as
+//on 4 sketching many chunks. GenerateAnnotatedLibrary writes each member after its representative with the
+//representative's header, the same library in memory and with -external, though the hit files (searched
+//before collapsing) name members too.
+public class CollapseConsensusSequencesTest {
+	private static final char[] bases = {'A', 'C', 'G', 'T'};
+	private String dir;
+	private Random random = new Random(23);
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		CollapseConsensusSequences.setDirectory(dir);
+		}
+
+	@After
+	public void tearDown () {
+		CollapseConsensusSequences.setDirectory("./");
+		CollapseConsensusSequences.setChunkSize(1 << 22);
+		InputFile.setThreads(Runtime.getRuntime().availableProcessors());
+		ClassifyConsensusSequences.setDirectory("./");
+		GenerateAnnotatedLibrary.setDirectory("./");
+		GenerateAnnotatedLibrary.setExternal(false);
+		RBClassifier.setRepBase("/home/a1635743/RepBase20.04.fasta", "./RepBase20.04.index");
+		SyntheticInputs.delete(new File(dir));
+		}
+
+	@Test
+	public void plantedCopiesAreCollapsed () throws IOException {
+		List<String> expected = writePlanted(dir + "ConsensusSequences.fa");
+		collapse(1);
+		assertTrue(expected.size() > 50);
+		assertEquals(expected, read(dir + "ConsensusSequences.clusters.txt"));
+		List<String> members = new ArrayList<String>();
+		for (String line : expected.subList(1, expected.size())) members.add(line.split(" ")[0]);
+		assertEquals(members, getIds(dir + "ConsensusSequences.members.fa"));
+		List<String> representatives = getIds(dir + "ConsensusSequences.fa");
+		representatives.removeAll(members);
+		assertEquals(representatives, getIds(dir + "ConsensusSequences.representatives.fa"));
+		}
+
+	@Test
+	public void threadsMatchOneThread () throws IOException {
+		writePlanted(dir + "ConsensusSequences.fa");
+		String[] outputs = {"ConsensusSequences.clusters.txt", "ConsensusSequences.members.fa",
+			"ConsensusSequences.representatives.fa"};
+		collapse(1);
+		byte[][] sequential = new byte[outputs.length][];
+		for (int o=0; o<outputs.length; o++) sequential[o] = Files.readAllBytes(Paths.get(dir + outputs[o]));
+		CollapseConsensusSequences.setChunkSize(1 << 12);
+		collapse(4);
+		for (int o=0; o<outputs.length; o++)
+			assertArrayEquals(outputs[o], sequential[o], Files.readAllBytes(Paths.get(dir + outputs[o])));
+		}
+
+	//The synthetic consensus sequences and copies of every 10th (but the SSRs) collapsed, the representatives
+	//then searched in their place
+	@Test
+	public void membersFollowTheirRepresentatives () throws IOException {
+		SyntheticInputs inputs = new SyntheticInputs(dir, 29);
+		inputs.generate(1);
+		Path consensus = Paths.get(dir + "ConsensusSequences.fa");
+		StringWriter copies = new StringWriter();
+		BufferedWriter out = new BufferedWriter(copies);
+		FastaReader in = new FastaReader(dir + "ConsensusSequences.fa");
+		for (int i=0; in.nextRecord(); i++) {
+			String sequence = new String(in.getSequence(), "ISO-8859-1");
+			if (i % 10 == 0 && !sequence.startsWith("CACACACACA") && sequence.length() > 500)
+				writeRecord(out, in.getId() + "_copy", getCopy(sequence));
+			}
+		out.close();
+		Files.write(consensus, copies.toString().getBytes("ISO-8859-1"), StandardOpenOption.APPEND);
+		collapse(1);
+		Files.move(Paths.get(dir + "ConsensusSequences.representatives.fa"), consensus,
+			StandardCopyOption.REPLACE_EXISTING);
+		ClassifyConsensusSequences.setDirectory(dir);
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		Files.copy(Paths.get(dir + "results_classify/known.txt"), Paths.get(dir + "known.txt"));
+		inputs.generateLibraryInputs();
+		GenerateAnnotatedLibrary.setDirectory(dir);
+		RBClassifier.setRepBase(dir + SyntheticInputs.repBase, dir + "RepBase.index");
+		Map<String, List<String>> clusters = new HashMap<String, List<String>>();
+		List<String> lines = read(dir + "ConsensusSequences.clusters.txt");
+		for (String line : lines.subList(1, lines.size())) {
+			String[] fields = line.split(" ");
+			if (!clusters.containsKey(fields[1])) clusters.put(fields[1], new ArrayList<String>());
+			clusters.get(fields[1]).add(fields[0]);
+			}
+		Map<String, String> members = getRecords(new String(Files.readAllBytes(Paths.get(dir +
+			"ConsensusSequences.members.fa")), "ISO-8859-1"));
+		String library = runLibrary();
+		assertTrue(checkMembers(library, clusters, members) > 10);
+		GenerateAnnotatedLibrary.setExternal(true);
+		String external = runLibrary();
+		assertEquals(checkMembers(library, clusters, members), checkMembers(external, clusters, members));
+		assertEquals(library, external);
+		}
+
+
+	//Checks that each representative's members follow it, with its header but for the name, as they are in
+	//the members file, and that no member is written elsewhere. Returns the members written.
+	private int checkMembers (String library, Map<String, List<String>> clusters, Map<String, String> members) {
+		String[] records = library.split("(?=>)");
+		Set<String> written = new HashSet<String>();
+		int n = 0;
+		for (int r=0; r<records.length; r++) {
+			String header = records[r].substring(0, records[r].indexOf("\n"));
+			String name = header.substring(1).split("[#: ]")[0];
+			if (written.contains(name) || !clusters.containsKey(name)) continue;
+			for (String member : clusters.get(name)) {
+				String record = records[++r];
+				assertEquals(">" + member + header.substring(name.length() + 1) + "\n" + members.get(member), record);
+				written.add(member);
+				n++;
+				}
+			}
+		for (String record : records) {
+			String name = record.substring(1).split("[#: \n]")[0];
+			assertTrue(name, !members.containsKey(name) || written.contains(name));
+			}
+		return n;
+		}
+
+	private void collapse (int threads) {
+		CollapseConsensusSequences.main(new String[] {dir + "ConsensusSequences.fa", "" + threads});
+		}
+
+	//A copy trimmed by 1 to 5 bases at either end, with one base in the middle substituted
+	private String getCopy (String sequence) {
+		char[] copy = sequence.substring(1 + random.nextInt(5), sequence.length() - 1 - random.nextInt(5)).toCharArray();
+		int middle = copy.length / 2;
+		copy[middle] = bases[(new String(bases).indexOf(copy[middle]) + 1 + random.nextInt(3)) % 4];
+		return new String(copy);
+		}
+
+	private List<String> getIds (String file) throws IOException {
+		List<String> ids = new ArrayList<String>();
+		FastaReader in = new FastaReader(file);
+		while (in.nextRecord()) ids.add(in.getId());
+		return ids;
+		}
+
+	private Map<String, String> getRecords (String fasta) {// each record's body by its ID
+		Map<String, String> records = new HashMap<String, String>();
+		for (String record : fasta.split("(?=>)")) {
+			int newline = record.indexOf("\n");
+			records.put(record.substring(1, newline).split("[ \t]")[0], record.substring(newline + 1));
+			}
+		return records;
+		}
+
+	private String getReverseComplement (String sequence) {
+		StringBuilder reverse = new StringBuilder();
+		for (int i=sequence.length() - 1; i>=0; i--) reverse.append(bases[3 - new String(bases).indexOf(sequence.charAt(i))]);
+		return reverse.toString();
+		}
+
+	private List<String> read (String file) throws IOException {
+		return Files.readAllLines(Paths.get(file), java.nio.charset.StandardCharsets.ISO_8859_1);
+		}
+
+	private String runLibrary () throws IOException {
+		GenerateAnnotatedLibrary.main(new String[] {"0.9", "1"});
+		Path library = Paths.get(dir + "library/Denovo_TE_Library.fasta");
+		String contents = new String(Files.readAllBytes(library), "ISO-8859-1");
+		Files.delete(library);
+		return contents;
+		}
+
+	//Unrelated records, with one or two copies of every 4th, shuffled. Returns the clusters file expected.
+	private List<String> writePlanted (String file) throws IOException {
+		List<String[]> records = new ArrayList<String[]>();//ID, sequence, original ID
+		for (int i=0; i<300; i++) {
+			char[] sequence = new char[2000 + random.nextInt(2000)];
+			for (int b=0; b<sequence.length; b++) sequence[b] = bases[random.nextInt(4)];
+			String id = "family" + i;
+			records.add(new String[] {id, new String(sequence), null});
+			if (i % 4 == 0) records.add(new String[] {id + "_copy", getCopy(new String(sequence)), id});
+			if (i % 8 == 0) records.add(new String[] {id + "_rc", getReverseComplement(getCopy(new String(sequence))), id});
+			}
+		Collections.shuffle(records, random);
+		List<String> clusters = new ArrayList<String>();
+		clusters.add("Sequence Representative");
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		for (String[] record : records) {
+			writeRecord(out, record[0] + " description", record[1]);
+			if (record[2] != null) clusters.add(record[0] + " " + record[2]);
+			}
+		out.close();
+		return clusters;
+		}
+
+	private void writeRecord (BufferedWriter out, String header, String sequence) throws IOException {
+		out.write(">" + header + "\n");
+		for (int i=0; i<sequence.length(); i+=60) out.write(sequence.substring(i, Math.min(sequence.length(), i + 60)) + "\n");
+		}
+	}
@@ -0,0 +1,270 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+import org.junit.*;
+
+//Compressed inputs are streamed by the line-oriented readers, and rejected by MappedFile. FastaReader
+//streams a gzip or BGZF ConsensusSequences.fa, reading the records (at the same offsets) and writing the
+//library read from the plain file, on threads too; and the accession index of a compressed GB_TE or
+//all_retrovirus library gives the descriptions of the plain one.
+public class CompressedInputTest {
+	private String dir;
+	private Random random = new Random(15);
+
+	@Before
+	public void setUp () throws IOException {dir = SyntheticInputs.createTempDirectory();}
+
+	@After
+	public void tearDown () {
+		ClassifyConsensusSequences.setDirectory("./");
+		ClassifyConsensusSequences.setThreads(1);
+		CollapseConsensusSequences.setDirectory("./");
+		GenerateAnnotatedLibrary.setDirectory("./");
+		GenerateAnnotatedLibrary.setExternal(false);
+		RBClassifier.setRepBase("/home/a1635743/RepBase20.04.fasta", "./RepBase20.04.index");
+		SyntheticInputs.delete(new File(dir));
+		}
+
+	@Test
+	public void mappedFileRejectsCompressedFiles () throws IOException {
+		gzip(write("plain.fa", ">a\nACGT\n"), dir + "compressed.fa.gz");
+		try {
+			new MappedFile(dir + "compressed.fa");
+			fail("A compressed file was mapped");
+			}
+		catch (IOException ie) {assertTrue(ie.getMessage(), ie.getMessage().contains("is compressed"));}
+		}
+
+	@Test
+	public void tabularHitsAreStreamedWhenCompressed () throws IOException {
+		String text = "# BLASTX\nfam1\tP1\t90.0\t100\t1\t0\t10\t300\t1\t97\t1e-20\t150\n\n" +
+			"fam2\tP2\t80.0\t50\t2\t1\t400\t251\t5\t55\t1e-10\t80\r\nfam3\tP3\ttoo few fields\n" +
+			"fam4\tP4\t70.0\t50\t2\t1\tx\t251\t5\t55\t1e-10\t80\nfam5\tP5\t99.0\t20\t0\t0\t5\t64\t1\t20\t1e-5\t40";
+		String plain = write("hits.ncbi", text);
+		gzip(plain, dir + "compressed.ncbi.gz");
+		List<String> expected = getHits(new BlastTabularReader(plain));
+		assertEquals(Arrays.asList("fam1 sp|P1 10 300", "fam2 sp|P2 251 400", "fam5 sp|P5 5 64"), expected);
+		assertEquals(expected, getHits(new BlastTabularReader(dir + "compressed.ncbi")));
+		}
+
+	@Test
+	public void compressedMapIsClassifiedOnThreads () throws IOException {
+		SyntheticInputs inputs = new SyntheticInputs(dir, 5);
+		inputs.generate(.3);
+		ClassifyConsensusSequences.setDirectory(dir);
+		ClassifyConsensusSequences.setThreads(4);
+		BitSet plain = classify();
+		String map = dir + "ConsensusSequences.fa.map";
+		gzip(map, map + ".gz");
+		new File(map).delete();
+		assertEquals(plain, classify());
+		assertTrue(plain.cardinality() > 0);
+		}
+
+	@Test
+	public void compressedFastaIsStreamed () throws IOException {
+		new SyntheticInputs(dir, 7).generate(.3);
+		String plain = dir + "ConsensusSequences.fa";
+		gzip(plain, dir + "gzip.fa");
+		bgzip(plain, dir + "bgzf.fa");
+		FastaReader in = new FastaReader(plain);
+		List<String> expected = getRecords(in);
+		assertTrue(expected.size() > 50);
+		for (String file : new String[] {dir + "gzip.fa", dir + "bgzf.fa"}) {
+			FastaReader streamed = new FastaReader(file);
+			assertTrue(streamed.isStreamed());
+			assertEquals(file, expected, getRecords(streamed));
+			assertEquals(in.getSize(), streamed.getSize());
+			assertEquals(file, expected, getRecords(streamed));
+			try {
+				streamed.getChunk(0, 100);
+				fail("A streamed file was read in chunks");
+				}
+			catch (UnsupportedOperationException ue) {}
+			PackedSequences packed = new PackedSequences(new FastaReader(file));
+			assertEquals(in.getSize(), packed.getSize());
+			assertEquals(file, expected, getRecords(packed));
+			}
+		}
+
+	//Classified and collapsed (on threads), and the library written (also -external), from a gzip
+	//ConsensusSequences.fa and BGZF GB_TE library as from the plain files
+	@Test
+	public void compressedConsensusIsAnnotated () throws IOException {
+		SyntheticInputs inputs = new SyntheticInputs(dir, 9);
+		inputs.generate(.5);
+		String consensus = dir + "ConsensusSequences.fa";
+		ClassifyConsensusSequences.setDirectory(dir);
+		CollapseConsensusSequences.setDirectory(dir);
+		GenerateAnnotatedLibrary.setDirectory(dir);
+		RBClassifier.setRepBase(dir + SyntheticInputs.repBase, dir + "RepBase.index");
+		BitSet plain = classify();
+		String[] collapsed = {"ConsensusSequences.clusters.txt", "ConsensusSequences.members.fa",
+			"ConsensusSequences.representatives.fa"};
+		Map<String, byte[]> fromPlain = collapse(collapsed);
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		Files.copy(Paths.get(dir + "results_classify/known.txt"), Paths.get(dir + "known.txt"));
+		inputs.generateLibraryInputs();
+		byte[] library = runLibrary();
+		gzip(consensus, consensus + ".gz");
+		new File(consensus).delete();
+		String gbte = dir + "GB_TE.21032016.fa";
+		bgzip(gbte, gbte + ".gz");
+		new File(gbte).delete();
+		new File(gbte + ".acc").delete();
+		assertEquals(plain, classify());
+		assertTrue(plain.cardinality() > 0);
+		Map<String, byte[]> fromCompressed = collapse(collapsed);
+		for (String file : collapsed) assertArrayEquals(file, fromPlain.get(file), fromCompressed.get(file));
+		assertTrue(new String(library, "ISO-8859-1").split(">").length > 50);
+		assertArrayEquals(library, runLibrary());
+		GenerateAnnotatedLibrary.setExternal(true);
+		assertArrayEquals(library, runLibrary());
+		}
+
+	//Each accession's description from a gzip and a BGZF library (in both orders), many BGZF blocks long
+	//with CRLF headers and repeated accessions, as from the plain libraries
+	@Test
+	public void compressedLibrariesAreIndexed () throws IOException {
+		String gbte = writeLibrary("GB_TE.21032016.fa", 6000, "");
+		String allr = writeLibrary("all_retrovirus.fasta", 2000, " ERV");
+		RetroAnnotations expected = new RetroAnnotations(gbte, allr);
+		assertTrue(new File(gbte).length() > 4 * 60000);
+		for (String order : new String[] {"gzip", "bgzf"}) {
+			new File(dir + order).mkdir();
+			String gzipped = dir + order + "/" + (order.equals("gzip")?"GB_TE.21032016.fa":"all_retrovirus.fasta");
+			String bgzipped = dir + order + "/" + (order.equals("gzip")?"all_retrovirus.fasta":"GB_TE.21032016.fa");
+			gzip(gzipped.endsWith(".fa")?gbte:allr, gzipped + ".gz");
+			bgzip(bgzipped.endsWith(".fa")?gbte:allr, bgzipped + ".gz");
+			RetroAnnotations annotations = new RetroAnnotations(dir + order + "/GB_TE.21032016.fa",
+				dir + order + "/all_retrovirus.fasta");
+			assertEquals(0x41434333, getKind(gzipped + ".acc"));
+			assertEquals(0x41434332, getKind(bgzipped + ".acc"));
+			assertEquals(expected.size(), annotations.size());
+			for (int i=0; i<6100; i++) {
+				String accession = String.format("gb|AB%05d", i);
+				assertEquals(accession, expected.get(accession), annotations.get(accession));
+				}
+			assertEquals("description 5999", annotations.get("gb|AB05999"));
+			assertEquals("description 5004", annotations.get("gb|AB05001"));
+			assertEquals("description 11 ERV", annotations.get("gb|AB00011"));
+			assertNull(annotations.get("gb|AB06000"));
+			}
+		}
+
+
+	//A BGZF file of blocks of up to 60000 bytes, each a gzip member with the BC subfield giving its size,
+	//and the empty end block
+	private static void bgzip (String file, String gzFile) throws IOException {
+		byte[] bytes = Files.readAllBytes(Paths.get(file));
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(gzFile));
+		for (int start=0; start<bytes.length; start+=60000) writeBlock(out, bytes, start, Math.min(60000, bytes.length - start));
+		writeBlock(out, bytes, 0, 0);
+		out.close();
+		}
+
+	private BitSet classify () {
+		NameDictionary names = new NameDictionary();
+		IntList lengths = new IntList(-1);
+		try {lengths = ClassifyConsensusSequences.getLengths(new FastaReader(dir + "ConsensusSequences.fa"), names);}
+		catch (IOException ie) {fail(ie.toString());}
+		return ClassifyConsensusSequences.classify(names, lengths, new NameDictionary(), new HitTable(), false);
+		}
+
+	private Map<String, byte[]> collapse (String[] files) throws IOException {// deleted once read
+		CollapseConsensusSequences.main(new String[] {dir + "ConsensusSequences.fa", "4"});
+		Map<String, byte[]> contents = new HashMap<String, byte[]>();
+		for (String file : files) {
+			contents.put(file, Files.readAllBytes(Paths.get(dir + file)));
+			Files.delete(Paths.get(dir + file));
+			}
+		return contents;
+		}
+
+	private static List<String> getHits (BlastTabularReader in) throws IOException {
+		List<String> hits = new ArrayList<String>();
+		while (in.nextHit())
+			hits.add(in.getQuery() + " " + in.getSubject() + " " + in.getQueryStart() + " " + in.getQueryEnd());
+		in.close();
+		return hits;
+		}
+
+	private static int getKind (String indexFile) throws IOException {// the magic number of an index
+		DataInputStream in = new DataInputStream(new FileInputStream(indexFile));
+		int kind = in.readInt();
+		in.close();
+		return kind;
+		}
+
+	//Each record as read and written, at its offsets, from the start
+	private static List<String> getRecords (FastaReader in) throws IOException {
+		List<String> records = new ArrayList<String>();
+		in.reset();
+		while (in.nextRecord()) {
+			StringWriter record = new StringWriter();
+			in.writeRecord(record);
+			records.add(in.getHeaderOffset() + " " + in.getBodyOffset() + " " + in.getBodyEnd() + " " + in.getId() +
+				" " + in.getLength() + " " + new String(in.getSequence(), "ISO-8859-1") + "\n" + record);
+			}
+		return records;
+		}
+
+	private static void gzip (String file, String gzFile) throws IOException {
+		OutputStream out = new GZIPOutputStream(new FileOutputStream(gzFile));
+		Files.copy(Paths.get(file), out);
+		out.close();
+		}
+
+	private byte[] runLibrary () throws IOException {
+		GenerateAnnotatedLibrary.main(new String[] {"0.9", "1"});
+		Path library = Paths.get(dir + "library/Denovo_TE_Library.fasta");
+		byte[] contents = Files.readAllBytes(library);
+		Files.delete(library);
+		return contents;
+		}
+
+	private String write (String name, String text) throws IOException {
+		Files.write(Paths.get(dir + name), text.getBytes("ISO-8859-1"));
+		return dir + name;
+		}
+	
+	private static void writeBlock (OutputStream out, byte[] bytes, int start, int length) throws IOException {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(bytes, start, length);
+		deflater.finish();
+		byte[] deflated = new byte[length + 1024];
+		int n = 0;
+		while (!deflater.finished()) n += deflater.deflate(deflated, n, deflated.length - n);
+		deflater.end();
+		CRC32 crc = new CRC32();
+		crc.update(bytes, start, length);
+		int size = 18 + n + 8;
+		out.write(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+			(byte) (size - 1), (byte) ((size - 1) >>> 8)});
+		out.write(deflated, 0, n);
+		writeIntLE(out, (int) crc.getValue());
+		writeIntLE(out, length);
+		}
+
+	private static void writeIntLE (OutputStream out, int value) throws IOException {
+		for (int i=0; i<4; i++) out.write(value >>> (8 * i));
+		}
+
+	//Records of accessions gb|AB00000 on, every 7th repeating the accession 3 before it and every 11th
+	//ending its header in \r\n, with the suffix after each description
+	private String writeLibrary (String name, int records, String suffix) throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i=0; i<records; i++) {
+			int accession = i % 7 == 6?i - 3:i;
+			text.append(String.format(">gi|%d|gb|AB%05d| description %d%s%s", i, accession, i, suffix,
+				i % 11 == 0?"\r\n":"\n"));
+			int length = 20 + random.nextInt(40);
+			for (int b=0; b<length; b++) text.append("ACGT".charAt(random.nextInt(4)));
+			text.append("\n");
+			}
+		return write(name, text.toString());
+		}
+	}
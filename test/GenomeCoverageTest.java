@@ -0,0 +1,81 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+
+//The sweep counts each base once, for the best scoring hit (the first added on a tie), including for a
+//sequence whose lines are split across the map; and a RepeatMasker .out of the same hits, its targets named
+//through the library, gives the same coverage, on any number of threads
+public class GenomeCoverageTest {
+	//sequence, start, end, target, score: chr1 is split by chr2's lines
+	private static final Object[][] hits = {
+		{"chr1", 1, 100, "fam1#LINE/L1", 300}, {"chr1", 50, 150, "fam2#DNA/hAT", 500},
+		{"chr1", 140, 200, "fam1#LINE/L1", 100}, {"chr1", 300, 399, "fam3#LTR/ERV1", 200},
+		{"chr1", 350, 450, "fam2#DNA/hAT", 200}, {"chr2", 10, 19, "fam1#LINE/L1", 10},
+		{"chr2", 15, 30, "fam1#LINE/L1", 20}, {"chr1", 180, 260, "fam3#LTR/ERV1", 50}};
+	private static final String[] expected = {"Sequence\tClass\tFamily\tbp",
+		"All\tAll\tAll\t432", "All\tDNA\tAll\t152", "All\tDNA\tDNA/hAT\t152", "All\tLINE\tAll\t120",
+		"All\tLINE\tLINE/L1\t120", "All\tLTR\tAll\t160", "All\tLTR\tLTR/ERV1\t160",
+		//L1 1-49 and 151-200, hAT 50-150 and 400-450 (ERV1 won the tie), ERV1 300-399 and 201-260
+		"chr1\tAll\tAll\t411", "chr1\tDNA\tAll\t152", "chr1\tDNA\tDNA/hAT\t152", "chr1\tLINE\tAll\t99",
+		"chr1\tLINE\tLINE/L1\t99", "chr1\tLTR\tAll\t160", "chr1\tLTR\tLTR/ERV1\t160",
+		"chr2\tAll\tAll\t21", "chr2\tLINE\tAll\t21", "chr2\tLINE\tLINE/L1\t21"};
+	private String dir;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		GenomeCoverage.setDirectory(dir);
+		RBClassifier.setRepBase(dir + "RepBase/", dir + "RepBase.index");
+		}
+
+	@After
+	public void tearDown () {
+		GenomeCoverage.setDirectory("./");
+		InputFile.setThreads(Runtime.getRuntime().availableProcessors());
+		RBClassifier.setRepBase("/home/a1635743/RepBase20.04.fasta", "./RepBase20.04.index");
+		SyntheticInputs.delete(new File(dir));
+		}
+
+	@Test
+	public void mapIsSweptOnce () throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(dir + "genome.map"));
+		for (Object[] hit : hits)
+			out.write(hit[0] + "\t" + hit[1] + "\t" + hit[2] + "\t" + hit[3] + "\t1\t100\td\t0.8\t0.9\t" + hit[4] + "\n");
+		out.close();
+		for (int threads : new int[] {1, 4}) {
+			GenomeCoverage.main(new String[] {dir + "genome.map", "" + threads});
+			assertEquals("with " + threads + " threads", Arrays.asList(expected), read(dir + "genome.map.coverage.txt"));
+			}
+		}
+
+	@Test
+	public void outMatchesTheMap () throws IOException {
+		BufferedWriter library = new BufferedWriter(new FileWriter(dir + "library.fa"));
+		for (String target : new String[] {"fam1#LINE/L1", "fam2#DNA/hAT", "fam3#LTR/ERV1"})
+			library.write(">" + target + " description\nACGT\n");
+		library.close();
+		BufferedWriter out = new BufferedWriter(new FileWriter(dir + "genome.out"));
+		out.write("   SW   perc perc perc  query      position in query    matching  repeat   position in repeat\n" +
+			"score   div. del. ins.  sequence   begin  end  (left)    repeat    class/family  begin  end (left)  ID\n\n");
+		for (int h=0; h<hits.length; h++) {
+			String target = (String) hits[h][3];
+			int hash = target.indexOf("#");
+			out.write(String.format("%5d  10.0  0.0  0.0  %s %6d %6d   (0) %s %s %s ", hits[h][4], hits[h][0],
+				hits[h][1], hits[h][2], h % 2 == 0?"+":"C", target.substring(0, hash), target.substring(hash + 1)));
+			out.write((h % 2 == 0?"1 100 (0)":"(0) 100 1") + " " + (h + 1) + "\n");
+			}
+		out.close();
+		for (int threads : new int[] {1, 4}) {
+			GenomeCoverage.main(new String[] {"-library", dir + "library.fa", dir + "genome.out", "" + threads});
+			assertEquals("with " + threads + " threads", Arrays.asList(expected), read(dir + "genome.out.coverage.txt"));
+			}
+		}
+
+
+	private List<String> read (String file) throws IOException {
+		return Files.readAllLines(Paths.get(file), java.nio.charset.StandardCharsets.ISO_8859_1);
+		}
+	}
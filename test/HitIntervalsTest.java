@@ -0,0 +1,75 @@
+import static org.junit.Assert.*;
+
+import java.util.*;
+import org.junit.*;
+
+//HitIntervals against a brute force over every added hit, on random hit sets
+public class HitIntervalsTest {
+	@Test
+	public void maxOverlapMatchesBruteForce () {
+		Random random = new Random(21);
+		for (int trial=0; trial<2000; trial++) {
+			int n = 1 + random.nextInt(40);
+			int span = 50 + random.nextInt(2000);
+			int[][] hits = getHits(random, n, span);
+			int[] starts = new int[n];
+			int[] ends = new int[n];
+			for (int i=0; i<n; i++) {
+				starts[i] = hits[i][0];
+				ends[i] = hits[i][1];
+				}
+			Integer[] longest = new Integer[n];
+			for (int i=0; i<n; i++) longest[i] = i;
+			Arrays.sort(longest, new Comparator<Integer>() {
+				public int compare (Integer a, Integer b) {
+					return Integer.compare(ends[b] - starts[b], ends[a] - starts[a]);
+					}
+				});
+			HitIntervals index = new HitIntervals(starts, ends, n);
+			List<Integer> added = new ArrayList<Integer>();
+			for (int hit : longest) {// as removeSubHits, each queried then added only when it is kept
+				int expected = 0;
+				for (int other : added)
+					expected = Math.max(expected, Math.min(ends[hit], ends[other]) - Math.max(starts[hit], starts[other]) + 1);
+				assertEquals("trial " + trial, expected, index.getMaxOverlap(starts[hit], ends[hit]));
+				if (random.nextInt(4) > 0) {
+					index.add(hit);
+					added.add(hit);
+					}
+				}
+			}
+		}
+
+	@Test
+	public void unionMatchesBruteForce () {
+		Random random = new Random(2021);
+		for (int trial=0; trial<2000; trial++) {
+			int n = random.nextInt(40);
+			int span = 50 + random.nextInt(2000);
+			int[][] hits = getHits(random, n, span);
+			int[] starts = new int[n];
+			int[] ends = new int[n];
+			BitSet covered = new BitSet();
+			for (int i=0; i<n; i++) {
+				starts[i] = hits[i][0];
+				ends[i] = hits[i][1];
+				covered.set(starts[i], ends[i] + 1);
+				}
+			assertEquals("trial " + trial, covered.cardinality(), HitIntervals.getUnion(starts, ends, n));
+			}
+		}
+
+
+	private static int[][] getHits (Random random, int n, int span) {// in start order, some nested or equal
+		int[][] hits = new int[n][];
+		for (int i=0; i<n; i++) {
+			int start = 1 + random.nextInt(span);
+			int end = start + random.nextInt(random.nextBoolean()?20:span);
+			hits[i] = i > 0 && random.nextInt(10) == 0?hits[random.nextInt(i)].clone():new int[] {start, end};
+			}
+		Arrays.sort(hits, new Comparator<int[]>() {
+			public int compare (int[] a, int[] b) {return Integer.compare(a[0], b[0]);}
+			});
+		return hits;
+		}
+	}
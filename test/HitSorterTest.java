@@ -0,0 +1,43 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+
+//HitSorter gives back the hits in query order, each query's in the order they were added, however many runs
+//it spills, including more than it merges at once, and leaves none of its spill files behind
+public class HitSorterTest {
+	private String dir;
+
+	@Before
+	public void setUp () throws IOException {dir = SyntheticInputs.createTempDirectory();}
+
+	@After
+	public void tearDown () {SyntheticInputs.delete(new File(dir));}
+
+	@Test
+	public void matchesStableSort () throws IOException {
+		Random random = new Random(17);
+		for (int[] test : new int[][] {{1000, 5000}, {100, 5000}, {3, 5000}, {1, 20000}}) {
+			int runSize = test[0];
+			int[][] hits = new int[test[1]][];
+			HitSorter sorter = new HitSorter(runSize, dir);
+			for (int h=0; h<hits.length; h++) {
+				hits[h] = new int[] {random.nextInt(hits.length / 10), h, random.nextInt(1000), random.nextInt(1000)};
+				sorter.add(hits[h][0], hits[h][1], hits[h][2], hits[h][3]);
+				}
+			Arrays.sort(hits, new Comparator<int[]>() {
+				public int compare (int[] a, int[] b) {return Integer.compare(a[0], b[0]);}
+				});
+			for (int h=0; h<hits.length; h++) {
+				assertTrue(sorter.next());
+				assertArrayEquals("hit " + h + " with runs of " + runSize, hits[h], new int[] {sorter.getQuery(),
+					sorter.getTarget(), sorter.getStart(), sorter.getEnd()});
+				}
+			assertFalse(sorter.next());
+			assertEquals((hits.length + runSize - 1) / runSize, sorter.getRuns());
+			sorter.close();
+			assertEquals(0, new File(dir).list().length);
+			}
+		}
+	}
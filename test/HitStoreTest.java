@@ -0,0 +1,111 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+
+//The stages decide from ConsensusSequences.fa.map.hits what they decide from the text map:
+//ClassifyConsensusSequences writes the same results, and GenerateAnnotatedLibrary, reading the wanted
+//sequences' IR hits through the store's per-query index, the same library. The index lists each family's
+//rows in the order of the map.
+public class HitStoreTest {
+	private static final String[] results = {"known.txt", "partial.txt", "check.txt", "notKnown.fa",
+		"notKnown.fa.gff"};
+	private String dir;
+	private String map;
+	private SyntheticInputs inputs;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		map = dir + "ConsensusSequences.fa.map";
+		inputs = new SyntheticInputs(dir, 17);
+		inputs.generate(1);
+		ClassifyConsensusSequences.setDirectory(dir);
+		GenerateAnnotatedLibrary.setDirectory(dir);
+		RBClassifier.setRepBase(dir + SyntheticInputs.repBase, dir + "RepBase.index");
+		}
+
+	@After
+	public void tearDown () {
+		ClassifyConsensusSequences.setDirectory("./");
+		GenerateAnnotatedLibrary.setDirectory("./");
+		RBClassifier.setRepBase("/home/a1635743/RepBase20.04.fasta", "./RepBase20.04.index");
+		SyntheticInputs.delete(new File(dir));
+		}
+
+	@Test
+	public void indexListsEachFamilysRows () throws IOException {
+		HitStore.convert(map, map + ".hits");
+		HitStore store = new HitStore(HitStore.getStoreFile(map));
+		Map<String, List<String>> expected = new HashMap<String, List<String>>();
+		for (String line : read(map)) {
+			String[] fields = line.split("\t");
+			if (!expected.containsKey(fields[0])) expected.put(fields[0], new ArrayList<String>());
+			expected.get(fields[0]).add(String.join("\t", fields[1], fields[2], fields[3], fields[4], fields[5],
+				fields[6], fields[9]));
+			}
+		assertEquals(expected.size(), store.getQueries());
+		for (String name : inputs.names) {
+			int query = store.findQuery(name);
+			List<String> rows = new ArrayList<String>();
+			for (int e=0; query>=0 && e<store.getEntries(query); e++) {
+				int row = store.getRow(query, e);
+				assertEquals(query, store.getQuery(row));
+				rows.add(store.getStart(row) + "\t" + store.getEnd(row) + "\t" + store.getTargetName(store.getTarget(row)) +
+					"\t" + store.getLibStart(row) + "\t" + store.getLibEnd(row) + "\t" + store.getStrand(row) + "\t" +
+					store.getScore(row));
+				}
+			assertEquals(name, expected.containsKey(name)?expected.get(name):new ArrayList<String>(), rows);
+			}
+		assertEquals(-1, store.findQuery("family"));
+		}
+
+	@Test
+	public void classifyMatchesTheText () throws IOException {
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		Map<String, byte[]> fromText = readResults();
+		HitStore.convert(map, map + ".hits");
+		for (int threads : new int[] {1, 4}) {
+			for (String result : results) Files.delete(Paths.get(dir + "results_classify/" + result));
+			ClassifyConsensusSequences.main(new String[] {"" + threads});
+			Map<String, byte[]> fromStore = readResults();
+			for (String result : results) assertArrayEquals(result + " with " + threads + " threads",
+				fromText.get(result), fromStore.get(result));
+			}
+		assertTrue(fromText.get("known.txt").length > 1000);
+		}
+
+	@Test
+	public void libraryMatchesTheText () throws IOException {
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		Files.copy(Paths.get(dir + "results_classify/known.txt"), Paths.get(dir + "known.txt"));
+		inputs.generateLibraryInputs();
+		byte[] fromText = runLibrary();
+		HitStore.convert(map, map + ".hits");
+		assertNotNull(HitStore.getStoreFile(map));
+		assertTrue(new String(fromText, "ISO-8859-1").split(">").length > 100);
+		assertArrayEquals(fromText, runLibrary());
+		}
+
+
+	private List<String> read (String file) throws IOException {
+		return Files.readAllLines(Paths.get(file), java.nio.charset.StandardCharsets.ISO_8859_1);
+		}
+
+	private Map<String, byte[]> readResults () throws IOException {
+		Map<String, byte[]> contents = new HashMap<String, byte[]>();
+		for (String result : results) contents.put(result, Files.readAllBytes(Paths.get(dir + "results_classify/" +
+			result)));
+		return contents;
+		}
+
+	private byte[] runLibrary () throws IOException {
+		GenerateAnnotatedLibrary.main(new String[] {"0.9", "1"});
+		Path library = Paths.get(dir + "library/Denovo_TE_Library.fasta");
+		byte[] contents = Files.readAllBytes(library);
+		Files.delete(library);
+		return contents;
+		}
+	}
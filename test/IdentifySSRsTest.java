@@ -0,0 +1,77 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+
+//The SSR scan against the SSRs expected for the fixture in test/fixtures/ssr, whose repeats include gaps,
+//lowercase bases, repeats that do not span their sequence and headers with descriptions. expectedSSRs.phobos
+//was written by hand, in the layout phobos writes, from the repeats as they were planted; it is not phobos
+//output, so the test checks the scan against those repeats rather than against phobos.
+public class IdentifySSRsTest {
+	private static final String fixture = "test/fixtures/ssr/";
+	private String dir;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		IdentifySSRs.setDirectory(dir);
+		}
+
+	@After
+	public void tearDown () {
+		IdentifySSRs.setDirectory("./");
+		IdentifySSRs.setThreads(1);
+		SyntheticInputs.delete(new File(dir));
+		}
+
+	@Test
+	public void scanMatchesExpectedSSRs () throws IOException {
+		NameDictionary expectedFamilies = new NameDictionary();
+		NameDictionary expectedUnits = new NameDictionary();
+		Map<String, String> expected = getSSRs(IdentifySSRs.getSSRs(fixture + "expectedSSRs.phobos",
+			expectedFamilies, expectedUnits), expectedFamilies, expectedUnits);
+		assertEquals(3, expected.size());
+		for (int threads=1; threads<=2; threads++) {
+			IdentifySSRs.setThreads(threads);
+			NameDictionary families = new NameDictionary();
+			NameDictionary units = new NameDictionary();
+			IntList ssrs = IdentifySSRs.findSSRs(new FastaReader(fixture + "notKnownNotProtein.fa"), families, units,
+				new BitSet());
+			assertEquals(expected, getSSRs(ssrs, families, units));
+			}
+		}
+
+	@Test
+	public void gapsAreExtendedOver () throws IOException {// fam3 has an inserted and a deleted base
+		NameDictionary families = new NameDictionary();
+		NameDictionary units = new NameDictionary();
+		IntList ssrs = IdentifySSRs.findSSRs(new FastaReader(fixture + "notKnownNotProtein.fa"), families, units,
+			new BitSet());
+		assertEquals("AGG", getSSRs(ssrs, families, units).get("fam3"));
+		}
+
+	@Test
+	public void removesSSRsWithDescriptions () throws IOException {
+		NameDictionary families = new NameDictionary();
+		NameDictionary units = new NameDictionary();
+		FastaReader in = new FastaReader(fixture + "notKnownNotProtein.fa");
+		IntList ssrs = IdentifySSRs.findSSRs(in, families, units, new BitSet());
+		IdentifySSRs.writeSSRs(ssrs, families, units, in, new BitSet());
+		List<String> headers = new ArrayList<String>();
+		for (String line : Files.readAllLines(Paths.get(dir + "notKnownNotProteinNotSSR.fa")))
+			if (line.startsWith(">")) headers.add(line);
+		assertEquals(Arrays.asList(">fam2", ">fam4", ">fam6"), headers);
+		List<String> ssrLines = Files.readAllLines(Paths.get(dir + "SSR.txt"));
+		assertEquals(Arrays.asList("Sequence MappedTo", "fam1 CA", "fam3 AGG", "fam5 GATA"), ssrLines);
+		}
+
+
+	private static Map<String, String> getSSRs (IntList ssrs, NameDictionary families, NameDictionary units) {
+		Map<String, String> named = new TreeMap<String, String>();
+		for (int family=0; family<ssrs.size(); family++)
+			if (ssrs.get(family) >= 0) named.put(families.getName(family), units.getName(ssrs.get(family)));
+		return named;
+		}
+	}
@@ -0,0 +1,61 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+
+//The packed records of the fixture in test/fixtures/packed, which has IUPAC codes and runs of N, lowercase,
+//CRLF line ends, irregular lines and an empty record, are written, sliced and reverse complemented as read
+public class PackedSequencesTest {
+	private static final String fixture = "test/fixtures/packed/mixed.fa";
+	private FastaReader in;
+	private PackedSequences packed;
+
+	@Before
+	public void setUp () throws IOException {
+		in = new FastaReader(fixture);
+		packed = new PackedSequences(in);
+		}
+
+	@Test
+	public void recordsAreWrittenAsRead () throws IOException {
+		in.reset();
+		assertEquals(6, packed.size());
+		while (in.nextRecord()) {
+			assertTrue(packed.nextRecord());
+			assertEquals(in.getHeader(), packed.getHeader());
+			assertEquals(in.getId(), packed.getId());
+			assertEquals(in.getLength(), packed.getLength());
+			assertEquals(in.getHeaderOffset(), packed.getHeaderOffset());
+			assertEquals(in.getBodyOffset(), packed.getBodyOffset());//one more after a CRLF header
+			assertEquals(in.getBodyEnd(), packed.getBodyEnd());
+			StringWriter read = new StringWriter();
+			StringWriter written = new StringWriter();
+			in.writeRecord(read);
+			packed.writeRecord(written);
+			assertEquals(read.toString(), written.toString());
+			}
+		assertFalse(packed.nextRecord());
+		}
+
+	@Test
+	public void slicesMatchTheRecord () {
+		for (int r=0; r<packed.size(); r++) {
+			byte[] sequence = packed.getSequence(r);
+			for (int start=1; start<=sequence.length; start++)
+				for (int end=start; end<=sequence.length; end++)
+					assertArrayEquals("record " + r + " " + start + "-" + end, Arrays.copyOfRange(sequence, start - 1,
+						end), packed.getSequence(r, start, end));
+			}
+		assertEquals(0, packed.getLength(2));//the empty record
+		assertEquals("ACGTNNNNNNRYKMBDHVSWacgtnnACuUacg", new String(packed.getSequence(1)));
+		}
+
+	@Test
+	public void reverseComplementKeepsCaseAndIUPAC () {
+		assertEquals("WSBDHVKMRY", new String(packed.getReverseComplement(1, 11, 20)));
+		assertEquals("GTnnacgt", new String(packed.getReverseComplement(1, 21, 28)));
+		assertEquals("cgtAaGT", new String(packed.getReverseComplement(1, 27, 33)));//U as T
+		assertEquals("RYNNNNNNACGT", new String(packed.getReverseComplement(1, 1, 12)));
+		}
+	}
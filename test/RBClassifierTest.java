@@ -0,0 +1,57 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import org.junit.*;
+
+//The RepBase index is compiled through a .tmp file, is used while it is current, and is compiled again once
+//a *rep.ref file is newer than it
+public class RBClassifierTest {
+	private String dir;
+	private String libDir;
+	private String indexFile;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		libDir = dir + "RepBase/";
+		indexFile = dir + "RepBase.index";
+		new File(libDir).mkdirs();
+		}
+
+	@After
+	public void tearDown () {SyntheticInputs.delete(new File(dir));}
+
+	@Test
+	public void rebuildsWhenRepBaseIsNewer () throws IOException {
+		writeRepRef("humrep.ref", "Helitron", 0);
+		assertEquals("DNA/Helitron", classify("Helitron-1_XX"));
+		assertTrue(new File(indexFile).exists());
+		assertFalse(new File(indexFile + ".tmp").exists());
+		long compiled = new File(indexFile).lastModified();
+		//an index as new as RepBase is used as it is, another file's classes are not read
+		writeRepRef("mamrep.ref", "L1", compiled - 10000);
+		assertEquals("Unknown", classify("L1-1_XX"));
+		assertEquals(compiled, new File(indexFile).lastModified());
+		new File(indexFile).setLastModified(compiled - 20000);//as though RepBase was updated after it
+		assertEquals("LINE/L1", classify("L1-1_XX"));
+		compiled = new File(indexFile).lastModified();
+		assertEquals("DNA/Helitron", classify("Helitron-1_XX"));
+		assertEquals(compiled, new File(indexFile).lastModified());
+		assertFalse(new File(indexFile + ".tmp").exists());
+		}
+
+
+	private String classify (String name) {
+		NameDictionary targets = new NameDictionary();
+		int target = targets.add(name);
+		return new RBClassifier(targets, libDir, indexFile).classify(target);
+		}
+
+	private void writeRepRef (String name, String family, long modified) throws IOException {
+		File file = new File(libDir + name);
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		out.write(">" + family + "-1_XX\t" + family + "\tSpecies\nACGT\n");
+		out.close();
+		if (modified > 0) file.setLastModified(modified);
+		}
+	}
@@ -0,0 +1,122 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.*;
+
+//A RepeatMasker .out file gives the map fields format_RMSK.pl writes for the fixture in test/fixtures/rmsk,
+//whose header and blank lines and hit on an unknown strand are skipped, and whose C hits and hits marked *
+//are read with their repeat positions. With the .out file in place of the map, ClassifyConsensusSequences
+//writes the results and GenerateAnnotatedLibrary (addIRHits) the library they write from the map.
+public class RepeatMaskerOutTest {
+	private static final String fixture = "test/fixtures/rmsk/sample.out";
+	private String dir;
+	private SyntheticInputs inputs;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		inputs = new SyntheticInputs(dir, 13);
+		inputs.generate(1);
+		ClassifyConsensusSequences.setDirectory(dir);
+		GenerateAnnotatedLibrary.setDirectory(dir);
+		RBClassifier.setRepBase(dir + SyntheticInputs.repBase, dir + "RepBase.index");
+		}
+
+	@After
+	public void tearDown () {
+		ClassifyConsensusSequences.setDirectory("./");
+		GenerateAnnotatedLibrary.setDirectory("./");
+		RBClassifier.setRepBase("/home/a1635743/RepBase20.04.fasta", "./RepBase20.04.index");
+		SyntheticInputs.delete(new File(dir));
+		}
+
+	@Test
+	public void fieldsMatchFormatRMSK () throws IOException, InterruptedException {
+		List<String> fields = new ArrayList<String>();
+		for (String line : read(fixture)) {
+			String[] hit = RepeatMaskerOut.getMapFields(line);
+			if (hit != null) fields.add(String.join("\t", hit));
+			}
+		assertEquals(6, fields.size());
+		assertEquals("family0000001\t201\t364\tCR1-1_XX\t2879\t3042\tc\t0\t0\t239", fields.get(1));
+		assertNull(RepeatMaskerOut.getMapFields("  311   17.0  2.2  1.1  family0000002    600    788  (2212) ? MIR  " +
+			"SINE/MIR  14   200   (62)    5"));
+		Process perl;
+		try {perl = new ProcessBuilder("perl", "code/format_RMSK.pl", fixture).start();}
+		catch (IOException ie) {
+			Assume.assumeNoException("no perl to run format_RMSK.pl", ie);
+			return;
+			}
+		List<String> expected = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(perl.getInputStream(), "ISO-8859-1"));
+		for (String line; (line = in.readLine()) != null;) expected.add(line);
+		in.close();
+		assertEquals(0, perl.waitFor());
+		assertEquals(expected, fields);
+		}
+
+	@Test
+	public void classifyMatchesTheMap () throws IOException {
+		String[] results = {"known.txt", "partial.txt", "check.txt", "notKnown.fa", "notKnown.fa.gff"};
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		Map<String, byte[]> fromMap = readResults(results);
+		writeOut();
+		for (String result : results) Files.delete(Paths.get(dir + "results_classify/" + result));
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		Map<String, byte[]> fromOut = readResults(results);
+		assertTrue(fromMap.get("known.txt").length > 1000);
+		for (String result : results) assertArrayEquals(result, fromMap.get(result), fromOut.get(result));
+		}
+
+	@Test
+	public void libraryMatchesTheMap () throws IOException {
+		ClassifyConsensusSequences.main(new String[] {"1"});
+		Files.copy(Paths.get(dir + "results_classify/known.txt"), Paths.get(dir + "known.txt"));
+		inputs.generateLibraryInputs();
+		byte[] fromMap = runLibrary();
+		writeOut();
+		byte[] fromOut = runLibrary();
+		assertTrue(new String(fromMap, "ISO-8859-1").split(">").length > 100);
+		assertArrayEquals(fromMap, fromOut);
+		}
+
+
+	private List<String> read (String file) throws IOException {
+		return Files.readAllLines(Paths.get(file), java.nio.charset.StandardCharsets.ISO_8859_1);
+		}
+
+	private Map<String, byte[]> readResults (String[] results) throws IOException {
+		Map<String, byte[]> contents = new HashMap<String, byte[]>();
+		for (String result : results) contents.put(result, Files.readAllBytes(Paths.get(dir + "results_classify/" +
+			result)));
+		return contents;
+		}
+
+	private byte[] runLibrary () throws IOException {
+		GenerateAnnotatedLibrary.main(new String[] {"0.9", "1"});
+		Path library = Paths.get(dir + "library/Denovo_TE_Library.fasta");
+		byte[] contents = Files.readAllBytes(library);
+		Files.delete(library);
+		return contents;
+		}
+
+	//The map's hits as RepeatMasker writes them, the map's score as the SW score, in place of the map
+	private void writeOut () throws IOException {
+		String map = dir + "ConsensusSequences.fa.map";
+		BufferedWriter out = new BufferedWriter(new FileWriter(dir + "ConsensusSequences.fa.out"));
+		out.write("   SW   perc perc perc  query      position in query    matching  repeat   position in repeat\n" +
+			"score   div. del. ins.  sequence   begin  end  (left)    repeat    class/family  begin  end (left)  ID\n\n");
+		int id = 0;
+		for (String line : read(map)) {
+			String[] f = line.split("\t");
+			out.write(String.format("%5s  10.0  0.0  0.0  %s %6s %6s   (0) %s %s  Unknown  ", f[9], f[0], f[1], f[2],
+				f[6].equals("c")?"C":"+", f[3]));
+			out.write((f[6].equals("c")?"(0) " + f[5] + " " + f[4]:f[4] + " " + f[5] + " (0)") + " " + ++id +
+				(id % 3 == 0?" *":"") + "\n");
+			}
+		out.close();
+		Files.delete(Paths.get(map));
+		}
+	}
@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import org.junit.*;
+
+//The accession indexes give the descriptions the Hashtable GenerateAnnotatedLibrary read the libraries into
+//gave: the last library, and the last header within it, wins for an accession, and a CRLF header's
+//description has no \r. An index older than its library is rebuilt.
+public class RetroAnnotationsTest {
+	private String dir;
+	private String gbte;
+	private String allr;
+
+	@Before
+	public void setUp () throws IOException {
+		dir = SyntheticInputs.createTempDirectory();
+		gbte = dir + "GB_TE.21032016.fa";
+		allr = dir + "all_retrovirus.fasta";
+		write(gbte, ">gi|1|gb|AB0001| Gypsy element 1\nACGT\n>gi|2|gb|AB0002| first of two\nACGT\n" +
+			">gi|3|gb|AB0003| CRLF header\r\nACGT\r\n>gi|4|gb|AB0002| second of two\nACGT\n" +
+			">gi|5|gb|AB0005| description with | bars |\nACGT\n>gi|6|gb|AB0006| \nACGT\n");
+		write(allr, ">gi|7|gb|AB0001| ERV in the last library\nACGT\n>gi|8|emb|CD0008| all_retrovirus only\n" +
+			"ACGT\nACGT\n>gi|9|gb|AB0003| CRLF again\r\nAC\r\n");
+		}
+
+	@After
+	public void tearDown () {SyntheticInputs.delete(new File(dir));}
+
+	@Test
+	public void matchesTheHashtable () throws IOException {
+		Hashtable<String, String> expected = getAllRetroAnnotations(gbte, allr);
+		RetroAnnotations annotations = new RetroAnnotations(gbte, allr);
+		assertEquals(6, expected.size());
+		for (String accession : expected.keySet()) assertEquals(accession, expected.get(accession),
+			annotations.get(accession));
+		assertEquals("ERV in the last library", annotations.get("gb|AB0001"));
+		assertEquals("second of two", annotations.get("gb|AB0002"));
+		assertEquals("CRLF again", annotations.get("gb|AB0003"));
+		assertNull(annotations.get("gb|AB0004"));
+		assertNull(annotations.get("gb|AB000"));
+		assertEquals("", annotations.get("gb|AB0006"));
+		}
+
+	@Test
+	public void rebuildsAStaleIndex () throws IOException {
+		assertEquals("Gypsy element 1", new RetroAnnotations(gbte).get("gb|AB0001"));
+		File index = new File(gbte + ".acc");
+		write(gbte, ">gi|1|gb|AB0001| Gypsy element 1, revised\nACGT\n");
+		index.setLastModified(new File(gbte).lastModified() - 10000);
+		RetroAnnotations annotations = new RetroAnnotations(gbte);
+		assertEquals("Gypsy element 1, revised", annotations.get("gb|AB0001"));
+		assertNull(annotations.get("gb|AB0002"));
+		assertFalse(new File(gbte + ".acc.tmp").exists());
+		}
+
+
+	//As GenerateAnnotatedLibrary read the libraries before RetroAnnotations
+	private static Hashtable<String, String> getAllRetroAnnotations (String... files) throws IOException {
+		Hashtable<String, String> annos = new Hashtable<String, String>();
+		String line = null;
+		for (int i=0; i<files.length; i++) {
+			BufferedReader in = new BufferedReader(new FileReader(files[i]));
+			while ((line = in.readLine()) != null)
+				if (line.length() > 0 && line.charAt(0) == '>') {
+					int i1 = line.indexOf("|", 4) + 1;
+					int i2 = line.indexOf("|", line.indexOf("|", i1)+1);
+					annos.put(line.substring(i1, i2), line.substring(i2+2));
+					}
+			in.close();
+			}
+		return annos;
+		}
+
+	private void write (String file, String text) throws IOException {
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+		out.write(text);
+		out.close();
+		}
+	}